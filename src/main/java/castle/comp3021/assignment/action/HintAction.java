@@ -0,0 +1,64 @@
+package castle.comp3021.assignment.action;
+
+import castle.comp3021.assignment.protocol.Action;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.MoveAnalysis;
+import castle.comp3021.assignment.protocol.exception.ActionException;
+
+/**
+ * The action to show the best moves of the current player.
+ * <p>
+ * The moves are found by {@link MoveAnalysis#analyze(Game, int, long)} within the turn budget of the player.
+ */
+public class HintAction extends Action {
+    public static final int DEFAULT_MOVES = 3;
+    public static final int MAX_MOVES = 10;
+
+    /**
+     * @param game the current {@link Game} object
+     * @param args the arguments input by users in the console
+     */
+    public HintAction(Game game, String[] args) {
+        super(game, args);
+    }
+
+    /**
+     * Print the best moves according to {@link this#args}
+     * Expected {@link this#args}: nothing for {@link HintAction#DEFAULT_MOVES} moves, or "2" for at most
+     * {@link HintAction#MAX_MOVES} moves
+     * Throw {@link ActionException} when the number of moves is invalid or the game cannot be analyzed.
+     */
+    @Override
+    public void perform() throws ActionException {
+        int k = DEFAULT_MOVES;
+        if (this.args.length > 0) {
+            try {
+                k = Integer.parseInt(this.args[0]);
+            } catch (NumberFormatException e) {
+                throw new ActionException("Invalid number of moves " + this.args[0]);
+            }
+            if (k < 1 || k > MAX_MOVES) {
+                throw new ActionException("Number of moves must be between 1 and " + MAX_MOVES);
+            }
+        }
+
+        var configuration = this.game.getConfiguration();
+        var budget = configuration.getTurnBudgetMillis(this.game.getCurrentPlayer());
+        try {
+            var analyses = MoveAnalysis.analyze(this.game, k, budget);
+            if (analyses.isEmpty()) {
+                throw new ActionException("No move available");
+            }
+            for (int i = 0; i < analyses.size(); i++) {
+                System.out.printf("%d. %s%n", i + 1, analyses.get(i));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ActionException(e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Action[hint]";
+    }
+}
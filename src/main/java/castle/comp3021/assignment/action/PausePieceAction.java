@@ -30,10 +30,8 @@ public class PausePieceAction extends Action {
      * <p>
      * Related meethods:
      * - {@link Piece#pause()}
-     * - {@link Thread#interrupt()}
      * <p>
-     * - The piece thread can be get by
-     * {@link castle.comp3021.assignment.protocol.Configuration#getPieceThread(Piece)}
+     * A busy piece thread is not interrupted, the pause takes effect at its next checkpoint.
      */
     @Override
     public void perform() throws ActionException {
@@ -56,8 +54,11 @@ public class PausePieceAction extends Action {
             throw new ActionException("piece at " + place.toString() + " does not belong to computer player, thus can not be paused");
         }
 
+        if (piece.isTerminated()) {
+            throw new ActionException("piece at " + place.toString() + " has been terminated, thus can not be paused");
+        }
+
         piece.pause();
-        this.game.getConfiguration().getPieceThread(piece).interrupt();
     }
 
     @Override
@@ -53,6 +53,10 @@ public class ResumePieceAction extends Action {
             throw new ActionException("piece at " + place.toString() + " does not belong to computer player, thus can not be resumed");
         }
 
+        if (piece.isTerminated()) {
+            throw new ActionException("piece at " + place.toString() + " has been terminated, thus can not be resumed");
+        }
+
         piece.resume();
     }
 
@@ -30,10 +30,8 @@ public class TerminatePieceAction extends Action {
      * <p>
      * Related meethods:
      * - {link Piece#terminate()}
-     * - {@link Thread#interrupt()}
      * <p>
-     * - The piece thread can be get by
-     * {@link castle.comp3021.assignment.protocol.Configuration# getPieceThread(Piece)}
+     * The piece thread is unparked by {@link Piece#terminate()} and exits on its own, no interrupt is needed.
      */
     @Override
     public void perform() throws ActionException {
@@ -56,8 +54,11 @@ public class TerminatePieceAction extends Action {
             throw new ActionException("piece at " + place.toString() + " does not belong to computer player, thus can not be stopped");
         }
 
+        if (piece.isTerminated()) {
+            throw new ActionException("piece at " + place.toString() + " has already been terminated");
+        }
+
         piece.terminate();
-        this.game.getConfiguration().getPieceThread(piece).interrupt();
     }
 
     @Override
@@ -0,0 +1,163 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.GameClock;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Place;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A request for a candidate move, submitted to a piece thread and collected no later than its deadline.
+ * <p>
+ * The piece thread publishes its best move so far while computing ({@link CandidateProposal#publish(Move)}),
+ * so when the deadline passes the collector gets the best available answer instead of nothing.
+ * A move can be published with a score ({@link CandidateProposal#publish(Move, int)}), so that the collector can
+ * compare the proposals of several pieces.
+ */
+public class CandidateProposal {
+    /**
+     * Score of a move published without a score.
+     */
+    public static final int UNSCORED = Integer.MIN_VALUE;
+
+    /**
+     * A published move with its score.
+     */
+    private static final class Published {
+        private final Move move;
+        private final int score;
+
+        private Published(Move move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+    }
+
+    private final Game game;
+    private final Place source;
+
+    /**
+     * Deadline of the round, in {@link GameClock#nanoTime()} units of the clock of the game.
+     */
+    private final long deadline;
+
+    private final GameClock clock;
+
+    /**
+     * Whether the piece thread is still able to complete this proposal.
+     */
+    private final BooleanSupplier progressing;
+
+    private final AtomicReference<Published> best = new AtomicReference<>();
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * What {@link CandidateProposal#await()} returned, so its score stays with it if the piece publishes later.
+     */
+    private volatile Published collected;
+
+    /**
+     * Set when the turn that requested this proposal is over, so the piece thread stops working on it.
+     */
+    private volatile boolean cancelled = false;
+
+    public CandidateProposal(Game game, Place source, long deadline, BooleanSupplier progressing) {
+        this.game = game;
+        this.source = source;
+        this.deadline = deadline;
+        this.clock = game.getConfiguration().getClock();
+        this.progressing = progressing;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public Place getSource() {
+        return source;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public boolean isExpired() {
+        return this.clock.nanoTime() - this.deadline >= 0;
+    }
+
+    /**
+     * Publish a move that is better than the previously published one.
+     *
+     * @param move the best move so far
+     */
+    public void publish(Move move) {
+        publish(move, UNSCORED);
+    }
+
+    /**
+     * Publish a move that is better than the previously published one, with its score.
+     *
+     * @param move  the best move so far
+     * @param score the score of the move, higher is better
+     */
+    public void publish(Move move, int score) {
+        this.best.set(new Published(move, score));
+    }
+
+    /**
+     * Discard whatever has been published, e.g. when the piece is paused in the middle of computing.
+     */
+    public void withdraw() {
+        this.best.set(null);
+    }
+
+    /**
+     * Cancel the proposal because its turn is over. The piece thread abandons it at its next checkpoint, and
+     * whatever has been published is discarded.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        this.withdraw();
+        this.complete();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Mark the computation as finished, releasing the collector before the deadline.
+     */
+    public void complete() {
+        this.completed.countDown();
+    }
+
+    /**
+     * Wait until the computation completes or the deadline passes, whichever comes first.
+     *
+     * @return the best published move, or null if nothing has been published
+     */
+    public Move await() {
+        try {
+            this.clock.await(this.completed, this.deadline, this.progressing);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        var published = this.best.get();
+        this.collected = published;
+        return published == null ? null : published.move;
+    }
+
+    /**
+     * @return the score of the move returned by {@link CandidateProposal#await()}, or
+     * {@link CandidateProposal#UNSCORED}
+     */
+    public int getCollectedScore() {
+        var published = this.collected;
+        return published == null ? UNSCORED : published.score;
+    }
+}
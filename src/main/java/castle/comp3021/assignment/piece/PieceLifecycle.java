@@ -0,0 +1,252 @@
+package castle.comp3021.assignment.piece;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free lifecycle of a piece thread.
+ * <p>
+ * The whole lifecycle lives in a single atomic state word:
+ * - the low bits hold one of {@link PieceLifecycle#RUNNING}, {@link PieceLifecycle#PAUSED} and
+ * {@link PieceLifecycle#TERMINATED}
+ * - {@link PieceLifecycle#BUSY} is set while the piece thread is computing a candidate move
+ * <p>
+ * The piece thread parks whenever it is paused or has nothing to compute, and is unparked by
+ * {@link PieceLifecycle#resume()}, {@link PieceLifecycle#terminate()} or {@link PieceLifecycle#signalWork()}.
+ * A pause requested while the piece is busy takes effect at the next {@link PieceLifecycle#checkpoint()},
+ * so no interrupt is needed.
+ */
+public class PieceLifecycle {
+    public static final int RUNNING = 0;
+    public static final int PAUSED = 1;
+    public static final int TERMINATED = 2;
+    public static final int BUSY = 4;
+
+    private static final int STATE_MASK = 3;
+
+    /**
+     * Not-yet-measured marker of the latency fields.
+     */
+    private static final long UNMEASURED = -1;
+
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+    /**
+     * The piece thread, which is the only thread that parks on this lifecycle.
+     */
+    private volatile Thread owner;
+
+    private volatile long pauseRequestedAt;
+    private volatile long pauseLatencyNanos = UNMEASURED;
+    private volatile long resumeRequestedAt;
+    private volatile boolean awaitingFirstProposal = false;
+    private volatile long resumeLatencyNanos = UNMEASURED;
+
+    /**
+     * Register the current thread as the piece thread.
+     * Must be called at the beginning of {@link Runnable#run()} of the piece.
+     */
+    public void bind() {
+        this.owner = Thread.currentThread();
+    }
+
+    public int getState() {
+        return this.state.get() & STATE_MASK;
+    }
+
+    public boolean isRunning() {
+        return getState() == RUNNING;
+    }
+
+    public boolean isPaused() {
+        return getState() == PAUSED;
+    }
+
+    public boolean isTerminated() {
+        return getState() == TERMINATED;
+    }
+
+    public boolean isBusy() {
+        return (this.state.get() & BUSY) != 0;
+    }
+
+    /**
+     * Pause the piece.
+     * If the piece is idle the pause takes effect immediately, otherwise at the next {@link this#checkpoint()}.
+     *
+     * @return false if the piece has been terminated
+     */
+    public boolean pause() {
+        while (true) {
+            int current = this.state.get();
+            switch (current & STATE_MASK) {
+                case TERMINATED -> {
+                    return false;
+                }
+                case PAUSED -> {
+                    return true;
+                }
+                default -> {
+                    this.pauseRequestedAt = System.nanoTime();
+                    this.pauseLatencyNanos = (current & BUSY) == 0 ? 0 : UNMEASURED;
+                    if (this.state.compareAndSet(current, PAUSED | (current & BUSY))) {
+                        return true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Resume a paused piece and unpark its thread.
+     *
+     * @return false if the piece has been terminated
+     */
+    public boolean resume() {
+        while (true) {
+            int current = this.state.get();
+            switch (current & STATE_MASK) {
+                case TERMINATED -> {
+                    return false;
+                }
+                case RUNNING -> {
+                    return true;
+                }
+                default -> {
+                    // set before the piece can run, so that its first proposal is always measured
+                    this.resumeRequestedAt = System.nanoTime();
+                    this.awaitingFirstProposal = true;
+                    if (this.state.compareAndSet(current, RUNNING | (current & BUSY))) {
+                        LockSupport.unpark(this.owner);
+                        return true;
+                    }
+                    this.awaitingFirstProposal = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Terminate the piece. Once terminated, the piece cannot be paused or resumed again.
+     * The piece thread is unparked so that it can leave its loop and release its resources immediately.
+     */
+    public void terminate() {
+        while (true) {
+            int current = this.state.get();
+            // the busy bit is kept, so that the proposal being computed is still seen as in progress
+            if (this.state.compareAndSet(current, TERMINATED | (current & BUSY))) {
+                break;
+            }
+        }
+        LockSupport.unpark(this.owner);
+    }
+
+    /**
+     * Bring the lifecycle back to running for a new game, whatever its state is.
+     * Only used by {@link castle.comp3021.assignment.protocol.PieceRuntime#reset()}, once the thread of a
+     * terminated piece has exited.
+     *
+     * @throws IllegalStateException if the piece has been terminated and its thread is still alive
+     */
+    public void reset() {
+        var owner = this.owner;
+        if (isTerminated() && owner != null && owner.isAlive()) {
+            throw new IllegalStateException("thread of the terminated piece has not exited");
+        }
+        this.state.set(RUNNING);
+        this.pauseLatencyNanos = UNMEASURED;
+        this.resumeLatencyNanos = UNMEASURED;
+        this.awaitingFirstProposal = false;
+    }
+
+    /**
+     * Wake up the piece thread because new work has been submitted.
+     */
+    public void signalWork() {
+        LockSupport.unpark(this.owner);
+    }
+
+    /**
+     * Park the piece thread until there is work in the given queue and the piece is running.
+     * Spurious wake-ups are handled by re-checking the state.
+     *
+     * @param workQueue queue of pending work
+     * @return false if the piece has been terminated
+     */
+    public boolean awaitWork(Queue<?> workQueue) {
+        while (true) {
+            int current = getState();
+            if (current == TERMINATED) {
+                return false;
+            }
+            if (current == RUNNING && !workQueue.isEmpty()) {
+                return true;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Mark the piece as busy.
+     *
+     * @return false if the piece is not running, in which case no work should be done
+     */
+    public boolean beginWork() {
+        return this.state.compareAndSet(RUNNING, RUNNING | BUSY);
+    }
+
+    /**
+     * Clear the busy bit. A pause requested after the last checkpoint takes effect here.
+     */
+    public void endWork() {
+        while (true) {
+            int current = this.state.get();
+            if (this.state.compareAndSet(current, current & ~BUSY)) {
+                break;
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * Called by the piece thread between steps of a computation.
+     * If a pause has been requested, it takes effect here and the pause latency is recorded.
+     *
+     * @return true if the computation may continue, false if it should be abandoned
+     */
+    public boolean checkpoint() {
+        int current = getState();
+        if (current == RUNNING) {
+            return true;
+        }
+        if (current == PAUSED && this.pauseLatencyNanos == UNMEASURED) {
+            this.pauseLatencyNanos = System.nanoTime() - this.pauseRequestedAt;
+        }
+        return false;
+    }
+
+    /**
+     * Called by the piece thread when it publishes a proposal, to measure resume-to-first-proposal latency.
+     */
+    public void onProposal() {
+        if (this.awaitingFirstProposal) {
+            this.awaitingFirstProposal = false;
+            this.resumeLatencyNanos = System.nanoTime() - this.resumeRequestedAt;
+        }
+    }
+
+    /**
+     * @return nanoseconds between the last pause request and the moment it took effect, or -1 if not measured yet
+     */
+    public long getPauseLatencyNanos() {
+        return this.pauseLatencyNanos;
+    }
+
+    /**
+     * @return nanoseconds between the last resume and the first proposal after it, or -1 if not measured yet
+     */
+    public long getResumeLatencyNanos() {
+        return this.resumeLatencyNanos;
+    }
+}
@@ -0,0 +1,104 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+import castle.comp3021.assignment.protocol.Strategy;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.TranspositionTable;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The search of one piece of a {@link Strategy#LOOKAHEAD} player, run on the thread of the piece so that all
+ * pieces search their own moves in parallel.
+ * <p>
+ * Each piece searches a copy of the board of the turn, see
+ * {@link castle.comp3021.assignment.protocol.BehaviorContext#getPosition()}, with only its own moves at the root, up
+ * to {@link castle.comp3021.assignment.protocol.Configuration#getPieceLookaheadDepth()} plies. The best move and its
+ * score are published as soon as each depth completes, so the collector gets the deepest result at the deadline.
+ * The scores are from the perspective of the player, so the proposals of all its pieces can be compared. A pause, a
+ * cancellation or a termination stops the search from another thread, see {@link PieceLookahead#stop()}. The move
+ * ordering and the transposition table of the search are kept between the turns of a game.
+ * <p>
+ * A lookahead belongs to one piece and is only used by its thread.
+ */
+class PieceLookahead {
+    /**
+     * Size of the transposition table of each piece.
+     */
+    private static final int TABLE_MEGABYTES = 1;
+
+    private volatile AlphaBetaSearch search;
+
+    /**
+     * The game and the number of moves of the last search, so that a new game or an undo starts a fresh search.
+     */
+    private Game game;
+    private int numMoves;
+
+    /**
+     * Search the moves of a piece and publish the best one with its score.
+     *
+     * @param proposal       the proposal to publish to
+     * @param availableMoves the valid moves of the piece, at least one
+     * @param checkpoint     false if the computation should be abandoned
+     * @return false if the computation was abandoned
+     */
+    boolean propose(CandidateProposal proposal, Move[] availableMoves, BooleanSupplier checkpoint) {
+        var game = proposal.getGame();
+        var configuration = game.getConfiguration();
+        var clock = configuration.getClock();
+        if (this.search == null || this.search.getClock() != clock || this.game != game
+                || game.getNumMoves() < this.numMoves) {
+            this.search = new AlphaBetaSearch(clock, new TranspositionTable(TABLE_MEGABYTES));
+        }
+        var search = this.search;
+        this.game = game;
+        this.numMoves = game.getNumMoves();
+        search.setTablebase(configuration.getTablebase());
+        search.setEvaluationCache(configuration.getEvaluationCache());
+
+        var position = game.getBehaviorContext().getPosition();
+        var rootMoves = new int[availableMoves.length];
+        for (int i = 0; i < rootMoves.length; i++) {
+            rootMoves[i] = position.fromMove(availableMoves[i]);
+        }
+        search.setIterationListener(result -> {
+            if (!checkpoint.getAsBoolean()) {
+                search.stop();
+                return;
+            }
+            proposal.publish(find(availableMoves, position.toMove(result.getBestMove())), result.getScore());
+        });
+        // a stop sent before the restart is seen by the checkpoint after it
+        search.restart();
+        if (!checkpoint.getAsBoolean()) {
+            return false;
+        }
+        var limits = new SearchLimits(proposal.getDeadline(), configuration.getPieceLookaheadDepth(),
+                SearchLimits.UNLIMITED_NODES);
+        search.search(position, rootMoves, limits);
+        return checkpoint.getAsBoolean();
+    }
+
+    /**
+     * Stop the search in progress, if any, from another thread. The piece thread then finds out at its next
+     * checkpoint whether it was paused, cancelled or terminated.
+     */
+    void stop() {
+        var search = this.search;
+        if (search != null) {
+            search.stop();
+        }
+    }
+
+    private static Move find(Move[] moves, Move move) {
+        for (var candidate : moves) {
+            if (candidate.equals(move)) {
+                return candidate;
+            }
+        }
+        return move;
+    }
+}
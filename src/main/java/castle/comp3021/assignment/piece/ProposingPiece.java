@@ -0,0 +1,267 @@
+package castle.comp3021.assignment.piece;
+
+import castle.comp3021.assignment.protocol.*;
+import castle.comp3021.assignment.search.Position;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A piece with its own thread, which proposes the candidate moves of the piece in the background.
+ * The lifecycle of the thread and the collection of the proposals are shared by {@link Knight} and {@link Archer},
+ * which only add the rules of their moves.
+ */
+public abstract class ProposingPiece extends Piece {
+    /**
+     * The proposal of the current round, which is collected by {@link ProposingPiece#collectCandidateMove}
+     */
+    private volatile CandidateProposal currentProposal;
+
+    /**
+     * A LinkedBlockingDeque storing the {@link CandidateProposal} requests, each with parameters {@link Game}
+     * and {@link Place}.
+     * When calculateMoveParametersQueue is empty, the current piece thread should be waiting
+     * until a request is passed in, the thread starts calculate the candidate move.
+     */
+    private BlockingDeque<CandidateProposal> calculateMoveParametersQueue;
+
+    /**
+     * Lifecycle of this piece thread, see {@link PieceLifecycle}.
+     */
+    private PieceLifecycle lifecycle = new PieceLifecycle();
+
+    /**
+     * Search of the moves of this piece for a {@link Strategy#LOOKAHEAD} player, used by the piece thread only.
+     */
+    private PieceLookahead lookahead = new PieceLookahead();
+
+    protected ProposingPiece(Player player, Behavior behavior) {
+        super(player, behavior);
+        this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
+    }
+
+    protected ProposingPiece(Player player) {
+        super(player);
+        this.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
+    }
+
+    /**
+     * The clone has its own thread state, so it neither takes the proposals of this piece nor follows its pause,
+     * resume or termination.
+     */
+    @Override
+    public ProposingPiece clone() throws CloneNotSupportedException {
+        var cloned = (ProposingPiece) super.clone();
+        cloned.currentProposal = null;
+        cloned.calculateMoveParametersQueue = new LinkedBlockingDeque<>();
+        cloned.lifecycle = new PieceLifecycle();
+        cloned.lookahead = new PieceLookahead();
+        return cloned;
+    }
+
+    /**
+     * Returns a valid candidate move given the current game {@link Game} and place  {@link Place} of the piece.
+     * The turn budget of the player ({@link Configuration#getTurnBudgetMillis(Player)}) is used as timeout.
+     * If time is out, the best move proposed so far is returned, or nothing if the piece has not proposed any.
+     *
+     * @param game   the game object
+     * @param source the current place of the piece
+     * @return one candidate move
+     */
+    @Override
+    public synchronized Move getCandidateMove(Game game, Place source) {
+        var budget = game.getConfiguration().getTurnBudgetMillis(this.getPlayer());
+        var deadline = game.getConfiguration().getClock().nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+        requestCandidateMove(game, source, deadline);
+        try {
+            return collectCandidateMove(game, source, deadline);
+        } finally {
+            cancelCandidateMove();
+        }
+    }
+
+    /**
+     * Submit a {@link CandidateProposal} to the piece thread, replacing any pending one.
+     * Paused and terminated pieces do not propose.
+     */
+    @Override
+    public void requestCandidateMove(Game game, Place source, long deadline) {
+        if (!this.lifecycle.isRunning()) {
+            System.out.println("Paused");
+            this.currentProposal = null;
+            return;
+        }
+        var proposal = new CandidateProposal(game, source, deadline,
+                () -> this.lifecycle.isRunning() || this.lifecycle.isBusy());
+        this.currentProposal = proposal;
+        this.calculateMoveParametersQueue.clear();
+        this.calculateMoveParametersQueue.add(proposal);
+        this.lifecycle.signalWork();
+    }
+
+    /**
+     * Wait for the proposal submitted by {@link ProposingPiece#requestCandidateMove} until it completes or its deadline passes.
+     *
+     * @return the best move proposed so far, or null if nothing has been proposed
+     */
+    @Override
+    public Move collectCandidateMove(Game game, Place source, long deadline) {
+        var proposal = this.currentProposal;
+        if (proposal == null || proposal.getGame() != game || !proposal.getSource().equals(source)) {
+            return null;
+        }
+        var move = proposal.await();
+        if (move != null && proposal.getCollectedScore() != CandidateProposal.UNSCORED) {
+            game.recordCandidateScore(move, proposal.getCollectedScore());
+        }
+        return move;
+    }
+
+    /**
+     * Cancel the proposal of the current round, whether it is still queued or being computed.
+     */
+    @Override
+    public void cancelCandidateMove() {
+        var proposal = this.currentProposal;
+        if (proposal == null) {
+            return;
+        }
+        this.currentProposal = null;
+        this.calculateMoveParametersQueue.remove(proposal);
+        proposal.cancel();
+        this.lookahead.stop();
+    }
+
+    public PieceLifecycle getLifecycle() {
+        return this.lifecycle;
+    }
+
+    @Override
+    public boolean isPaused() {
+        return this.lifecycle.isPaused();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.lifecycle.isTerminated();
+    }
+
+    @Override
+    public void reset() {
+        this.calculateMoveParametersQueue.clear();
+        this.currentProposal = null;
+        this.lifecycle.reset();
+    }
+
+    /**
+     * Pause this piece thread.
+     * If the piece is computing a candidate move, the pause takes effect at its next checkpoint
+     * and the candidate move is discarded.
+     */
+    @Override
+    public void pause() {
+        this.lifecycle.pause();
+        this.lookahead.stop();
+    }
+
+    /**
+     * Resume the piece thread
+     */
+    @Override
+    public void resume() {
+        this.lifecycle.resume();
+    }
+
+    /**
+     * Stop the piece thread.
+     * The piece thread leaves its loop immediately and cannot be paused or resumed again.
+     */
+    @Override
+    public void terminate() {
+        this.lifecycle.terminate();
+        this.lookahead.stop();
+    }
+
+    /**
+     * The piece should be runnable
+     * Consider the following situations:
+     *      - When there is no parameter in calculateMoveParametersQueue, or this piece is paused:
+     *          - this thread parks in {@link PieceLifecycle#awaitWork}
+     *      - When parameters {@link Game} and {@link Place} are submitted by {@link ProposingPiece#getCandidateMove}:
+     *          - propose a candidate move using {@link MakeMoveByBehavior#getNextMove()} according to
+     *            {@link this#behavior}
+     *          - or, for a {@link Strategy#LOOKAHEAD} player, search the moves of this piece and propose the best
+     *            one with its score, see {@link PieceLookahead}
+     *          - publish the best move so far to the {@link CandidateProposal}, and complete it at the end
+     *      - When this piece has been terminated: leave the loop and release the queues
+     */
+    @Override
+    public void run() {
+        this.lifecycle.bind();
+        while (this.lifecycle.awaitWork(this.calculateMoveParametersQueue)) {
+            var proposal = this.calculateMoveParametersQueue.poll();
+            if (proposal == null || proposal.isCancelled()) {
+                continue;
+            }
+            if (!this.lifecycle.beginWork()) {
+                proposal.complete();
+                continue;
+            }
+            try {
+                proposeCandidateMove(proposal);
+            } finally {
+                this.lifecycle.endWork();
+                proposal.complete();
+            }
+        }
+        this.calculateMoveParametersQueue.clear();
+        this.currentProposal = null;
+    }
+
+    /**
+     * Compute a candidate move, publishing the best move so far and checking for a pause or a cancellation
+     * between the steps.
+     * If the deadline passes in the middle, the collector takes whatever has been published.
+     */
+    private void proposeCandidateMove(CandidateProposal proposal) {
+        var game = proposal.getGame();
+        if (!game.getCurrentPlayer().equals(this.getPlayer())) {
+            return;
+        }
+        var availableMoves = getAvailableMoves(game, proposal.getSource());
+        if (availableMoves.length == 0 || !checkpoint(proposal)) {
+            return;
+        }
+        // any valid move is better than no proposal at the deadline
+        proposal.publish(availableMoves[0]);
+        if (proposal.isExpired()) {
+            return;
+        }
+        if (this.getPlayer().getStrategy() == Strategy.LOOKAHEAD && Position.isSupported(game)) {
+            if (!this.lookahead.propose(proposal, availableMoves, () -> checkpoint(proposal))) {
+                proposal.withdraw();
+                return;
+            }
+            this.lifecycle.onProposal();
+            return;
+        }
+        var move = new MakeMoveByBehavior(game.getBehaviorContext(), availableMoves, this.behavior,
+                this.getRandom()).getNextMove();
+        if (!checkpoint(proposal)) {
+            proposal.withdraw();
+            return;
+        }
+        proposal.publish(move);
+        this.lifecycle.onProposal();
+    }
+
+    /**
+     * @return false if the computation of the proposal should be abandoned, because the piece is paused or
+     * terminated, or the turn is over
+     */
+    private boolean checkpoint(CandidateProposal proposal) {
+        return this.lifecycle.checkpoint() && !proposal.isCancelled();
+    }
+
+}
@@ -4,9 +4,31 @@ import castle.comp3021.assignment.protocol.*;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * A computer player that makes a move randomly.
+ * A computer player, which chooses among the moves proposed by its pieces with its {@link Strategy}: at random,
+ * with a shallow verification search, with an alpha-beta or Monte Carlo tree search, or by the scores of the
+ * searches of the pieces themselves, see {@link MakeMoveByStrategy#getNextMove()}.
+ * <p>
+ * Collecting the proposals and choosing among them share one budget per turn. It is the budget of the player if it
+ * has one, otherwise {@link Configuration#getTurnBudgetMillis()}. With a {@link TimeManager}, the turns split a
+ * total game time instead, and end at its soft deadline, see {@link Configuration#getTurnDeadline(Player)}.
  */
 public class ComputerPlayer extends Player {
+    /**
+     * The time in milliseconds this player may spend on one turn.
+     * 0 means using {@link Configuration#getTurnBudgetMillis()}.
+     */
+    private long turnBudgetMillis = 0;
+
+    /**
+     * Splits a total game time into the turns of this player, or null to spend the turn budget on every turn.
+     */
+    private TimeManager timeManager;
+
+    public ComputerPlayer(String name, Color color, Strategy strategy, long turnBudgetMillis) {
+        super(name, color, strategy);
+        this.setTurnBudgetMillis(turnBudgetMillis);
+    }
+
     public ComputerPlayer(String name, Color color, Strategy strategy) {
         super(name, color, strategy);
     }
@@ -19,9 +41,33 @@ public class ComputerPlayer extends Player {
         this(name, Color.BLUE);
     }
 
+    public long getTurnBudgetMillis() {
+        return turnBudgetMillis;
+    }
+
+    public void setTurnBudgetMillis(long turnBudgetMillis) {
+        if (turnBudgetMillis < 0) {
+            throw new IllegalArgumentException("turn budget cannot be negative");
+        }
+        this.turnBudgetMillis = turnBudgetMillis;
+    }
+
+    public TimeManager getTimeManager() {
+        return timeManager;
+    }
+
+    /**
+     * Play with a total game time and an increment per move instead of a fixed turn budget.
+     *
+     * @param timeManager the time manager, or null to go back to the turn budget
+     */
+    public void setTimeManager(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
     @Override
     public @NotNull Move nextMove(Game game, Move[] availableMoves) {
-        return new MakeMoveByStrategy(game, availableMoves, this.strategy).getNextMove();
+        return new MakeMoveByStrategy(game, availableMoves, this.strategy, this.getRandom()).getNextMove();
     }
 }
 
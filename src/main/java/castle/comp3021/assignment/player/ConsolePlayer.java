@@ -87,6 +87,10 @@ public class ConsolePlayer extends HumanPlayer {
      *      - format: terminate {@link Place} (example: terminate a1)
      *      - description: terminates a piece the given place, once terminates, that piece cannot be resumed again
      *      - implemented in {@link Piece#terminate()}
+     * - hint:
+     *      - format: hint [number of moves] (example: hint 3)
+     *      - description: show the best moves of the current player with their scores and lines
+     *      - implemented in {@link MoveAnalysis#analyze(Game, int, long)}
      *
      * @param game {@link Game} object
      * @param str  The input from console, options include: undo, pause, resume and terminate. Not necessarily be an
@@ -115,6 +119,9 @@ public class ConsolePlayer extends HumanPlayer {
             case "terminate" -> {
                 return new TerminatePieceAction(game, args);
             }
+            case "hint" -> {
+                return new HintAction(game, args);
+            }
 
             default -> {
                 return null;
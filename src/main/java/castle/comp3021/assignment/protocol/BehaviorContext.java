@@ -0,0 +1,153 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.search.Position;
+
+/**
+ * What {@link MakeMoveByBehavior} needs to know about the board in one turn, computed once for all pieces of the
+ * player to move.
+ * <p>
+ * Squares are numbered {@code x * size + y}, and masks hold one bit per square. The context keeps the squares of
+ * the enemy pieces, which a {@link Behavior#CAPTURING} piece moves to, the squares next to an enemy knight, where a
+ * {@link Behavior#BLOCKING} piece blocks its jumps, and the distance of each square to the central place, which a
+ * {@link Behavior#GREEDY} piece minimises. Scoring a candidate move is then a few array reads, without touching
+ * the board. Pieces that search their moves copy one {@link Position} of the board, see
+ * {@link BehaviorContext#getPosition()}.
+ * <p>
+ * A context only describes the board and the number of moves it was built from, see
+ * {@link BehaviorContext#isFor(Game)}.
+ */
+public class BehaviorContext {
+    private final Game game;
+    private final Piece[][] board;
+    private final int numMoves;
+    private final int size;
+    private final boolean captureProtected;
+    private final long[] enemies;
+    private final long[] enemyKnightNeighbours;
+    private final int[] centralDistance;
+
+    /**
+     * The board as a {@link Position}, built on first use by a piece searching its moves.
+     */
+    private Position position;
+
+    /**
+     * Build the context of the turn of {@link Game#getCurrentPlayer()}.
+     *
+     * @param game the game
+     */
+    public BehaviorContext(Game game) {
+        var configuration = game.getConfiguration();
+        this.game = game;
+        this.board = game.board;
+        this.numMoves = game.getNumMoves();
+        this.size = configuration.getSize();
+        this.captureProtected = this.numMoves <= configuration.getNumMovesProtection();
+        int words = (this.size * this.size + Long.SIZE - 1) / Long.SIZE;
+        this.enemies = new long[words];
+        this.enemyKnightNeighbours = new long[words];
+        this.centralDistance = new int[this.size * this.size];
+
+        var player = game.getCurrentPlayer();
+        var central = game.getCentralPlace();
+        for (int x = 0; x < this.size; x++) {
+            for (int y = 0; y < this.size; y++) {
+                int square = x * this.size + y;
+                this.centralDistance[square] = Math.abs(central.x() - x) + Math.abs(central.y() - y);
+                var piece = this.board[x][y];
+                if (piece == null || piece.getPlayer().equals(player)) {
+                    continue;
+                }
+                set(this.enemies, square);
+                if (piece instanceof Knight) {
+                    setIfOnBoard(this.enemyKnightNeighbours, x + 1, y);
+                    setIfOnBoard(this.enemyKnightNeighbours, x - 1, y);
+                    setIfOnBoard(this.enemyKnightNeighbours, x, y + 1);
+                    setIfOnBoard(this.enemyKnightNeighbours, x, y - 1);
+                }
+            }
+        }
+    }
+
+    private void setIfOnBoard(long[] mask, int x, int y) {
+        if (x >= 0 && x < this.size && y >= 0 && y < this.size) {
+            set(mask, x * this.size + y);
+        }
+    }
+
+    private static void set(long[] mask, int square) {
+        mask[square >>> 6] |= 1L << square;
+    }
+
+    private static boolean contains(long[] mask, int square) {
+        return (mask[square >>> 6] & 1L << square) != 0;
+    }
+
+    /**
+     * @param game a game
+     * @return whether this context describes the current board and turn of the game
+     */
+    public boolean isFor(Game game) {
+        return this.board == game.board && this.numMoves == game.getNumMoves();
+    }
+
+    /**
+     * @return a copy of the board as a {@link Position}, which the caller may search; the board is built once per
+     * context
+     * @throws IllegalArgumentException if the game has pieces the search does not know, see
+     *                                  {@link Position#isSupported(Game)}
+     */
+    public synchronized Position getPosition() {
+        if (this.position == null) {
+            if (!Position.isSupported(this.game)) {
+                throw new IllegalArgumentException("only games of knights and archers can be searched");
+            }
+            this.position = Position.fromGame(this.game);
+        }
+        return this.position.copy();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return whether captures are not preferred yet, because the game is in its first moves
+     */
+    public boolean isCaptureProtected() {
+        return captureProtected;
+    }
+
+    /**
+     * @param place a place on the board
+     * @return the square of the place in the masks of this context
+     */
+    public int square(Place place) {
+        return place.x() * this.size + place.y();
+    }
+
+    /**
+     * @param square a square, see {@link BehaviorContext#square(Place)}
+     * @return whether a piece of another player is on the square
+     */
+    public boolean isEnemy(int square) {
+        return contains(this.enemies, square);
+    }
+
+    /**
+     * @param square a square, see {@link BehaviorContext#square(Place)}
+     * @return whether the square is next to a knight of another player
+     */
+    public boolean blocksEnemyKnight(int square) {
+        return contains(this.enemyKnightNeighbours, square);
+    }
+
+    /**
+     * @param square a square, see {@link BehaviorContext#square(Place)}
+     * @return the Manhattan distance of the square to the central place
+     */
+    public int centralDistance(int square) {
+        return this.centralDistance[square];
+    }
+}
@@ -4,11 +4,28 @@ import castle.comp3021.assignment.piece.Archer;
 import castle.comp3021.assignment.piece.Knight;
 import castle.comp3021.assignment.player.ComputerPlayer;
 import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.Evaluation;
+import castle.comp3021.assignment.search.EvaluationCache;
+import castle.comp3021.assignment.search.MonteCarloTreeSearch;
+import castle.comp3021.assignment.search.OpeningBook;
+import castle.comp3021.assignment.search.ParallelSearch;
+import castle.comp3021.assignment.search.Ponderer;
+import castle.comp3021.assignment.search.ProofNumberSearch;
+import castle.comp3021.assignment.search.ProposalVerifier;
+import castle.comp3021.assignment.search.RolloutPolicy;
+import castle.comp3021.assignment.search.Tablebase;
+import castle.comp3021.assignment.search.TranspositionTable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -25,6 +42,17 @@ public class Configuration implements Cloneable {
      */
     protected final static int DEFAULTSIZE = 9;
     protected final static int DEFAULTPROTECTMOVE = 1;
+    protected final static long DEFAULTTURNBUDGET = 1000;
+    protected final static int DEFAULTMAXSEARCHDEPTH = 64;
+    protected final static int DEFAULTPIECELOOKAHEADDEPTH = 3;
+    protected final static int DEFAULTSMARTVERIFICATIONDEPTH = 2;
+    protected final static int DEFAULTTRANSPOSITIONTABLEMEGABYTES = 16;
+    protected final static int DEFAULTEVALUATIONCACHEMEGABYTES = 4;
+    protected final static int DEFAULTSEARCHTHREADS = 1;
+    protected final static int DEFAULTMCTSTREENODES = 1 << 18;
+    protected final static long DEFAULTMAXPLAYOUTS = 1_000_000;
+    protected final static int DEFAULTPROOFNUMBERNODES = 1 << 16;
+    protected final static int DEFAULTPROOFNUMBERPLIES = 7;
 
     /**
      * Size of gameboard.
@@ -46,9 +74,9 @@ public class Configuration implements Cloneable {
     protected int criticalRegionCapacity;
 
     /**
-     * Mapping from piece object to thread object of the piece.
+     * The threads of the pieces, which can be reused by consecutive games.
      */
-    protected Map<Piece, Thread> pieceThreadMap;
+    protected PieceRuntime pieceRuntime = new PieceRuntime();
 
     /**
      * All players in the game.
@@ -69,6 +97,172 @@ public class Configuration implements Cloneable {
 
     protected int numMovesProtection;
 
+    /**
+     * The time in milliseconds that a computer player may spend on one turn, unless the player sets its own
+     * ({@link ComputerPlayer#getTurnBudgetMillis()}).
+     * All pieces of the player compute their candidate moves in parallel within this budget.
+     */
+    protected long turnBudgetMillis = DEFAULTTURNBUDGET;
+
+    /**
+     * The clock that all timeouts of the game are measured with.
+     * A {@link VirtualClock} can be injected to make timeouts instant and reproducible.
+     */
+    protected GameClock clock = SystemClock.INSTANCE;
+
+    /**
+     * The deepest iteration of {@link Strategy#SEARCH}, which otherwise deepens until the turn budget runs out.
+     * It bounds the search when time does not pass, e.g. with a {@link VirtualClock}.
+     */
+    protected int maxSearchDepth = DEFAULTMAXSEARCHDEPTH;
+
+    /**
+     * The deepest iteration of the search of each piece of a {@link Strategy#LOOKAHEAD} player, which is shallow
+     * since every piece searches on its own thread within the turn budget.
+     */
+    protected int pieceLookaheadDepth = DEFAULTPIECELOOKAHEADDEPTH;
+
+    /**
+     * The depth of the search of each proposed move of a {@link Strategy#SMART} player, see {@link ProposalVerifier},
+     * or 0 to pick from the proposed moves by the heuristic only.
+     */
+    protected int smartVerificationDepth = DEFAULTSMARTVERIFICATIONDEPTH;
+
+    /**
+     * Created on first use, and again when the clock changes.
+     */
+    protected ProposalVerifier proposalVerifier;
+
+    /**
+     * Memory of the {@link TranspositionTable} shared by all searches of the game, in megabytes.
+     */
+    protected int transpositionTableMegabytes = DEFAULTTRANSPOSITIONTABLEMEGABYTES;
+
+    /**
+     * Created on first use, so that games without {@link Strategy#SEARCH} do not allocate it.
+     */
+    protected TranspositionTable transpositionTable;
+
+    /**
+     * Number of threads of {@link Strategy#SEARCH}, see {@link ParallelSearch}.
+     * 1 searches on the thread of the player only.
+     */
+    protected int searchThreads = DEFAULTSEARCHTHREADS;
+
+    /**
+     * Created on first use, and again when the clock, the table or the number of threads changes.
+     */
+    protected ParallelSearch parallelSearch;
+
+    /**
+     * Maximum number of nodes of the tree of {@link Strategy#MCTS}.
+     */
+    protected int mctsTreeNodes = DEFAULTMCTSTREENODES;
+
+    /**
+     * The most playouts of one turn of {@link Strategy#MCTS}, which otherwise runs until the turn budget runs out.
+     * It bounds the search when time does not pass, e.g. with a {@link VirtualClock}.
+     */
+    protected long maxPlayouts = DEFAULTMAXPLAYOUTS;
+
+    /**
+     * How pieces move in the playouts of {@link Strategy#MCTS}.
+     */
+    protected RolloutPolicy rolloutPolicy = new RolloutPolicy(Behavior.GREEDY, Behavior.CAPTURING);
+
+    /**
+     * Whether {@link Strategy#MCTS} keeps the subtree of the position of the next turn, with its playouts, instead
+     * of building a new tree every turn.
+     */
+    protected boolean mctsTreeReuse = true;
+
+    /**
+     * Created on first use, and again when any of its settings changes.
+     */
+    protected MonteCarloTreeSearch monteCarloTreeSearch;
+
+    /**
+     * Whether {@link Strategy#SEARCH} searches the replies to the likely moves of a
+     * {@link castle.comp3021.assignment.player.HumanPlayer} opponent while the opponent thinks, see {@link Ponderer}.
+     */
+    protected boolean pondering = true;
+
+    /**
+     * Created on first use, and again when the clock or the table changes.
+     */
+    protected Ponderer ponderer;
+
+    /**
+     * Maximum number of nodes of the tree of the {@link ProofNumberSearch} that {@link Strategy#SEARCH} runs
+     * alongside its search each turn, or 0 to search without it.
+     */
+    protected int proofNumberNodes = DEFAULTPROOFNUMBERNODES;
+
+    /**
+     * The ply limit of the {@link ProofNumberSearch}: it proves the wins within that many plies.
+     */
+    protected int proofNumberPlies = DEFAULTPROOFNUMBERPLIES;
+
+    /**
+     * Created on first use, and again when the clock or the number of nodes changes.
+     */
+    protected ProofNumberSearch proofNumberSearch;
+
+    /**
+     * Directory of the tables generated by {@link castle.comp3021.assignment.search.TablebaseGenerator}, probed by
+     * {@link Strategy#SEARCH} and {@link Strategy#MCTS}, or null to play without tablebases.
+     */
+    protected Path tablebaseDirectory;
+
+    /**
+     * Opened on first use.
+     */
+    protected Tablebase tablebase;
+
+    /**
+     * File written by {@link castle.comp3021.assignment.search.OpeningBookBuilder}, consulted by every
+     * {@link ComputerPlayer} before its pieces are asked for moves, or null to play without a book.
+     */
+    protected Path openingBookFile;
+
+    /**
+     * Opened on first use.
+     */
+    protected OpeningBook openingBook;
+
+    /**
+     * Weights of the evaluation of {@link Strategy#SEARCH} at the leaves of its search.
+     */
+    protected Evaluation evaluation = Evaluation.DEFAULT;
+
+    /**
+     * Memory of the {@link EvaluationCache} shared by all searches of the game, in megabytes, or 0 to evaluate
+     * without a cache.
+     */
+    protected int evaluationCacheMegabytes = DEFAULTEVALUATIONCACHEMEGABYTES;
+
+    /**
+     * Created on first use, and again when the evaluation changes.
+     */
+    protected EvaluationCache evaluationCache;
+
+    /**
+     * Whether the transposition table and the evaluation cache count their probes and hits, which costs a write to
+     * shared counters on every probe. Off unless the statistics are wanted, e.g. to tune the sizes.
+     */
+    protected boolean searchStatistics = false;
+
+    /**
+     * Seed of the random choices of the players and pieces, and of the playouts of {@link Strategy#MCTS}, see
+     * {@link Configuration#seedRandomStreams()}. A new configuration gets a random seed.
+     */
+    protected long seed = new SplittableRandom().nextLong();
+
+    /**
+     * Seed of {@link Configuration#getMonteCarloTreeSearch()}, split from {@link Configuration#seed}.
+     */
+    protected long monteCarloTreeSearchSeed = seed;
+
     /**
      * Add configuration validation for critical region
      * - If {@link this#criticalRegionSize} is smaller than 1, throw {@link InvalidConfigurationError}
@@ -123,6 +317,10 @@ public class Configuration implements Cloneable {
         if (numMovesProtection < 0) {
             throw new InvalidConfigurationError("number of moves with capture protection cannot be negative");
         }
+
+        if (turnBudgetMillis < 1) {
+            throw new InvalidConfigurationError("turn budget must be at least 1 millisecond");
+        }
     }
 
     /**
@@ -134,7 +332,6 @@ public class Configuration implements Cloneable {
         this.size = size;
         this.criticalRegionSize = criticalRegionSize;
         this.criticalRegionCapacity = criticalRegionCapacity;
-        this.pieceThreadMap = new HashMap<>();
         // We only have 2 players
         this.players = players;
 
@@ -184,8 +381,8 @@ public class Configuration implements Cloneable {
      *
      * - create a thread for this piece
      * - start the thread
-     * Hint:
-     *      remember to record this thread to {@link Configuration#pieceThreadMap}
+     * The thread is recorded in {@link Configuration#pieceRuntime}; a piece that is already registered there keeps
+     * its thread.
      * @param piece piece to be added
      * @param place place to put the piece
      */
@@ -208,9 +405,7 @@ public class Configuration implements Cloneable {
         // TODO
         // start piece thread and update pieceThreadMap
         if (piece.getPlayer() instanceof ComputerPlayer) {  // only computer player has threads to pieces
-            var pieceThread = new Thread(piece);
-            this.pieceThreadMap.put(piece, pieceThread);
-            pieceThread.start();
+            this.pieceRuntime.register(piece);
         }
     }
 
@@ -218,6 +413,18 @@ public class Configuration implements Cloneable {
         this.addInitialPiece(piece, new Place(x, y));
     }
 
+    /**
+     * Remove all pieces from the initial game board, so that a new initial position can be set up with
+     * {@link Configuration#addInitialPiece(Piece, Place)}.
+     * The threads of the removed pieces stay in {@link Configuration#pieceRuntime} and are reused when the pieces
+     * are added again.
+     */
+    public void clearInitialPieces() {
+        for (int x = 0; x < size; x++) {
+            Arrays.fill(this.initialBoard[x], null);
+        }
+    }
+
     public int getSize() {
         return size;
     }
@@ -246,41 +453,394 @@ public class Configuration implements Cloneable {
         return numMovesProtection;
     }
 
+    public long getTurnBudgetMillis() {
+        return turnBudgetMillis;
+    }
+
+    /**
+     * Get the turn budget of a player, which is the soft budget of the player's {@link TimeManager} during its
+     * turns if it has one, otherwise the player's own budget if it has one.
+     *
+     * @param player the player
+     * @return budget of one turn in milliseconds
+     */
+    public long getTurnBudgetMillis(Player player) {
+        if (player instanceof ComputerPlayer) {
+            var timeManager = ((ComputerPlayer) player).getTimeManager();
+            if (timeManager != null && timeManager.isInTurn()) {
+                return timeManager.getSoftBudgetMillis();
+            }
+        }
+        if (player instanceof ComputerPlayer && ((ComputerPlayer) player).getTurnBudgetMillis() > 0) {
+            return ((ComputerPlayer) player).getTurnBudgetMillis();
+        }
+        return turnBudgetMillis;
+    }
+
+    /**
+     * Get the end of a turn of a player starting now, which is the soft deadline of the player's
+     * {@link TimeManager} during its turns if it has one, otherwise the end of its turn budget from now.
+     *
+     * @param player the player
+     * @return the deadline in {@link GameClock#nanoTime()} units
+     */
+    public long getTurnDeadline(Player player) {
+        if (player instanceof ComputerPlayer) {
+            var timeManager = ((ComputerPlayer) player).getTimeManager();
+            if (timeManager != null && timeManager.isInTurn()) {
+                return timeManager.getSoftDeadline();
+            }
+        }
+        return this.clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getTurnBudgetMillis(player));
+    }
+
+    public int getMaxSearchDepth() {
+        return maxSearchDepth;
+    }
+
+    public int getPieceLookaheadDepth() {
+        return pieceLookaheadDepth;
+    }
+
+    public int getSmartVerificationDepth() {
+        return smartVerificationDepth;
+    }
+
+    /**
+     * Get the verifier of the proposed moves of {@link Strategy#SMART}, with one thread per processor.
+     *
+     * @return the verifier, reused across turns
+     */
+    public synchronized ProposalVerifier getProposalVerifier() {
+        if (proposalVerifier == null || proposalVerifier.getClock() != clock) {
+            if (proposalVerifier != null) {
+                proposalVerifier.shutdown();
+            }
+            proposalVerifier = new ProposalVerifier(clock, Runtime.getRuntime().availableProcessors());
+        }
+        proposalVerifier.setTablebase(getTablebase());
+        proposalVerifier.setEvaluationCache(getEvaluationCache());
+        return proposalVerifier;
+    }
+
+    public int getTranspositionTableMegabytes() {
+        return transpositionTableMegabytes;
+    }
+
+    /**
+     * Get the transposition table shared by all searches of the game, creating it on first use.
+     *
+     * @return the transposition table of {@link Configuration#getTranspositionTableMegabytes()} megabytes
+     */
+    public synchronized TranspositionTable getTranspositionTable() {
+        if (transpositionTable == null) {
+            transpositionTable = new TranspositionTable(transpositionTableMegabytes, searchStatistics);
+        }
+        return transpositionTable;
+    }
+
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * Get the search of {@link Strategy#SEARCH}, with {@link Configuration#getSearchThreads()} threads sharing
+     * {@link Configuration#getTranspositionTable()}.
+     *
+     * @return the search, reused across turns
+     */
+    public synchronized ParallelSearch getParallelSearch() {
+        var table = getTranspositionTable();
+        if (parallelSearch == null || parallelSearch.getClock() != clock || parallelSearch.getTable() != table
+                || parallelSearch.getThreads() != searchThreads) {
+            if (parallelSearch != null) {
+                parallelSearch.shutdown();
+            }
+            parallelSearch = new ParallelSearch(clock, table, searchThreads);
+        }
+        parallelSearch.setTablebase(getTablebase());
+        parallelSearch.setEvaluationCache(getEvaluationCache());
+        return parallelSearch;
+    }
+
+    public int getMctsTreeNodes() {
+        return mctsTreeNodes;
+    }
+
+    public long getMaxPlayouts() {
+        return maxPlayouts;
+    }
+
+    public RolloutPolicy getRolloutPolicy() {
+        return rolloutPolicy;
+    }
+
+    public boolean isMctsTreeReuse() {
+        return mctsTreeReuse;
+    }
+
+    /**
+     * Get the search of {@link Strategy#MCTS}, with {@link Configuration#getSearchThreads()} threads sharing one tree
+     * of {@link Configuration#getMctsTreeNodes()} nodes, which is kept between turns if
+     * {@link Configuration#isMctsTreeReuse()}.
+     *
+     * @return the search, reused across turns
+     */
+    public synchronized MonteCarloTreeSearch getMonteCarloTreeSearch() {
+        if (monteCarloTreeSearch == null || monteCarloTreeSearch.getClock() != clock
+                || monteCarloTreeSearch.getThreads() != searchThreads
+                || monteCarloTreeSearch.getCapacity() != mctsTreeNodes
+                || monteCarloTreeSearch.getPolicy() != rolloutPolicy) {
+            if (monteCarloTreeSearch != null) {
+                monteCarloTreeSearch.shutdown();
+            }
+            monteCarloTreeSearch = new MonteCarloTreeSearch(clock, searchThreads, mctsTreeNodes, rolloutPolicy,
+                    monteCarloTreeSearchSeed);
+        }
+        monteCarloTreeSearch.setTreeReuse(mctsTreeReuse);
+        monteCarloTreeSearch.setTablebase(getTablebase());
+        monteCarloTreeSearch.setEvaluationCache(getEvaluationCache());
+        return monteCarloTreeSearch;
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /**
+     * Get the ponderer of {@link Strategy#SEARCH}, which shares {@link Configuration#getTranspositionTable()} with
+     * {@link Configuration#getParallelSearch()}.
+     *
+     * @return the ponderer, reused across turns
+     */
+    public synchronized Ponderer getPonderer() {
+        var table = getTranspositionTable();
+        if (ponderer == null || ponderer.getClock() != clock || ponderer.getTable() != table
+                || ponderer.getMaxDepth() != maxSearchDepth) {
+            if (ponderer != null) {
+                ponderer.stop();
+            }
+            ponderer = new Ponderer(clock, table, maxSearchDepth);
+        }
+        ponderer.setTablebase(getTablebase());
+        ponderer.setEvaluationCache(getEvaluationCache());
+        return ponderer;
+    }
+
+    public int getProofNumberNodes() {
+        return proofNumberNodes;
+    }
+
+    public int getProofNumberPlies() {
+        return proofNumberPlies;
+    }
+
+    /**
+     * Get the solver that {@link Strategy#SEARCH} runs on a worker thread each turn, to play a forced win as soon
+     * as it is proven.
+     *
+     * @return the solver of {@link Configuration#getProofNumberNodes()} nodes, reused across turns, or null if
+     * there is none
+     */
+    public synchronized ProofNumberSearch getProofNumberSearch() {
+        if (proofNumberNodes == 0) {
+            return null;
+        }
+        if (proofNumberSearch == null || proofNumberSearch.getClock() != clock
+                || proofNumberSearch.getCapacity() != proofNumberNodes) {
+            if (proofNumberSearch != null) {
+                proofNumberSearch.shutdown();
+            }
+            proofNumberSearch = new ProofNumberSearch(clock, proofNumberNodes);
+        }
+        return proofNumberSearch;
+    }
+
+    public Path getTablebaseDirectory() {
+        return tablebaseDirectory;
+    }
+
+    /**
+     * Get the tables of {@link Configuration#getTablebaseDirectory()}, opening them on first use.
+     *
+     * @return the tablebase, or null if there is no tablebase directory
+     * @throws UncheckedIOException if a table cannot be read
+     */
+    public synchronized Tablebase getTablebase() {
+        if (tablebase == null && tablebaseDirectory != null) {
+            try {
+                tablebase = Tablebase.open(tablebaseDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return tablebase;
+    }
+
+    public Path getOpeningBookFile() {
+        return openingBookFile;
+    }
+
+    /**
+     * Get the book of {@link Configuration#getOpeningBookFile()}, opening it on first use.
+     *
+     * @return the opening book, or null if there is no book file
+     * @throws UncheckedIOException if the book cannot be read
+     */
+    public synchronized OpeningBook getOpeningBook() {
+        if (openingBook == null && openingBookFile != null) {
+            try {
+                openingBook = OpeningBook.open(openingBookFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return openingBook;
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    public int getEvaluationCacheMegabytes() {
+        return evaluationCacheMegabytes;
+    }
+
+    /**
+     * Get the evaluation cache shared by all searches of the game, creating it on first use.
+     *
+     * @return the cache of {@link Configuration#getEvaluationCacheMegabytes()} megabytes for
+     * {@link Configuration#getEvaluation()}, or null if the size is 0
+     */
+    public synchronized EvaluationCache getEvaluationCache() {
+        if (evaluationCacheMegabytes == 0) {
+            return null;
+        }
+        if (evaluationCache == null || evaluationCache.getEvaluation() != evaluation) {
+            evaluationCache = new EvaluationCache(evaluationCacheMegabytes, evaluation, searchStatistics);
+        }
+        return evaluationCache;
+    }
+
+    public boolean isSearchStatistics() {
+        return searchStatistics;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Seed the randomness of the next game, e.g. to replay a recorded game.
+     *
+     * @param seed the seed, see {@link Configuration#seedRandomStreams()}
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Give every player and every piece of the initial board its own random stream, split from
+     * {@link Configuration#getSeed()}, and clear the searches. Called when a game starts.
+     * <p>
+     * The streams are split in a fixed order, the players first, then the pieces by place, then the seed of
+     * {@link Strategy#MCTS}. Each stream is only used by one thread, so the choices do not depend on how the threads
+     * interleave. The searches keep their threads and tables but drop what they learned in earlier games, which
+     * changes the order of equally good moves. With a {@link VirtualClock} and one search thread, the same seed and
+     * configuration then replay a game of computer players move for move.
+     */
+    public synchronized void seedRandomStreams() {
+        var root = new SplittableRandom(this.seed);
+        for (var player : this.players) {
+            player.setRandom(root.split());
+        }
+        for (var column : this.initialBoard) {
+            for (var piece : column) {
+                if (piece != null) {
+                    piece.setRandom(root.split());
+                }
+            }
+        }
+        this.monteCarloTreeSearchSeed = root.nextLong();
+        // the searches keep their threads and tables, and only forget what they learned in earlier games
+        if (this.monteCarloTreeSearch != null) {
+            this.monteCarloTreeSearch.clear(this.monteCarloTreeSearchSeed);
+        }
+        if (this.parallelSearch != null) {
+            this.parallelSearch.clear();
+        }
+        if (this.ponderer != null) {
+            this.ponderer.clear();
+        }
+        if (this.proofNumberSearch != null) {
+            this.proofNumberSearch.clear();
+        }
+        if (this.transpositionTable != null) {
+            this.transpositionTable.clear();
+        }
+        if (this.evaluationCache != null) {
+            this.evaluationCache.clear();
+        }
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public void setClock(GameClock clock) {
+        this.clock = clock;
+    }
+
+    public PieceRuntime getPieceRuntime() {
+        return pieceRuntime;
+    }
+
     public Map<Piece, Thread> getPieceThreadMap() {
-        return pieceThreadMap;
+        return pieceRuntime.getPieceThreadMap();
     }
 
     public Thread getPieceThread(Piece piece) {
-        return pieceThreadMap.get(piece);
+        return pieceRuntime.getThread(piece);
     }
 
     public List<Thread> getAllThreads() {
-        return this.pieceThreadMap.entrySet().parallelStream().map(Map.Entry::getValue).collect(Collectors.toList());
+        return pieceRuntime.getAllThreads();
     }
 
     @Override
     public Configuration clone() throws CloneNotSupportedException {
         var cloned = (Configuration) super.clone();
         var playerCloneMap = new HashMap<Player, Player>();
-        for (var player :
-                cloned.getPlayers()) {
-            playerCloneMap.put(player, player.clone());
-        }
-        cloned.players = playerCloneMap.values().toArray(new Player[0]);
+        cloned.players = new Player[this.players.length];
         for (int i = 0; i < this.players.length; i++) {
             cloned.players[i] = this.players[i].clone();
+            playerCloneMap.put(this.players[i], cloned.players[i]);
         }
-        cloned.initialBoard = this.initialBoard.clone();
+        cloned.initialBoard = new Piece[this.size][];
         for (int i = 0; i < this.size; i++) {
-            cloned.initialBoard[i] = this.initialBoard[i].clone();
-            System.arraycopy(this.initialBoard[i], 0, cloned.initialBoard[i], 0, this.size);
+            cloned.initialBoard[i] = new Piece[this.size];
             for (int j = 0; j < this.size; j++) {
-                // update the cloned player
-                if (cloned.initialBoard[i][j] != null)
-                    cloned.initialBoard[i][j].player = playerCloneMap.get(this.initialBoard[i][j].player);
+                var piece = this.initialBoard[i][j];
+                if (piece != null) {
+                    // the cloned piece belongs to the cloned player, the piece of this configuration is left as is
+                    var clonedPiece = piece.clone();
+                    clonedPiece.player = playerCloneMap.get(piece.player);
+                    cloned.initialBoard[i][j] = clonedPiece;
+                }
             }
         }
         cloned.centralPlace = this.centralPlace.clone();
+        // the clone creates its own searches, tables and caches on first use, so that searching with it neither
+        // changes nor stops those of this configuration; the tablebase and the opening book are only read
+        cloned.transpositionTable = null;
+        cloned.parallelSearch = null;
+        cloned.monteCarloTreeSearch = null;
+        cloned.ponderer = null;
+        cloned.proofNumberSearch = null;
+        cloned.proposalVerifier = null;
+        cloned.evaluationCache = null;
+        // the threads of the pieces stay with this configuration
+        cloned.pieceRuntime = new PieceRuntime();
         return cloned;
     }
 
@@ -292,6 +852,178 @@ public class Configuration implements Cloneable {
         this.numMovesProtection = numMovesProtection;
     }
 
+    public void setTurnBudgetMillis(long turnBudgetMillis) {
+        if (turnBudgetMillis < 1) {
+            throw new InvalidConfigurationError("turn budget must be at least 1 millisecond");
+        }
+        this.turnBudgetMillis = turnBudgetMillis;
+    }
+
+    public void setMaxSearchDepth(int maxSearchDepth) {
+        if (maxSearchDepth < 1) {
+            throw new InvalidConfigurationError("maximum search depth must be at least 1");
+        }
+        this.maxSearchDepth = maxSearchDepth;
+    }
+
+    public void setPieceLookaheadDepth(int pieceLookaheadDepth) {
+        if (pieceLookaheadDepth < 1) {
+            throw new InvalidConfigurationError("piece lookahead depth must be at least 1");
+        }
+        this.pieceLookaheadDepth = pieceLookaheadDepth;
+    }
+
+    public void setSmartVerificationDepth(int smartVerificationDepth) {
+        if (smartVerificationDepth < 0) {
+            throw new InvalidConfigurationError("smart verification depth cannot be negative");
+        }
+        this.smartVerificationDepth = smartVerificationDepth;
+    }
+
+    /**
+     * Resize the transposition table. The current table and its entries are dropped.
+     *
+     * @param transpositionTableMegabytes memory of the table in megabytes
+     */
+    public synchronized void setTranspositionTableMegabytes(int transpositionTableMegabytes) {
+        if (transpositionTableMegabytes < 1) {
+            throw new InvalidConfigurationError("transposition table must be at least 1 megabyte");
+        }
+        this.transpositionTableMegabytes = transpositionTableMegabytes;
+        this.transpositionTable = null;
+    }
+
+    /**
+     * Use the weights of a file written by {@link castle.comp3021.assignment.search.EvaluationTuner}, e.g. when a
+     * {@link ComputerPlayer} starts.
+     *
+     * @param evaluationFile the weight file, see {@link Evaluation#load(Path)}
+     */
+    public void setEvaluationFile(Path evaluationFile) {
+        if (!Files.isRegularFile(evaluationFile)) {
+            throw new InvalidConfigurationError("evaluation weights " + evaluationFile + " do not exist");
+        }
+        try {
+            setEvaluation(Evaluation.load(evaluationFile));
+        } catch (IOException e) {
+            throw new InvalidConfigurationError("evaluation weights cannot be read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resize the evaluation cache. The current cache and its entries are dropped.
+     *
+     * @param evaluationCacheMegabytes memory of the cache in megabytes, or 0 to evaluate without a cache
+     */
+    public synchronized void setEvaluationCacheMegabytes(int evaluationCacheMegabytes) {
+        if (evaluationCacheMegabytes < 0) {
+            throw new InvalidConfigurationError("evaluation cache size cannot be negative");
+        }
+        this.evaluationCacheMegabytes = evaluationCacheMegabytes;
+        this.evaluationCache = null;
+    }
+
+    /**
+     * Count the probes and hits of the transposition table and the evaluation cache, or stop counting them. The
+     * current table and cache and their entries are dropped.
+     *
+     * @param searchStatistics whether to count, see {@link TranspositionTable#getHitRate()} and
+     *                         {@link EvaluationCache#getHitRate()}
+     */
+    public synchronized void setSearchStatistics(boolean searchStatistics) {
+        this.searchStatistics = searchStatistics;
+        this.transpositionTable = null;
+        this.evaluationCache = null;
+    }
+
+    public void setSearchThreads(int searchThreads) {
+        if (searchThreads < 1) {
+            throw new InvalidConfigurationError("number of search threads must be at least 1");
+        }
+        this.searchThreads = searchThreads;
+    }
+
+    public void setMctsTreeNodes(int mctsTreeNodes) {
+        if (mctsTreeNodes < 1) {
+            throw new InvalidConfigurationError("tree of MCTS must have at least 1 node");
+        }
+        this.mctsTreeNodes = mctsTreeNodes;
+    }
+
+    public void setMaxPlayouts(long maxPlayouts) {
+        if (maxPlayouts < 1) {
+            throw new InvalidConfigurationError("maximum number of playouts must be at least 1");
+        }
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    public void setMctsTreeReuse(boolean mctsTreeReuse) {
+        this.mctsTreeReuse = mctsTreeReuse;
+    }
+
+    public void setRolloutPolicy(RolloutPolicy rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    /**
+     * @param proofNumberNodes maximum number of nodes of the tree of the proof-number search, or 0 to search
+     *                         without it
+     */
+    public synchronized void setProofNumberNodes(int proofNumberNodes) {
+        if (proofNumberNodes < 0) {
+            throw new InvalidConfigurationError("number of proof-number search nodes cannot be negative");
+        }
+        this.proofNumberNodes = proofNumberNodes;
+        if (proofNumberSearch != null && proofNumberSearch.getCapacity() != proofNumberNodes) {
+            proofNumberSearch.shutdown();
+            proofNumberSearch = null;
+        }
+    }
+
+    public void setProofNumberPlies(int proofNumberPlies) {
+        if (proofNumberPlies < 1) {
+            throw new InvalidConfigurationError("proof-number search ply limit must be at least 1");
+        }
+        this.proofNumberPlies = proofNumberPlies;
+    }
+
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    /**
+     * Use the tables of a directory. The tables currently open are dropped.
+     *
+     * @param tablebaseDirectory the directory, or null to play without tablebases
+     */
+    public synchronized void setTablebaseDirectory(Path tablebaseDirectory) {
+        if (tablebaseDirectory != null && !Files.isDirectory(tablebaseDirectory)) {
+            throw new InvalidConfigurationError("tablebase directory " + tablebaseDirectory + " does not exist");
+        }
+        this.tablebaseDirectory = tablebaseDirectory;
+        this.tablebase = null;
+    }
+
+    /**
+     * Use the book of a file. The book currently open is dropped.
+     *
+     * @param openingBookFile the file, or null to play without a book
+     */
+    public synchronized void setOpeningBookFile(Path openingBookFile) {
+        if (openingBookFile != null && !Files.isRegularFile(openingBookFile)) {
+            throw new InvalidConfigurationError("opening book " + openingBookFile + " does not exist");
+        }
+        this.openingBookFile = openingBookFile;
+        this.openingBook = null;
+    }
+
+    public synchronized void setEvaluation(Evaluation evaluation) {
+        if (evaluation == null) {
+            throw new InvalidConfigurationError("evaluation cannot be null");
+        }
+        this.evaluation = evaluation;
+    }
+
     public void setAllInitialPieces() {
         Player whitePlayer = this.getPlayers()[1];
         Player blackPlayer = this.getPlayers()[0];
@@ -5,6 +5,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +38,25 @@ public abstract class Game implements Cloneable {
      */
     protected int numMoves = 0;
 
+    /**
+     * Context of the behaviors of the pieces in the current turn, shared by all pieces proposing moves in it.
+     * Null outside of a turn.
+     */
+    protected volatile BehaviorContext behaviorContext;
+
+    /**
+     * Scores of the candidate moves proposed in the current turn by pieces that score their proposals, see
+     * {@link Strategy#LOOKAHEAD}.
+     */
+    protected Map<Move, Integer> candidateScores = new ConcurrentHashMap<>();
+
+    /**
+     * End of the current turn in {@link GameClock#nanoTime()} units, fixed once when the turn starts collecting
+     * proposals, and the number of moves of that turn, or -1 if no turn has set one.
+     */
+    protected volatile long turnDeadline;
+    protected volatile int turnDeadlineMoves = -1;
+
     public Game(Configuration configuration) {
         this.configuration = configuration;
         this.board = configuration.getInitialBoard();
@@ -282,6 +302,42 @@ public abstract class Game implements Cloneable {
         return board;
     }
 
+    /**
+     * @return the context of the behaviors of the pieces of the current player, shared within a turn, or built
+     * for this call if the board has changed since
+     */
+    public BehaviorContext getBehaviorContext() {
+        var context = this.behaviorContext;
+        return context != null && context.isFor(this) ? context : new BehaviorContext(this);
+    }
+
+    /**
+     * Record the score a piece gave to its candidate move in the current turn.
+     *
+     * @param move  the candidate move
+     * @param score the score, higher is better
+     */
+    public void recordCandidateScore(Move move, int score) {
+        this.candidateScores.put(move, score);
+    }
+
+    /**
+     * @param move a candidate move of the current turn
+     * @return the score the proposing piece gave to the move, or empty if it did not score it
+     */
+    public OptionalInt getCandidateScore(Move move) {
+        var score = this.candidateScores.get(move);
+        return score == null ? OptionalInt.empty() : OptionalInt.of(score);
+    }
+
+    /**
+     * @return the end of the current turn, shared by the collection of the proposals and the choice among them,
+     * or empty if the proposals of this turn were not collected by the game
+     */
+    public OptionalLong getTurnDeadline() {
+        return this.turnDeadlineMoves == this.numMoves ? OptionalLong.of(this.turnDeadline) : OptionalLong.empty();
+    }
+
     @Override
     public Game clone() throws CloneNotSupportedException {
         var cloned = (Game) super.clone();
@@ -303,6 +359,7 @@ public abstract class Game implements Cloneable {
             }
         }
         cloned.currentPlayer = currentPlayer == null ? null : playerCloneMap.get(currentPlayer);
+        cloned.candidateScores = new ConcurrentHashMap<>(this.candidateScores);
         return cloned;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The source of time for timeouts of a game.
+ * <p>
+ * {@link SystemClock} (the default) follows the wall clock and is used for interactive play.
+ * {@link VirtualClock} only moves when it is advanced, so that timeouts fire instantly and reproducibly in tests
+ * and batch simulations.
+ */
+public interface GameClock {
+    /**
+     * @return current time in nanoseconds, only meaningful relative to other values of the same clock
+     */
+    long nanoTime();
+
+    /**
+     * Wait until the latch is released or the deadline passes.
+     *
+     * @param latch       the latch released when the awaited work completes
+     * @param deadline    the deadline, in {@link GameClock#nanoTime()} units
+     * @param progressing whether the awaited work is still going on; if not, waiting cannot help and a virtual
+     *                    clock times out at once
+     * @return true if the latch has been released
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    boolean await(CountDownLatch latch, long deadline, BooleanSupplier progressing) throws InterruptedException;
+}
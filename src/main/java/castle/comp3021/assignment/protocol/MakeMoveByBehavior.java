@@ -2,18 +2,31 @@ package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.piece.Knight;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class MakeMoveByBehavior {
     private final Behavior behavior;
-    private final Game game;
+    private final BehaviorContext context;
     private final Move[] availableMoves;
+    private final RandomGenerator random;
 
     public MakeMoveByBehavior(Game game, Move[] availableMoves, Behavior behavior){
-        this.game = game;
+        this(game.getBehaviorContext(), availableMoves, behavior, ThreadLocalRandom.current());
+    }
+
+    /**
+     * @param context        the context of the turn, see {@link Game#getBehaviorContext()}
+     * @param availableMoves the valid moves of a piece, at least one
+     * @param behavior       the behavior of the piece
+     * @param random         the source of random choices, e.g. {@link Piece#getRandom()} of the piece
+     */
+    public MakeMoveByBehavior(BehaviorContext context, Move[] availableMoves, Behavior behavior,
+                              RandomGenerator random) {
+        this.context = context;
         this.availableMoves = availableMoves;
         this.behavior = behavior;
+        this.random = random;
     }
 
     /**
@@ -25,23 +38,23 @@ public class MakeMoveByBehavior {
      *                               when there are many pieces that can captures, randomly select one of them
      * - {@link Behavior#BLOCKING}: prefer the moves that block enemy's {@link Knight}.
      *                              See how to block a knight here: https://en.wikipedia.org/wiki/Xiangqi (see `Horse`)
+     * <p>
+     * The behaviors score a move with a few reads of the {@link BehaviorContext} of the turn and never evaluate a
+     * position, so they have no use for {@link Configuration#getEvaluationCache()}: a probe would cost more than the
+     * score. Pieces of a {@link Strategy#LOOKAHEAD} player, which do evaluate positions, share that cache.
      *
      * @return a selected move adopting strategy specified by {@link this#behavior}
      */
     public Move getNextMove() {
         // TODO
+        var random = this.random;
+        var moves = this.availableMoves;
         switch (this.behavior) {
-            case RANDOM -> {
-                int index = new Random().nextInt(this.availableMoves.length);
-                return this.availableMoves[index];
-            }
-
             case GREEDY -> {
                 var minDistance = Integer.MAX_VALUE;
-                var bestMove =  this.availableMoves[0];
-                for (var move : this.availableMoves) {
-                    var distance = Math.abs(this.game.getCentralPlace().x() - move.getDestination().x()) +
-                            Math.abs(this.game.getCentralPlace().y() - move.getDestination().y());
+                var bestMove = moves[0];
+                for (var move : moves) {
+                    var distance = this.context.centralDistance(this.context.square(move.getDestination()));
                     if (distance <= minDistance) {
                         minDistance = distance;
                         bestMove = move;
@@ -52,54 +65,37 @@ public class MakeMoveByBehavior {
 
             case CAPTURING -> {
                 // num of move protection
-                if (this.game.getNumMoves() <= this.game.getConfiguration().getNumMovesProtection()) {
-                    return this.availableMoves[new Random().nextInt(this.availableMoves.length)];
+                if (this.context.isCaptureProtected()) {
+                    return moves[random.nextInt(moves.length)];
                 }
-                var movesList = new ArrayList<Move>();
-                for (var move : this.availableMoves) {
-                    var capturePiece = this.game.getPiece(move.getDestination());
-                    if (capturePiece != null) {
-                        movesList.add(move);
+                // a random one of the matching moves, chosen in one pass
+                Move chosen = null;
+                int matches = 0;
+                for (var move : moves) {
+                    if (this.context.isEnemy(this.context.square(move.getDestination()))
+                            && random.nextInt(++matches) == 0) {
+                        chosen = move;
                     }
                 }
-                if (movesList.isEmpty()) {
-                    return this.availableMoves[new Random().nextInt(this.availableMoves.length)];
-                }
-                return movesList.get(new Random().nextInt(movesList.size()));
+                return chosen != null ? chosen : moves[random.nextInt(moves.length)];
             }
 
             case BLOCKING -> {
-                var movesList = new ArrayList<Move>();
-                for (var move : this.availableMoves) {
-                    var destX = move.getDestination().x();
-                    var destY = move.getDestination().y();
-                    var rightX = destX + 1;
-                    var leftX = destX - 1;
-                    var upY = destY + 1;
-                    var downY = destY - 1;
-                    var upPiece = this.game.getPiece(destX, upY);
-                    var downPiece = this.game.getPiece(destX, downY);
-                    var leftPiece = this.game.getPiece(leftX, destY);
-                    var rightPiece = this.game.getPiece(rightX, destY);
-                    if (upPiece != null || downPiece != null || leftPiece != null || rightPiece != null) {
-                        if ((upPiece instanceof Knight && !upPiece.getPlayer().equals(this.game.getCurrentPlayer()))
-                                || (downPiece instanceof Knight && !downPiece.getPlayer().equals(this.game.getCurrentPlayer()))
-                                || (leftPiece instanceof Knight && !leftPiece.getPlayer().equals(this.game.getCurrentPlayer()))
-                                || (rightPiece instanceof Knight && !rightPiece.getPlayer().equals(this.game.getCurrentPlayer())))
-                        movesList.add(move);
+                Move chosen = null;
+                int matches = 0;
+                for (var move : moves) {
+                    if (this.context.blocksEnemyKnight(this.context.square(move.getDestination()))
+                            && random.nextInt(++matches) == 0) {
+                        chosen = move;
                     }
                 }
-                if (movesList.isEmpty()) {
-                    return this.availableMoves[new Random().nextInt(this.availableMoves.length)];
-                }
-                return movesList.get(new Random().nextInt(movesList.size()));
+                return chosen != null ? chosen : moves[random.nextInt(moves.length)];
             }
 
             default -> {
-                return this.availableMoves[new Random().nextInt(this.availableMoves.length)];
+                return moves[random.nextInt(moves.length)];
             }
         }
     }
 
 }
-
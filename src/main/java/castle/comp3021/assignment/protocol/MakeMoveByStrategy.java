@@ -1,27 +1,56 @@
 package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.MonteCarloTreeSearch;
+import castle.comp3021.assignment.search.ParallelSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.ProofNumberSearch;
+import castle.comp3021.assignment.search.ProofResult;
+import castle.comp3021.assignment.search.ProposalVerifier;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.SearchResult;
 
 import java.util.ArrayList;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class MakeMoveByStrategy {
     private final Strategy strategy;
     private final Game game;
     private final Move[] availableMoves;
+    private final RandomGenerator random;
 
     public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy) {
+        this(game, availableMoves, strategy, ThreadLocalRandom.current());
+    }
+
+    /**
+     * @param game           the game
+     * @param availableMoves the proposed moves, at least one
+     * @param strategy       the strategy of the player
+     * @param random         the source of random choices, e.g. {@link Player#getRandom()} of the player
+     */
+    public MakeMoveByStrategy(Game game, Move[] availableMoves, Strategy strategy, RandomGenerator random) {
         this.game = game;
         this.availableMoves = availableMoves;
         this.strategy = strategy;
+        this.random = random;
     }
 
     /**
      * Return next move according to different strategies made by {@link castle.comp3021.assignment.player.ComputerPlayer}
      * You can add helper method if needed, as long as this method returns a next move.
      * - {@link Strategy#RANDOM}: select a random move from the proposed moves by all pieces
-     * - {@link Strategy#SMART}: come up with some strategy to select a next move from the proposed moves by all pieces
+     * - {@link Strategy#SMART}: come up with some strategy to select a next move from the proposed moves by all pieces,
+     * among those with the best score of a shallow search, see {@link Configuration#getSmartVerificationDepth()}
+     * - {@link Strategy#SEARCH}: search the game tree with {@link AlphaBetaSearch} for the best of the proposed moves
+     * - {@link Strategy#MCTS}: play the proposed moves out with {@link MonteCarloTreeSearch} and take the most promising
+     * - {@link Strategy#LOOKAHEAD}: take the proposed move with the best score of the search of its piece
      *
      * @return a next move
      */
@@ -29,32 +58,275 @@ public class MakeMoveByStrategy {
         // TODO
         switch (this.strategy) {
             case RANDOM -> {
-                int index = new Random().nextInt(this.availableMoves.length);
+                int index = this.random.nextInt(this.availableMoves.length);
                 return this.availableMoves[index];
             }
 
-            case SMART -> {  // Enhanced greedy
-                int minDistance = Integer.MAX_VALUE;
-                var bestMove =  this.availableMoves[new Random().nextInt(this.availableMoves.length)];
-                for (var move : this.availableMoves) {
-                    var piece = this.game.getPiece(move.getSource());
-                    if (piece instanceof Knight) {  // only applicable to knight
-                        var calMoveMinDis = calNextBestMove(move);
-                        if (calMoveMinDis <= minDistance) {
-                            minDistance = calMoveMinDis;
-                            bestMove = move;
-                        }
+            case SMART -> {  // Enhanced greedy, among the moves the verification search finds best
+                return closestToCentral(verifiedMoves());
+            }
+
+            case SEARCH, MCTS -> {
+                return searchNextMove();
+            }
+
+            case LOOKAHEAD -> {
+                return bestScoredMove();
+            }
+
+            default -> {
+                return this.availableMoves[this.random.nextInt(this.availableMoves.length)];
+            }
+        }
+    }
+
+
+    /**
+     * Search for the best of the proposed moves until the end of the turn, with
+     * {@link Configuration#getSearchThreads()} threads.
+     * {@link Strategy#SEARCH} deepens at most {@link Configuration#getMaxSearchDepth()} plies, and
+     * {@link Strategy#MCTS} makes at most {@link Configuration#getMaxPlayouts()} playouts.
+     * Falls back to a random proposed move if the game has pieces the search does not know.
+     * A player with a {@link TimeManager} searches until the soft deadline of its turn, extended up to the hard
+     * deadline while the best move is unstable, and a single proposed move is played at once.
+     * {@link Strategy#SEARCH} also runs {@link Configuration#getProofNumberSearch()} on its worker thread, which
+     * stops the search as soon as it proves a forced win, and plays on along the proven line in later turns.
+     *
+     * @return the best proposed move found
+     */
+    private Move searchNextMove() {
+        if (this.availableMoves.length == 1) {
+            return this.availableMoves[0];
+        }
+        if (!Position.isSupported(this.game)) {
+            return this.availableMoves[this.random.nextInt(this.availableMoves.length)];
+        }
+        var configuration = this.game.getConfiguration();
+        var position = Position.fromGame(this.game);
+        var rootMoves = new int[this.availableMoves.length];
+        for (int i = 0; i < rootMoves.length; i++) {
+            rootMoves[i] = position.fromMove(this.availableMoves[i]);
+        }
+        var player = this.game.getCurrentPlayer();
+        var timeManager = player instanceof ComputerPlayer ? ((ComputerPlayer) player).getTimeManager() : null;
+        boolean managed = timeManager != null && timeManager.isInTurn();
+        long deadline = turnDeadline(configuration);
+        SearchResult result;
+        Future<ProofResult> proof = null;
+        if (this.strategy == Strategy.MCTS) {
+            var limits = new SearchLimits(deadline, 1, configuration.getMaxPlayouts());
+            result = configuration.getMonteCarloTreeSearch().search(position, rootMoves, limits);
+        } else {
+            var parallelSearch = configuration.getParallelSearch();
+            // the solver may stop the search from now on, even before it starts
+            parallelSearch.restart();
+            var solver = configuration.getProofNumberSearch();
+            if (solver != null) {
+                int provenMove = solver.provenMove(position);
+                for (int move : rootMoves) {
+                    if (move == provenMove) {
+                        return proposedMove(position, move);
                     }
                 }
-                return bestMove;
+                var limits = new SearchLimits(deadline, configuration.getProofNumberPlies(),
+                        configuration.getProofNumberNodes());
+                proof = solver.submit(position, rootMoves, limits, parallelSearch::stop);
+            }
+            result = ponderedResult(configuration, parallelSearch, position, rootMoves);
+            if (result == null) {
+                var limits = managed
+                        ? new SearchLimits(timeManager.getHardDeadline(), configuration.getMaxSearchDepth(),
+                        SearchLimits.UNLIMITED_NODES).withSoftDeadline(deadline)
+                        : new SearchLimits(deadline, configuration.getMaxSearchDepth(), SearchLimits.UNLIMITED_NODES);
+                result = parallelSearch.search(position, rootMoves, limits);
+            }
+        }
+        int bestMove = result.getBestMove();
+        if (proof != null) {
+            // wait for the solver, so that whether its win is played does not depend on timing
+            var proofResult = awaitProof(proof);
+            if (proofResult.isProven()) {
+                bestMove = proofResult.getBestMove();
             }
+        }
+        if (bestMove == Position.NO_MOVE) {
+            return this.availableMoves[this.random.nextInt(this.availableMoves.length)];
+        }
+        return proposedMove(position, bestMove);
+    }
 
-            default -> {
-                return this.availableMoves[new Random().nextInt(this.availableMoves.length)];
+    /**
+     * @param move a packed move of the proposed moves
+     * @return the proposed move of the packed move
+     */
+    private Move proposedMove(Position position, int move) {
+        var bestMove = position.toMove(move);
+        for (var proposed : this.availableMoves) {
+            if (proposed.equals(bestMove)) {
+                return proposed;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Wait for the {@link ProofNumberSearch} of the turn, which ends at the deadline of the turn at the latest.
+     *
+     * @return the result of the solver
+     */
+    private static ProofResult awaitProof(Future<ProofResult> proof) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return proof.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("proof-number search failed", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
     }
 
+    /**
+     * @return the end of the turn the proposals were collected in, see {@link Game#getTurnDeadline()}, or if the
+     * game did not collect them, the end of a turn of the current player starting now
+     */
+    private long turnDeadline(Configuration configuration) {
+        return this.game.getTurnDeadline()
+                .orElseGet(() -> configuration.getTurnDeadline(this.game.getCurrentPlayer()));
+    }
+
+    /**
+     * Search each proposed move {@link Configuration#getSmartVerificationDepth()} plies deep, in parallel, by
+     * the end of the turn, see {@link ProposalVerifier}.
+     * All proposed moves are kept if the verification is off or the game has pieces the search does not know.
+     *
+     * @return the proposed moves with the best score among those verified deepest, at least one
+     */
+    private Move[] verifiedMoves() {
+        var configuration = this.game.getConfiguration();
+        int depth = configuration.getSmartVerificationDepth();
+        if (this.availableMoves.length == 1 || depth == 0 || !Position.isSupported(this.game)) {
+            return this.availableMoves;
+        }
+        var position = Position.fromGame(this.game);
+        var moves = new int[this.availableMoves.length];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = position.fromMove(this.availableMoves[i]);
+        }
+        var limits = new SearchLimits(turnDeadline(configuration), depth, SearchLimits.UNLIMITED_NODES);
+        var results = configuration.getProposalVerifier().verify(position, moves, limits);
+
+        // scores are only compared between moves searched equally deep, so a move whose search reached the
+        // verification depth, or a forced result before it, ranks before those that ran out of time, and
+        // unverified moves rank last
+        var best = new ArrayList<Move>();
+        int bestDepth = 0;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < results.length; i++) {
+            int resultDepth = results[i].getDepth();
+            int score = resultDepth > 0 ? results[i].getScore() : Integer.MIN_VALUE;
+            if (resultDepth > 0 && AlphaBetaSearch.isMateScore(score)) {
+                resultDepth = depth;
+            }
+            if (resultDepth > bestDepth || resultDepth == bestDepth && score > bestScore) {
+                best.clear();
+                bestDepth = resultDepth;
+                bestScore = score;
+            }
+            if (resultDepth == bestDepth && score == bestScore) {
+                best.add(this.availableMoves[i]);
+            }
+        }
+        return best.toArray(new Move[0]);
+    }
+
+    /**
+     * Take the knight move that leaves the knight closest to a jump onto the central place, or a random move if
+     * there is no knight move.
+     *
+     * @param moves moves to choose from, at least one
+     * @return the chosen move
+     */
+    private Move closestToCentral(Move[] moves) {
+        int minDistance = Integer.MAX_VALUE;
+        var bestMove = moves[this.random.nextInt(moves.length)];
+        for (var move : moves) {
+            var piece = this.game.getPiece(move.getSource());
+            if (piece instanceof Knight) {  // only applicable to knight
+                var calMoveMinDis = calNextBestMove(move);
+                if (calMoveMinDis <= minDistance) {
+                    minDistance = calMoveMinDis;
+                    bestMove = move;
+                }
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Compare the scores the pieces gave to their proposals, see {@link Game#getCandidateScore(Move)}.
+     * Unscored proposals, e.g. of pieces the search does not know, rank last, and ties are broken randomly.
+     *
+     * @return the proposed move with the best score
+     */
+    private Move bestScoredMove() {
+        var random = this.random;
+        Move bestMove = null;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (var move : this.availableMoves) {
+            int score = this.game.getCandidateScore(move).orElse(Integer.MIN_VALUE);
+            if (bestMove == null || score > bestScore) {
+                bestMove = move;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Take the result pondered on the opponent's time, if the opponent played one of the predicted moves and the
+     * pondering searched at least as deep as the search of the last turn, or found a forced result.
+     * Otherwise the pondered best move is searched first, and the search still gains from the pondering: the table
+     * shared with the search is filled.
+     *
+     * @param rootMoves the packed proposed moves, reordered to start with a shallow pondered best move
+     * @return the pondered result with a proposed best move, or null
+     */
+    private SearchResult ponderedResult(Configuration configuration, ParallelSearch parallelSearch,
+                                        Position position, int[] rootMoves) {
+        if (!configuration.isPondering()) {
+            return null;
+        }
+        var ponderer = configuration.getPonderer();
+        ponderer.stop();
+        var result = ponderer.getResult(position.hash());
+        if (result == null) {
+            return null;
+        }
+        for (int i = 0; i < rootMoves.length; i++) {
+            if (rootMoves[i] == result.getBestMove()) {
+                int lastDepth = parallelSearch.getLastDepth();
+                if (lastDepth > 0 && result.getDepth() >= lastDepth || AlphaBetaSearch.isMateScore(result.getScore())) {
+                    return result;
+                }
+                System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+                rootMoves[0] = result.getBestMove();
+                return null;
+            }
+        }
+        return null;
+    }
 
     private int calNextBestMove(Move theMove) {
         var minDistances = new ArrayList<Integer>();
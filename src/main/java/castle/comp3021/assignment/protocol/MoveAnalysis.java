@@ -0,0 +1,148 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * One of the best moves of a game found by {@link MoveAnalysis#analyze(Game, int, long)}, with its score, its
+ * principal variation and the statistics of the search.
+ * <p>
+ * The analysis runs {@link AlphaBetaSearch#analyze(Position, int[], SearchLimits, int)} at most
+ * {@link Configuration#getMaxSearchDepth()} plies deep, with the transposition table, the tablebase and the
+ * evaluation cache of the configuration. It works on any game of knights and archers, e.g. for a hint to a
+ * {@link castle.comp3021.assignment.player.HumanPlayer} or on the positions of a recorded game.
+ */
+public class MoveAnalysis {
+    private final Move move;
+    private final int score;
+    private final Move[] principalVariation;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public MoveAnalysis(Move move, int score, Move[] principalVariation, int depth, long nodes, long elapsedNanos) {
+        this.move = move;
+        this.score = score;
+        this.principalVariation = principalVariation;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Find the best moves of the current player of a game.
+     *
+     * @param game         the game, which is left unchanged
+     * @param k            number of moves to find, at least 1
+     * @param budgetMillis time to search
+     * @return the best moves in order, at most k of them and none if the current player has no valid move
+     * @throws IllegalArgumentException if the game has pieces other than knights and archers, or k or the budget is
+     *                                  less than 1
+     */
+    public static List<MoveAnalysis> analyze(Game game, int k, long budgetMillis) {
+        if (budgetMillis < 1) {
+            throw new IllegalArgumentException("budget must be at least 1 millisecond");
+        }
+        if (!Position.isSupported(game)) {
+            throw new IllegalArgumentException("only games of knights and archers can be analyzed");
+        }
+        var configuration = game.getConfiguration();
+        var clock = configuration.getClock();
+        var position = Position.fromGame(game);
+        var search = new AlphaBetaSearch(clock, configuration.getTranspositionTable());
+        search.setTablebase(configuration.getTablebase());
+        search.setEvaluationCache(configuration.getEvaluationCache());
+        var limits = SearchLimits.withBudget(clock, budgetMillis, configuration.getMaxSearchDepth());
+        var analyses = new ArrayList<MoveAnalysis>();
+        for (var result : search.analyze(position, null, limits, k)) {
+            analyses.add(fromResult(position, result));
+        }
+        return analyses;
+    }
+
+    private static MoveAnalysis fromResult(Position position, SearchResult result) {
+        var pv = Arrays.stream(result.getPrincipalVariation()).mapToObj(position::toMove).toArray(Move[]::new);
+        return new MoveAnalysis(position.toMove(result.getBestMove()), result.getScore(), pv, result.getDepth(),
+                result.getNodes(), result.getElapsedNanos());
+    }
+
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * @return score of the move from the perspective of the player to move, see {@link AlphaBetaSearch#MATE}
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public Move[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return whether the move wins by force
+     */
+    public boolean isWin() {
+        return AlphaBetaSearch.isMateScore(score) && score > 0;
+    }
+
+    /**
+     * @return whether the move loses by force
+     */
+    public boolean isLoss() {
+        return AlphaBetaSearch.isMateScore(score) && score < 0;
+    }
+
+    /**
+     * @param move a move
+     * @return the move in the notation of the console, e.g. {@code a1->b3}
+     */
+    public static String notation(Move move) {
+        return notation(move.getSource()) + "->" + notation(move.getDestination());
+    }
+
+    private static String notation(Place place) {
+        return (char) ('a' + place.x()) + String.valueOf(place.y() + 1);
+    }
+
+    /**
+     * @return the move, its score or forced result, and its principal variation, e.g.
+     * {@code a1->b3 (+12, depth 4, 5120 nodes, 3 ms): a1->b3 e5->d3 b3->c5}
+     */
+    @Override
+    public String toString() {
+        String value;
+        if (isWin()) {
+            value = "wins in " + (AlphaBetaSearch.MATE - score);
+        } else if (isLoss()) {
+            value = "loses in " + (AlphaBetaSearch.MATE + score);
+        } else {
+            value = String.format("%+d", score);
+        }
+        return String.format("%s (%s, depth %d, %d nodes, %d ms): %s", notation(move), value, depth, nodes,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                Arrays.stream(principalVariation).map(MoveAnalysis::notation).collect(Collectors.joining(" ")));
+    }
+}
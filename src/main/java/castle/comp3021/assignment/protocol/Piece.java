@@ -1,16 +1,22 @@
 package castle.comp3021.assignment.protocol;
 
+import java.util.SplittableRandom;
 
 /**
  * The abstract class that a game piece should extend.
  */
-public abstract class Piece implements Runnable {
+public abstract class Piece implements Runnable, Cloneable {
     protected Behavior behavior;
     /**
      * The player that owns this piece.
      */
     Player player;
 
+    /**
+     * Source of the random choices of this piece, set by {@link Configuration#seedRandomStreams()}.
+     */
+    private volatile SplittableRandom random;
+
     public Piece(Player player, Behavior behavior) {
         this.player = player;
         this.behavior = behavior;
@@ -24,6 +30,34 @@ public abstract class Piece implements Runnable {
         return this.player;
     }
 
+    /**
+     * @return the random stream of this piece, an unseeded one if the game has not seeded it yet; only used by the
+     * thread computing the candidate moves of the piece
+     */
+    public final SplittableRandom getRandom() {
+        var random = this.random;
+        if (random == null) {
+            random = new SplittableRandom();
+            this.random = random;
+        }
+        return random;
+    }
+
+    public final void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public Piece clone() throws CloneNotSupportedException {
+        var cloned = (Piece) super.clone();
+        // the clone makes its own random choices, from a stream split from this one
+        var random = this.random;
+        if (random != null) {
+            cloned.random = random.split();
+        }
+        return cloned;
+    }
+
     /**
      * Returns a char which is used to facilitate output in the console
      *
@@ -42,10 +76,65 @@ public abstract class Piece implements Runnable {
 
     public abstract Move getCandidateMove(Game game, Place source);
 
+    /**
+     * Start proposing a candidate move in the background, so that all pieces of a player can compute
+     * within the same round.
+     * The proposal is collected by {@link Piece#collectCandidateMove(Game, Place, long)}.
+     * Pieces without a thread propose nothing in advance.
+     *
+     * @param game     the game object
+     * @param source   the current place of the piece
+     * @param deadline deadline of the round, in {@link GameClock#nanoTime()} units
+     */
+    public void requestCandidateMove(Game game, Place source, long deadline) {
+    }
+
+    /**
+     * Collect the candidate move requested by {@link Piece#requestCandidateMove(Game, Place, long)},
+     * waiting no later than the deadline.
+     * Pieces without a thread compute it on the spot with {@link Piece#getCandidateMove(Game, Place)}.
+     *
+     * @param game     the game object
+     * @param source   the current place of the piece
+     * @param deadline deadline of the round, in {@link GameClock#nanoTime()} units
+     * @return one candidate move, or null if none is proposed
+     */
+    public Move collectCandidateMove(Game game, Place source, long deadline) {
+        return getCandidateMove(game, source);
+    }
+
+    /**
+     * Cancel the candidate move requested by {@link Piece#requestCandidateMove(Game, Place, long)} once the turn
+     * is over, so that no more work is spent on it and nothing stale is left for the next turn.
+     */
+    public void cancelCandidateMove() {
+    }
+
     public abstract void pause();
 
     public abstract void resume();
 
     public abstract void terminate();
 
+    /**
+     * Bring the piece back to its initial state for a new game, see {@link PieceRuntime#reset()}.
+     * A paused or terminated piece runs again after reset.
+     */
+    public void reset() {
+    }
+
+    /**
+     * @return whether this piece has been paused; pieces without a thread are never paused
+     */
+    public boolean isPaused() {
+        return false;
+    }
+
+    /**
+     * @return whether this piece has been terminated; pieces without a thread are never terminated
+     */
+    public boolean isTerminated() {
+        return false;
+    }
+
 }
@@ -0,0 +1,160 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The threads running the pieces of computer players.
+ * <p>
+ * One thread is started per piece when the piece is registered by {@link Configuration#addInitialPiece(Piece, Place)}.
+ * A persistent runtime survives the end of a game: {@link PieceRuntime#reset()} brings every piece back to its
+ * initial state and the same pieces, threads and queues are reused by the next game.
+ * Otherwise the runtime is shut down when the game ends.
+ */
+public class PieceRuntime {
+    /**
+     * Mapping from piece object to thread object of the piece, in registration order.
+     */
+    private final Map<Piece, Thread> pieceThreadMap = new LinkedHashMap<>();
+
+    /**
+     * Whether the threads are kept alive when a game ends.
+     */
+    private volatile boolean persistent = false;
+
+    private volatile boolean shutdown = false;
+
+    private int threadCounter = 0;
+
+    /**
+     * Start a thread for the piece, unless the piece is already registered.
+     *
+     * @param piece the piece to run
+     */
+    public synchronized void register(Piece piece) {
+        if (this.shutdown) {
+            throw new IllegalStateException("piece runtime has been shut down");
+        }
+        if (this.pieceThreadMap.containsKey(piece)) {
+            return;
+        }
+        this.pieceThreadMap.put(piece, startThread(piece));
+    }
+
+    private Thread startThread(Piece piece) {
+        var thread = new Thread(piece, "piece-" + piece.getPlayer().getName() + "-" + this.threadCounter++);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Bring every piece back to its initial state for a new game, reusing the piece threads.
+     * The thread of a piece terminated during the previous game is waited for until it exits, and is replaced by a
+     * new one, so that the number of threads stays the same across games.
+     */
+    public synchronized void reset() {
+        if (this.shutdown) {
+            throw new IllegalStateException("piece runtime has been shut down");
+        }
+        for (var entry : this.pieceThreadMap.entrySet()) {
+            var piece = entry.getKey();
+            var thread = entry.getValue();
+            if (piece.isTerminated()) {
+                // a terminated piece leaves its loop at its next checkpoint, and must have left it before it runs
+                // again, or two threads would run the same piece
+                joinUninterruptibly(thread);
+            }
+            piece.reset();
+            if (!thread.isAlive()) {
+                entry.setValue(startThread(piece));
+            }
+        }
+    }
+
+    /**
+     * Terminate all pieces. Their threads leave their loops on their own.
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+        for (var piece : this.pieceThreadMap.keySet()) {
+            piece.terminate();
+        }
+    }
+
+    /**
+     * Wait until all piece threads have exited after {@link PieceRuntime#shutdown()}.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    time unit of timeout
+     * @return true if all threads have exited, false if the timeout passes first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (var thread : getAllThreads()) {
+            if (!joinQuietly(thread, deadline - System.nanoTime())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean joinQuietly(Thread thread, long nanos) {
+        try {
+            if (nanos > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(thread, nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * @return number of piece threads that are alive
+     */
+    public synchronized int getLiveThreadCount() {
+        return (int) this.pieceThreadMap.values().stream().filter(Thread::isAlive).count();
+    }
+
+    public synchronized Thread getThread(Piece piece) {
+        return this.pieceThreadMap.get(piece);
+    }
+
+    public synchronized Map<Piece, Thread> getPieceThreadMap() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this.pieceThreadMap));
+    }
+
+    public synchronized List<Thread> getAllThreads() {
+        return new ArrayList<>(this.pieceThreadMap.values());
+    }
+}
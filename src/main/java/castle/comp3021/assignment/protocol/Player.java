@@ -4,6 +4,7 @@ import castle.comp3021.assignment.piece.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
+import java.util.SplittableRandom;
 
 /**
  * Player interface for the game.
@@ -31,6 +32,11 @@ public abstract class Player implements Cloneable {
      */
     protected final Color color;
 
+    /**
+     * Source of the random choices of this player, set by {@link Configuration#seedRandomStreams()}.
+     */
+    private volatile SplittableRandom random;
+
     public Player(String name, Color color, Strategy strategy) {
         this.name = name;
         this.color = color;
@@ -66,6 +72,27 @@ public abstract class Player implements Cloneable {
         this.score = score;
     }
 
+    public final Strategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * @return the random stream of this player, an unseeded one if the game has not seeded it yet; only used on the
+     * thread of the game
+     */
+    public final SplittableRandom getRandom() {
+        var random = this.random;
+        if (random == null) {
+            random = new SplittableRandom();
+            this.random = random;
+        }
+        return random;
+    }
+
+    public final void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
 
     /**
      * Get color used to represent this player.
@@ -78,7 +105,13 @@ public abstract class Player implements Cloneable {
 
     @Override
     public Player clone() throws CloneNotSupportedException {
-        return (Player) super.clone();
+        var cloned = (Player) super.clone();
+        // the clone makes its own random choices, from a stream split from this one
+        var random = this.random;
+        if (random != null) {
+            cloned.random = random.split();
+        }
+        return cloned;
     }
 
     /**
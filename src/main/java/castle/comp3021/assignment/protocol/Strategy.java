@@ -2,5 +2,8 @@ package castle.comp3021.assignment.protocol;
 
 public enum Strategy {
     RANDOM,
-    SMART
+    SMART,
+    SEARCH,
+    MCTS,
+    LOOKAHEAD
 }
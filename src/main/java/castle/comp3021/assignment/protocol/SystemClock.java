@@ -0,0 +1,23 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The wall clock, which is the default {@link GameClock}.
+ */
+public class SystemClock implements GameClock {
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public boolean await(CountDownLatch latch, long deadline, BooleanSupplier progressing)
+            throws InterruptedException {
+        return latch.await(Math.max(0, deadline - nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
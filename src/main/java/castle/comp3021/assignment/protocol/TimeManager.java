@@ -0,0 +1,179 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a total game time plus an increment per move into the turns of a
+ * {@link castle.comp3021.assignment.player.ComputerPlayer}, so that a game costs a fixed total time.
+ * <p>
+ * A turn aims at the remaining time divided by {@link TimeManager#MOVES_TO_GO}, plus most of the increment. The
+ * aim is smaller in the capture protection window, where no piece can be lost, and in an ending with few pieces,
+ * and larger in the open middle game. It is a soft deadline: {@link Strategy#SEARCH} stops deepening after it,
+ * unless its best move keeps changing, up to a hard deadline of {@link TimeManager#MAX_EXTENSION} times the aim.
+ * The proposals of the pieces are collected by the same soft deadline, whatever the strategy, so that collecting
+ * them and choosing among them share one budget, and a turn with a single proposed move ends at once.
+ * <p>
+ * A time manager belongs to one player, and its turns are started and ended by the game.
+ */
+public class TimeManager {
+    public enum Phase {
+        PROTECTION, MIDDLE_GAME, ENDING,
+    }
+
+    public static final int MOVES_TO_GO = 30;
+    public static final double PROTECTION_FACTOR = 0.5;
+    public static final double MIDDLE_GAME_FACTOR = 1.25;
+    public static final double ENDING_FACTOR = 0.75;
+
+    /**
+     * Fraction of the pieces of the initial board left when the ending begins.
+     */
+    public static final double ENDING_PIECES = 1.0 / 3;
+
+    /**
+     * The hard deadline of a turn is at most this times its soft deadline, and at most a third of the remaining
+     * time.
+     */
+    public static final double MAX_EXTENSION = 3;
+
+    /**
+     * Time kept aside for the overhead of ending a turn.
+     */
+    public static final long SAFETY_MILLIS = 20;
+
+    private final long totalMillis;
+    private final long incrementMillis;
+
+    private long remainingNanos;
+    private GameClock clock;
+    private boolean inTurn = false;
+    private long turnStart;
+    private long softBudgetNanos;
+    private long hardBudgetNanos;
+
+    /**
+     * @param totalMillis     time of the player for the whole game
+     * @param incrementMillis time added after each move of the player
+     */
+    public TimeManager(long totalMillis, long incrementMillis) {
+        if (totalMillis < 1) {
+            throw new IllegalArgumentException("total game time must be at least 1 millisecond");
+        }
+        if (incrementMillis < 0) {
+            throw new IllegalArgumentException("increment cannot be negative");
+        }
+        this.totalMillis = totalMillis;
+        this.incrementMillis = incrementMillis;
+        this.remainingNanos = TimeUnit.MILLISECONDS.toNanos(totalMillis);
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    /**
+     * Give the player its total time again, e.g. when a game starts.
+     */
+    public synchronized void reset() {
+        this.remainingNanos = TimeUnit.MILLISECONDS.toNanos(this.totalMillis);
+        this.inTurn = false;
+    }
+
+    /**
+     * @param game a game
+     * @return the phase of the game for time management
+     */
+    public static Phase getPhase(Game game) {
+        var configuration = game.getConfiguration();
+        if (game.getNumMoves() < configuration.getNumMovesProtection()) {
+            return Phase.PROTECTION;
+        }
+        int pieces = 0;
+        int initialPieces = 0;
+        var initialBoard = configuration.getInitialBoard();
+        for (int x = 0; x < configuration.getSize(); x++) {
+            for (int y = 0; y < configuration.getSize(); y++) {
+                if (game.getPiece(x, y) != null) {
+                    pieces++;
+                }
+                if (initialBoard[x][y] != null) {
+                    initialPieces++;
+                }
+            }
+        }
+        return pieces <= initialPieces * ENDING_PIECES ? Phase.ENDING : Phase.MIDDLE_GAME;
+    }
+
+    /**
+     * Start a turn of the player: set its soft and hard deadlines from the remaining time and the phase of the game.
+     *
+     * @param game the game, with the player to move
+     */
+    public synchronized void startTurn(Game game) {
+        this.clock = game.getConfiguration().getClock();
+        this.turnStart = this.clock.nanoTime();
+        this.inTurn = true;
+
+        long available = Math.max(0, this.remainingNanos - TimeUnit.MILLISECONDS.toNanos(SAFETY_MILLIS));
+        double factor = switch (getPhase(game)) {
+            case PROTECTION -> PROTECTION_FACTOR;
+            case MIDDLE_GAME -> MIDDLE_GAME_FACTOR;
+            case ENDING -> ENDING_FACTOR;
+        };
+        double aim = (available / (double) MOVES_TO_GO + TimeUnit.MILLISECONDS.toNanos(this.incrementMillis) * 0.75)
+                * factor;
+        long minimum = TimeUnit.MILLISECONDS.toNanos(1);
+        this.softBudgetNanos = Math.max(minimum, Math.min((long) aim, available));
+        this.hardBudgetNanos = Math.max(this.softBudgetNanos,
+                Math.min((long) (aim * MAX_EXTENSION), available / 3));
+    }
+
+    /**
+     * End the turn of the player: take the time it spent from the remaining time, and add the increment.
+     */
+    public synchronized void endTurn() {
+        if (!this.inTurn) {
+            return;
+        }
+        this.inTurn = false;
+        this.remainingNanos += TimeUnit.MILLISECONDS.toNanos(this.incrementMillis)
+                - (this.clock.nanoTime() - this.turnStart);
+    }
+
+    public synchronized boolean isInTurn() {
+        return inTurn;
+    }
+
+    /**
+     * @return the time left of the player, negative if it has overrun
+     */
+    public synchronized long getRemainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos);
+    }
+
+    public synchronized long getSoftBudgetMillis() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(softBudgetNanos));
+    }
+
+    public synchronized long getHardBudgetMillis() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(hardBudgetNanos));
+    }
+
+    /**
+     * @return the soft deadline of the current turn, in {@link GameClock#nanoTime()} units
+     */
+    public synchronized long getSoftDeadline() {
+        return turnStart + softBudgetNanos;
+    }
+
+    /**
+     * @return the hard deadline of the current turn, in {@link GameClock#nanoTime()} units
+     */
+    public synchronized long getHardDeadline() {
+        return turnStart + hardBudgetNanos;
+    }
+}
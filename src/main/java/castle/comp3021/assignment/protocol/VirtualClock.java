@@ -0,0 +1,73 @@
+package castle.comp3021.assignment.protocol;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A simulated {@link GameClock} for tests and batch simulations.
+ * <p>
+ * Virtual time only moves forward through {@link VirtualClock#advance(long)}, or when a wait times out.
+ * Computations take no virtual time: a wait on work that is still going on always lets it finish, and a wait on
+ * work that cannot make progress (e.g. a paused piece) jumps straight to its deadline.
+ * Results therefore do not depend on machine load, and no timeout really sleeps.
+ */
+public class VirtualClock implements GameClock {
+    /**
+     * How long to really wait between checks of whether the awaited work is still going on.
+     */
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+
+    public VirtualClock() {
+    }
+
+    public VirtualClock(long startNanos) {
+        this.now.set(startNanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return this.now.get();
+    }
+
+    /**
+     * Move the clock forward.
+     *
+     * @param nanos nanoseconds to advance, must not be negative
+     */
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("virtual time cannot go backwards");
+        }
+        this.now.addAndGet(nanos);
+    }
+
+    /**
+     * Move the clock forward to the given time, if it is not there yet.
+     *
+     * @param nanos the target time
+     */
+    public void advanceTo(long nanos) {
+        this.now.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public boolean await(CountDownLatch latch, long deadline, BooleanSupplier progressing)
+            throws InterruptedException {
+        while (latch.getCount() > 0) {
+            if (!progressing.getAsBoolean()) {
+                // the latch may have been released just before the work stopped
+                if (latch.getCount() == 0) {
+                    break;
+                }
+                advanceTo(deadline);
+                return false;
+            }
+            latch.await(POLL_NANOS, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,589 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Iterative deepening negamax search with alpha-beta pruning over {@link Position}s.
+ * <p>
+ * Each iteration searches one ply deeper, starting with the best move so far. When the limits are reached in the
+ * middle of an iteration, it is abandoned and the deepest completed iteration is returned. No iteration starts past
+ * the soft deadline of the limits, which is extended each time the best move changes. A win found at ply p scores
+ * {@link AlphaBetaSearch#MATE} - p, so that quicker wins are preferred.
+ * <p>
+ * Positions reached again through another move order are looked up in the {@link TranspositionTable}, moves are
+ * tried in the order of {@link MoveOrdering}, and positions decided in a {@link Tablebase} are not searched further.
+ * The leaves are searched on by a quiescence search, see {@link AlphaBetaSearch#setQuiescence(boolean)}.
+ * {@link AlphaBetaSearch#analyze(Position, int[], SearchLimits, int)} finds the best few moves, each with its own
+ * score and line.
+ * <p>
+ * A search object is not thread-safe, but can be reused for several searches.
+ */
+public class AlphaBetaSearch {
+    public static final int MATE = 1_000_000;
+    public static final int INFINITY = MATE + 1;
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Number of nodes between two checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * Plies of quiescence search after the leaves, beyond which positions are evaluated as they are.
+     */
+    public static final int MAX_QUIESCENCE_PLY = 16;
+
+    /**
+     * Factor of the soft deadline each time an iteration changes the best move, and the largest total factor.
+     */
+    public static final double INSTABILITY_EXTENSION = 1.5;
+    public static final double MAX_EXTENSION = 4;
+
+    private final GameClock clock;
+
+    /**
+     * Shared table of results, or null to search without one.
+     */
+    private final TranspositionTable table;
+
+    private final int[][] moveBuffers = new int[MAX_PLY][];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    /**
+     * Exact results of endgames, or null to search without them.
+     */
+    private Tablebase tablebase;
+
+    private boolean quiescence = true;
+
+    /**
+     * Shared cache of evaluations, or null to evaluate every leaf.
+     */
+    private EvaluationCache evaluationCache;
+
+    /**
+     * Told the result of each completed iteration of {@link AlphaBetaSearch#search}, or null.
+     */
+    private Consumer<SearchResult> iterationListener;
+
+    private Position position;
+    private SearchLimits limits;
+    private long nodes;
+    private volatile boolean stopped;
+
+    /**
+     * Set by {@link AlphaBetaSearch#stop()} and kept until {@link AlphaBetaSearch#restart()}, so that a stop sent
+     * before a search starts still stops it.
+     */
+    private volatile boolean stopRequested;
+
+    public AlphaBetaSearch(GameClock clock) {
+        this(clock, null);
+    }
+
+    public AlphaBetaSearch(GameClock clock, TranspositionTable table) {
+        this.clock = clock;
+        this.table = table;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @param score a search score
+     * @return whether the score is a forced win or loss
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE - MAX_PLY;
+    }
+
+    /**
+     * Search a position.
+     *
+     * @param position  the position, which is left unchanged when the search returns
+     * @param rootMoves the packed moves to choose from, or null for all valid moves; invalid moves are ignored
+     * @param limits    when to stop
+     * @return result of the deepest completed iteration
+     */
+    public SearchResult search(Position position, int[] rootMoves, SearchLimits limits) {
+        return search(position, rootMoves, limits, 0);
+    }
+
+    /**
+     * Search a position as one thread of a {@link ParallelSearch}.
+     * Helpers (helper &gt; 0) start at staggered depths and with rotated root moves, so that threads sharing a
+     * {@link TranspositionTable} do not all search the same tree at the same time.
+     *
+     * @param helper 0 for the main thread, otherwise the index of the helper thread
+     */
+    SearchResult search(Position position, int[] rootMoves, SearchLimits limits, int helper) {
+        long start = clock.nanoTime();
+        this.position = position;
+        this.limits = limits;
+        this.nodes = 0;
+        this.ordering.prepare(position);
+        this.stopped = this.stopRequested;
+
+        int[] moves = rootMoves(position, rootMoves);
+        if (moves.length == 0) {
+            int score = position.sideToMoveWinsWithoutMoves() ? MATE : -MATE;
+            return new SearchResult(Position.NO_MOVE, score, 0, 0, clock.nanoTime() - start, new int[0]);
+        }
+
+        if (helper > 0 && moves.length > 1) {
+            rotate(moves, helper % moves.length);
+        }
+
+        int bestMove = moves[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] pv = new int[]{bestMove};
+        double extension = 1;
+        for (int depth = 1 + helper % 2; depth <= limits.getMaxDepth(); depth++) {
+            int score = searchRoot(moves, 0, depth);
+            if (this.stopped) {
+                break;
+            }
+            if (completedDepth > 0 && this.pvTable[0][0] != bestMove) {
+                extension = Math.min(extension * INSTABILITY_EXTENSION, MAX_EXTENSION);
+            }
+            bestMove = this.pvTable[0][0];
+            bestScore = score;
+            completedDepth = depth;
+            pv = Arrays.copyOf(this.pvTable[0], this.pvLength[0]);
+            if (this.iterationListener != null) {
+                this.iterationListener.accept(new SearchResult(bestMove, bestScore, completedDepth, this.nodes,
+                        clock.nanoTime() - start, pv));
+            }
+            // search the best move first in the next iteration
+            moveToFront(moves, moves.length, bestMove);
+            // deeper iterations cannot change a forced result
+            if (isMateScore(score)) {
+                break;
+            }
+            if (helper == 0 && limits.hasSoftDeadline()
+                    && (moves.length == 1 || limits.isSoftExpired(this.clock, start, extension))) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, this.nodes, clock.nanoTime() - start, pv);
+    }
+
+    /**
+     * Find the best few moves of a position, each with its own score and principal variation (multi-PV).
+     * <p>
+     * Each iteration searches the best line among all root moves, then the best among the moves left, and so on, so
+     * the lines share the iteration, the {@link TranspositionTable} and the {@link MoveOrdering}. The lines are
+     * searched in the order of the previous iteration, so the table usually already holds the answer for lines after
+     * the first. Iterations stop early when every line is a forced result.
+     *
+     * @param position  the position, which is left unchanged when the search returns
+     * @param rootMoves the packed moves to choose from, or null for all valid moves; invalid moves are ignored
+     * @param limits    when to stop
+     * @param lines     number of best moves to find, at least 1
+     * @return the best moves in order, at most lines of them and none if the side to move has no valid move; their
+     * nodes and elapsed time are those of the whole search
+     */
+    public List<SearchResult> analyze(Position position, int[] rootMoves, SearchLimits limits, int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("number of lines must be at least 1");
+        }
+        long start = clock.nanoTime();
+        this.position = position;
+        this.limits = limits;
+        this.nodes = 0;
+        this.ordering.prepare(position);
+        this.stopped = this.stopRequested;
+
+        int[] moves = rootMoves(position, rootMoves);
+        int count = Math.min(lines, moves.length);
+        var scores = new int[count];
+        var pvs = new int[count][];
+        int completedDepth = 0;
+        for (int depth = 1; depth <= limits.getMaxDepth() && count > 0; depth++) {
+            var depthScores = new int[count];
+            var depthPvs = new int[count][];
+            boolean forced = true;
+            for (int line = 0; line < count && !this.stopped; line++) {
+                depthScores[line] = searchRoot(moves, line, depth);
+                depthPvs[line] = Arrays.copyOf(this.pvTable[0], this.pvLength[0]);
+                forced &= isMateScore(depthScores[line]);
+                // the moves before the index are taken by earlier lines
+                int best = this.pvTable[0][0];
+                for (int i = line; i < moves.length; i++) {
+                    if (moves[i] == best) {
+                        System.arraycopy(moves, line, moves, line + 1, i - line);
+                        moves[line] = best;
+                        break;
+                    }
+                }
+            }
+            if (this.stopped) {
+                break;
+            }
+            scores = depthScores;
+            pvs = depthPvs;
+            completedDepth = depth;
+            if (forced || limits.hasSoftDeadline() && limits.isSoftExpired(this.clock, start, 1)) {
+                break;
+            }
+        }
+
+        long elapsed = clock.nanoTime() - start;
+        var results = new ArrayList<SearchResult>();
+        for (int line = 0; line < count; line++) {
+            var pv = completedDepth > 0 ? pvs[line] : new int[]{moves[line]};
+            results.add(new SearchResult(pv[0], scores[line], completedDepth, this.nodes, elapsed, pv));
+        }
+        return results;
+    }
+
+    /**
+     * Stop the current search as soon as possible, e.g. from another thread. The stop is kept until
+     * {@link AlphaBetaSearch#restart()}, so the searches started in between return at once.
+     */
+    public void stop() {
+        this.stopRequested = true;
+        this.stopped = true;
+    }
+
+    /**
+     * Clear the stop signal when a new search is set up, e.g. before a helper search is submitted or before a turn
+     * hands the search to another thread that may stop it, so that a {@link AlphaBetaSearch#stop()} sent before the
+     * search starts is not lost.
+     */
+    public void restart() {
+        this.stopRequested = false;
+    }
+
+    /**
+     * Forget what the previous searches learned about ordering the moves and clear a
+     * {@link AlphaBetaSearch#stop()}, so that the next search runs as on a new search, e.g. before a new game.
+     * The transposition table is shared, and is cleared by its owner.
+     */
+    public void clear() {
+        this.ordering.clear();
+        restart();
+    }
+
+    /**
+     * @return whether a {@link AlphaBetaSearch#stop()} was sent since the last {@link AlphaBetaSearch#restart()}
+     */
+    boolean isStopRequested() {
+        return this.stopRequested;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @param tablebase the tablebase to probe, or null; set between searches
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * @param evaluationCache the cache of evaluations, or null; set between searches
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    public Consumer<SearchResult> getIterationListener() {
+        return iterationListener;
+    }
+
+    /**
+     * @param iterationListener told the result of each iteration of {@link AlphaBetaSearch#search} as soon as it
+     *                          completes, on the searching thread, or null; set between searches
+     */
+    public void setIterationListener(Consumer<SearchResult> iterationListener) {
+        this.iterationListener = iterationListener;
+    }
+
+    public boolean isQuiescence() {
+        return quiescence;
+    }
+
+    /**
+     * A fixed-depth search misjudges a leaf where a capture or a central square exit is pending. The quiescence
+     * search plays on from the leaves:
+     * - a side with a knight on the central square that can leave it wins at once
+     * - otherwise the side to move may stand pat on the evaluation, or play a capture that does not lose material
+     * by {@link Position#staticExchange(int)}, or in its first ply a knight entering the central square
+     * - a side threatened by a central square exit cannot stand pat, and all its moves are searched
+     *
+     * @param quiescence false to evaluate the leaves as they are; set between searches
+     */
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    public MoveOrdering getMoveOrdering() {
+        return ordering;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Search the root moves from an index on.
+     *
+     * @return score of the best of these moves, with its line in the principal variation of ply 0
+     */
+    private int searchRoot(int[] moves, int from, int depth) {
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        this.pvLength[0] = 0;
+        for (int i = from; i < moves.length; i++) {
+            int move = moves[i];
+            int score = searchMove(move, depth, 0, alpha, beta);
+            if (this.stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(0, move);
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Make a move, search the resulting position and take the move back.
+     *
+     * @return score of the move from the perspective of the side making it
+     */
+    private int searchMove(int move, int depth, int ply, int alpha, int beta) {
+        int score;
+        if (this.position.make(move)) {
+            this.pvLength[ply + 1] = 0;
+            score = MATE - (ply + 1);
+        } else {
+            score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+        }
+        this.position.unmake();
+        return score;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        this.pvLength[ply] = 0;
+        if ((++this.nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (this.stopped) {
+            return 0;
+        }
+        if (this.tablebase != null) {
+            int value = this.tablebase.probe(this.position);
+            // draws are searched on, as the scores may still decide a game without moves
+            if (value != Tablebase.UNKNOWN && value != Tablebase.DRAW) {
+                int winPly = Math.min(ply + Math.abs(value), MAX_PLY - 1);
+                return value > 0 ? MATE - winPly : -(MATE - winPly);
+            }
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return this.quiescence ? quiescence(ply, 0, alpha, beta) : evaluate();
+        }
+
+        long hash = this.position.hash();
+        int hashMove = Position.NO_MOVE;
+        if (this.table != null) {
+            long entry = this.table.probe(hash);
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    int score = TranspositionTable.fromStored(TranspositionTable.getScore(entry), ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER && score >= beta
+                            || bound == TranspositionTable.UPPER && score <= alpha) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] moves = moveBuffer(ply);
+        int count = this.position.generateMoves(moves, 0);
+        if (count == 0) {
+            return this.position.sideToMoveWinsWithoutMoves() ? MATE - ply : -(MATE - ply);
+        }
+        this.ordering.score(this.position, moves, count, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Position.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int move = this.ordering.next(moves, count, i, ply);
+            int score = searchMove(move, depth, ply, alpha, beta);
+            if (this.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        this.ordering.onCutoff(this.position, move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        if (this.table != null) {
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            this.table.store(hash, depth, bound, TranspositionTable.toStored(best, ply), bestMove);
+        }
+        return best;
+    }
+
+    private int quiescence(int ply, int quiescencePly, int alpha, int beta) {
+        this.pvLength[ply] = 0;
+        if ((++this.nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (this.stopped) {
+            return 0;
+        }
+        var position = this.position;
+        int side = position.sideToMove;
+        if (position.centralExit(side, position.numMoves) != Position.NO_MOVE) {
+            return MATE - (ply + 1);
+        }
+        if (ply >= MAX_PLY - 1 || quiescencePly >= MAX_QUIESCENCE_PLY) {
+            return evaluate();
+        }
+
+        int[] moves = moveBuffer(ply);
+        int count = position.generateMoves(moves, 0);
+        if (count == 0) {
+            return position.sideToMoveWinsWithoutMoves() ? MATE - ply : -(MATE - ply);
+        }
+        int best = -INFINITY;
+        boolean threatened = position.centralExit(1 - side, position.numMoves + 1) != Position.NO_MOVE;
+        if (!threatened) {
+            best = evaluate();
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            int central = position.geometry.central;
+            int tactical = 0;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                boolean keep = position.isCapture(move)
+                        ? position.staticExchange(move) >= 0
+                        : quiescencePly == 0 && Position.to(move) == central
+                        && Position.isKnight(position.board[Position.from(move)]);
+                if (keep) {
+                    moves[tactical++] = move;
+                }
+            }
+            count = tactical;
+        }
+        this.ordering.score(position, moves, count, ply, Position.NO_MOVE);
+
+        for (int i = 0; i < count; i++) {
+            int move = this.ordering.next(moves, count, i, ply);
+            int score;
+            if (position.make(move)) {
+                this.pvLength[ply + 1] = 0;
+                score = MATE - (ply + 1);
+            } else {
+                score = -quiescence(ply + 1, quiescencePly + 1, -beta, -alpha);
+            }
+            position.unmake();
+            if (this.stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int evaluate() {
+        var cache = this.evaluationCache;
+        return cache != null ? cache.evaluate(this.position) : Evaluation.evaluate(this.position);
+    }
+
+    private void checkLimits() {
+        if (this.nodes >= this.limits.getMaxNodes() || this.limits.isExpired(this.clock)) {
+            this.stopped = true;
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        this.pvTable[ply][0] = move;
+        int childLength = this.pvLength[ply + 1];
+        System.arraycopy(this.pvTable[ply + 1], 0, this.pvTable[ply], 1, childLength);
+        this.pvLength[ply] = childLength + 1;
+    }
+
+    private int[] moveBuffer(int ply) {
+        int needed = this.position.maxMoves();
+        if (this.moveBuffers[ply] == null || this.moveBuffers[ply].length < needed) {
+            this.moveBuffers[ply] = new int[needed];
+        }
+        return this.moveBuffers[ply];
+    }
+
+    private static int[] rootMoves(Position position, int[] rootMoves) {
+        var all = new int[position.maxMoves()];
+        int count = position.generateMoves(all, 0);
+        if (rootMoves == null) {
+            return Arrays.copyOf(all, count);
+        }
+        var legal = Arrays.copyOf(all, count);
+        Arrays.sort(legal);
+        return Arrays.stream(rootMoves)
+                .filter(move -> Arrays.binarySearch(legal, move) >= 0)
+                .distinct()
+                .toArray();
+    }
+
+    private static void rotate(int[] moves, int distance) {
+        var rotated = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            rotated[i] = moves[(i + distance) % moves.length];
+        }
+        System.arraycopy(rotated, 0, moves, 0, moves.length);
+    }
+
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package castle.comp3021.assignment.search;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precomputed tables of a gameboard size, shared by all {@link Position}s of that size.
+ * <p>
+ * Squares are numbered {@code x * size + y}, the same layout as {@code Game#board[x][y]}.
+ */
+public final class BoardGeometry {
+    private static final ConcurrentMap<Integer, BoardGeometry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Seed of the Zobrist keys, fixed so that hashes are the same across runs and can be stored in files.
+     */
+    private static final long ZOBRIST_SEED = 0x3021_2020_FA11L;
+
+    private static final int[][] KNIGHT_STEPS = {
+            {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2},
+    };
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    final int size;
+    final int squares;
+    final int central;
+
+    /**
+     * Destinations of knight jumps from each square, and the square that blocks each jump.
+     */
+    final int[][] knightTargets;
+    final int[][] knightLegs;
+
+    /**
+     * The square that blocks the jump from each of {@code knightTargets[sq]} to each square, to find the knights
+     * attacking a square.
+     */
+    final int[][] knightSourceLegs;
+
+    /**
+     * Squares along the 4 directions from each square, nearest first.
+     */
+    final int[][][] rays;
+
+    /**
+     * Manhattan distance from each square to the central square.
+     */
+    final int[] centralDistance;
+
+    /**
+     * Zobrist keys indexed by piece code and square.
+     */
+    final long[][] zobrist;
+    final long sideKey;
+    final long[] protectionKeys;
+
+    private BoardGeometry(int size) {
+        this.size = size;
+        this.squares = size * size;
+        this.central = square(size / 2, size / 2);
+        this.knightTargets = new int[squares][];
+        this.knightLegs = new int[squares][];
+        this.rays = new int[squares][DIRECTIONS.length][];
+        this.centralDistance = new int[squares];
+        for (int sq = 0; sq < squares; sq++) {
+            int x = x(sq);
+            int y = y(sq);
+            var targets = new int[KNIGHT_STEPS.length];
+            var legs = new int[KNIGHT_STEPS.length];
+            int n = 0;
+            for (var step : KNIGHT_STEPS) {
+                int tx = x + step[0];
+                int ty = y + step[1];
+                if (tx < 0 || ty < 0 || tx >= size || ty >= size) {
+                    continue;
+                }
+                targets[n] = square(tx, ty);
+                legs[n] = Math.abs(step[0]) == 2 ? square(x + step[0] / 2, y) : square(x, y + step[1] / 2);
+                n++;
+            }
+            this.knightTargets[sq] = Arrays.copyOf(targets, n);
+            this.knightLegs[sq] = Arrays.copyOf(legs, n);
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                var ray = new int[size];
+                int len = 0;
+                for (int tx = x + DIRECTIONS[d][0], ty = y + DIRECTIONS[d][1];
+                     tx >= 0 && ty >= 0 && tx < size && ty < size;
+                     tx += DIRECTIONS[d][0], ty += DIRECTIONS[d][1]) {
+                    ray[len++] = square(tx, ty);
+                }
+                this.rays[sq][d] = Arrays.copyOf(ray, len);
+            }
+            this.centralDistance[sq] = Math.abs(x - size / 2) + Math.abs(y - size / 2);
+        }
+
+        this.knightSourceLegs = new int[squares][];
+        for (int sq = 0; sq < squares; sq++) {
+            var sources = this.knightTargets[sq];
+            this.knightSourceLegs[sq] = new int[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                var targets = this.knightTargets[sources[i]];
+                for (int j = 0; j < targets.length; j++) {
+                    if (targets[j] == sq) {
+                        this.knightSourceLegs[sq][i] = this.knightLegs[sources[i]][j];
+                    }
+                }
+            }
+        }
+
+        var random = new SplittableRandom(ZOBRIST_SEED + size);
+        this.zobrist = new long[Position.NUM_CODES][squares];
+        for (int code = 1; code < Position.NUM_CODES; code++) {
+            for (int sq = 0; sq < squares; sq++) {
+                this.zobrist[code][sq] = random.nextLong();
+            }
+        }
+        this.sideKey = random.nextLong();
+        this.protectionKeys = new long[64];
+        for (int i = 0; i < this.protectionKeys.length; i++) {
+            this.protectionKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param size size of gameboard
+     * @return the shared tables of the size
+     */
+    public static BoardGeometry of(int size) {
+        return CACHE.computeIfAbsent(size, BoardGeometry::new);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCentral() {
+        return central;
+    }
+
+    public int square(int x, int y) {
+        return x * size + y;
+    }
+
+    public int x(int square) {
+        return square / size;
+    }
+
+    public int y(int square) {
+        return square % size;
+    }
+
+    public int distance(int from, int to) {
+        return Math.abs(x(from) - x(to)) + Math.abs(y(from) - y(to));
+    }
+}
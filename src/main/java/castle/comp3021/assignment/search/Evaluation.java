@@ -0,0 +1,317 @@
+package castle.comp3021.assignment.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Static evaluation of a {@link Position}, in centipawn-like units from the perspective of the side to move.
+ * <p>
+ * The terms are material, where knights are worth more since only they can win by leaving the central square, the
+ * distance of the knights to the central square, a knight on it or one jump from it, the mobility of the knights,
+ * and the critical region: knights in it are close to the central square, but once a side fills its capacity, its
+ * knights outside can no longer enter.
+ * <p>
+ * All terms but the critical region are the sum of a value per piece and square. {@link Position} keeps these sums
+ * up to date in make/unmake, and the region terms come from its counters, so evaluating a leaf takes constant time.
+ * An evaluation is immutable, and its weights can be configured, or tuned by {@link EvaluationTuner} and read from a
+ * weight file.
+ */
+public final class Evaluation {
+    public static final int KNIGHT_VALUE = 100;
+    public static final int ARCHER_VALUE = 60;
+    public static final int CENTRALITY_WEIGHT = 4;
+    public static final int CENTRAL_KNIGHT_BONUS = 50;
+    public static final int CENTRAL_CONTROL_BONUS = 10;
+    public static final int MOBILITY_WEIGHT = 2;
+    public static final int REGION_KNIGHT_BONUS = 8;
+    public static final int REGION_FULL_PENALTY = 20;
+
+    /**
+     * Names of the weights in weight files, in the order of {@link Evaluation#getWeights()}.
+     */
+    public static final String[] WEIGHT_NAMES = {
+            "knightValue", "archerValue", "centralityWeight", "centralKnightBonus", "centralControlBonus",
+            "mobilityWeight", "regionKnightBonus", "regionFullPenalty",
+    };
+
+    /**
+     * The evaluation with the default weights.
+     */
+    public static final Evaluation DEFAULT = new Evaluation(KNIGHT_VALUE, ARCHER_VALUE, CENTRALITY_WEIGHT,
+            CENTRAL_KNIGHT_BONUS, CENTRAL_CONTROL_BONUS, MOBILITY_WEIGHT, REGION_KNIGHT_BONUS, REGION_FULL_PENALTY);
+
+    private final int knightValue;
+    private final int archerValue;
+    private final int centralityWeight;
+    private final int centralKnightBonus;
+    private final int centralControlBonus;
+    private final int mobilityWeight;
+    private final int regionKnightBonus;
+    private final int regionFullPenalty;
+
+    /**
+     * Values of each piece code on each square, by board size.
+     */
+    private final ConcurrentMap<Integer, int[][]> pieceSquareTables = new ConcurrentHashMap<>();
+
+    /**
+     * @param knightValue         value of a knight
+     * @param archerValue         value of an archer
+     * @param centralityWeight    value of a knight per step closer to the central square
+     * @param centralKnightBonus  value of a knight on the central square
+     * @param centralControlBonus value of a knight that can jump to the central square
+     * @param mobilityWeight      value of a knight per jump from its square
+     * @param regionKnightBonus   value of a knight in the critical region
+     * @param regionFullPenalty   penalty of a side whose knights outside the critical region cannot enter it
+     */
+    public Evaluation(int knightValue, int archerValue, int centralityWeight, int centralKnightBonus,
+                      int centralControlBonus, int mobilityWeight, int regionKnightBonus, int regionFullPenalty) {
+        this.knightValue = knightValue;
+        this.archerValue = archerValue;
+        this.centralityWeight = centralityWeight;
+        this.centralKnightBonus = centralKnightBonus;
+        this.centralControlBonus = centralControlBonus;
+        this.mobilityWeight = mobilityWeight;
+        this.regionKnightBonus = regionKnightBonus;
+        this.regionFullPenalty = regionFullPenalty;
+    }
+
+    /**
+     * @param weights the weights in the order of {@link Evaluation#WEIGHT_NAMES}
+     * @return the evaluation with the weights
+     */
+    public static Evaluation fromWeights(int[] weights) {
+        if (weights.length != WEIGHT_NAMES.length) {
+            throw new IllegalArgumentException("an evaluation has " + WEIGHT_NAMES.length + " weights");
+        }
+        return new Evaluation(weights[0], weights[1], weights[2], weights[3], weights[4], weights[5], weights[6],
+                weights[7]);
+    }
+
+    /**
+     * Read the weights of a file written by {@link Evaluation#save(Path)}. Missing weights keep their default.
+     *
+     * @param file the weight file
+     * @return the evaluation
+     * @throws IOException if the file cannot be read or a weight is not a number
+     */
+    public static Evaluation load(Path file) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        var weights = DEFAULT.getWeights();
+        for (int i = 0; i < WEIGHT_NAMES.length; i++) {
+            var value = properties.getProperty(WEIGHT_NAMES[i]);
+            if (value == null) {
+                continue;
+            }
+            try {
+                weights[i] = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("weight " + WEIGHT_NAMES[i] + " of " + file + " is not a number", e);
+            }
+        }
+        return fromWeights(weights);
+    }
+
+    /**
+     * Write the weights to a file, one {@code name=value} line each.
+     *
+     * @param file the weight file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        var weights = getWeights();
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("# JesonMor evaluation weights\n");
+            for (int i = 0; i < WEIGHT_NAMES.length; i++) {
+                writer.write(WEIGHT_NAMES[i] + "=" + weights[i] + "\n");
+            }
+        }
+    }
+
+    /**
+     * @param position the position
+     * @return the score of the side to move, by the evaluation of the position
+     */
+    public static int evaluate(Position position) {
+        return position.evaluation.score(position);
+    }
+
+    /**
+     * Score a position from its incrementally updated sums, in constant time.
+     *
+     * @param position a position evaluated by this evaluation, see {@link Position#setEvaluation(Evaluation)}
+     * @return the score of the side to move
+     */
+    public int score(Position position) {
+        int side = position.sideToMove;
+        int other = 1 - side;
+        return position.pieceSquareScore[side] - position.pieceSquareScore[other]
+                + regionScore(position, side) - regionScore(position, other);
+    }
+
+    /**
+     * Score a position by looking at every square, to check {@link Evaluation#score(Position)}.
+     *
+     * @param position the position
+     * @return the score of the side to move
+     */
+    public int scoreFromScratch(Position position) {
+        var table = pieceSquareTable(position.geometry);
+        var board = position.board;
+        int[] scores = new int[2];
+        for (int sq = 0; sq < board.length; sq++) {
+            int code = board[sq];
+            if (code != Position.EMPTY) {
+                scores[Position.side(code)] += table[code][sq];
+            }
+        }
+        int side = position.sideToMove;
+        int other = 1 - side;
+        return scores[side] - scores[other] + regionScore(position, side) - regionScore(position, other);
+    }
+
+    /**
+     * @param code a piece code
+     * @return the material value of the piece, as counted by static exchange evaluation
+     */
+    public int pieceValue(int code) {
+        if (code == Position.EMPTY) {
+            return 0;
+        }
+        return Position.type(code) == Position.KNIGHT ? this.knightValue : this.archerValue;
+    }
+
+    /**
+     * The evaluation is linear in its weights: the score of a position is the sum of each weight times a feature of
+     * the position, the difference between the side to move and the other side of what the weight counts.
+     *
+     * @param position the position
+     * @param features the buffer of the features, in the order of {@link Evaluation#WEIGHT_NAMES}
+     */
+    public static void features(Position position, int[] features) {
+        var geometry = position.geometry;
+        var board = position.board;
+        int maxDistance = 2 * (geometry.size / 2);
+        Arrays.fill(features, 0);
+        for (int sq = 0; sq < board.length; sq++) {
+            int code = board[sq];
+            if (code == Position.EMPTY) {
+                continue;
+            }
+            int sign = Position.side(code) == position.sideToMove ? 1 : -1;
+            if (Position.type(code) == Position.ARCHER) {
+                features[1] += sign;
+                continue;
+            }
+            var targets = geometry.knightTargets[sq];
+            features[0] += sign;
+            features[2] += sign * (maxDistance - geometry.centralDistance[sq]);
+            if (sq == geometry.central) {
+                features[3] += sign;
+            }
+            for (int target : targets) {
+                if (target == geometry.central) {
+                    features[4] += sign;
+                }
+            }
+            features[5] += sign * targets.length;
+        }
+        int side = position.sideToMove;
+        int other = 1 - side;
+        features[6] = position.knightsInRegion[side] - position.knightsInRegion[other];
+        features[7] = (regionFull(position, other) ? 1 : 0) - (regionFull(position, side) ? 1 : 0);
+    }
+
+    private static boolean regionFull(Position position, int side) {
+        int inRegion = position.knightsInRegion[side];
+        return inRegion >= position.criticalRegionCapacity && position.knightCount[side] > inRegion;
+    }
+
+    private int regionScore(Position position, int side) {
+        int score = this.regionKnightBonus * position.knightsInRegion[side];
+        if (regionFull(position, side)) {
+            score -= this.regionFullPenalty;
+        }
+        return score;
+    }
+
+    /**
+     * @return the value of each piece code on each square of a board
+     */
+    int[][] pieceSquareTable(BoardGeometry geometry) {
+        return this.pieceSquareTables.computeIfAbsent(geometry.size, size -> {
+            int maxDistance = 2 * (size / 2);
+            var table = new int[Position.NUM_CODES][geometry.squares];
+            for (int side = 0; side < 2; side++) {
+                var knight = table[Position.code(side, Position.KNIGHT)];
+                var archer = table[Position.code(side, Position.ARCHER)];
+                for (int sq = 0; sq < geometry.squares; sq++) {
+                    var targets = geometry.knightTargets[sq];
+                    knight[sq] = this.knightValue
+                            + this.centralityWeight * (maxDistance - geometry.centralDistance[sq])
+                            + this.mobilityWeight * targets.length;
+                    if (sq == geometry.central) {
+                        knight[sq] += this.centralKnightBonus;
+                    }
+                    for (int target : targets) {
+                        if (target == geometry.central) {
+                            knight[sq] += this.centralControlBonus;
+                        }
+                    }
+                    archer[sq] = this.archerValue;
+                }
+            }
+            return table;
+        });
+    }
+
+    /**
+     * @return the weights in the order of {@link Evaluation#WEIGHT_NAMES}
+     */
+    public int[] getWeights() {
+        return new int[]{this.knightValue, this.archerValue, this.centralityWeight, this.centralKnightBonus,
+                this.centralControlBonus, this.mobilityWeight, this.regionKnightBonus, this.regionFullPenalty};
+    }
+
+    public int getKnightValue() {
+        return knightValue;
+    }
+
+    public int getArcherValue() {
+        return archerValue;
+    }
+
+    public int getCentralityWeight() {
+        return centralityWeight;
+    }
+
+    public int getCentralKnightBonus() {
+        return centralKnightBonus;
+    }
+
+    public int getCentralControlBonus() {
+        return centralControlBonus;
+    }
+
+    public int getMobilityWeight() {
+        return mobilityWeight;
+    }
+
+    public int getRegionKnightBonus() {
+        return regionKnightBonus;
+    }
+
+    public int getRegionFullPenalty() {
+        return regionFullPenalty;
+    }
+}
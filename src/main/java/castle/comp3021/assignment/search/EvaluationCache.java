@@ -0,0 +1,133 @@
+package castle.comp3021.assignment.search;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A direct-mapped cache of evaluations by position hash, shared by all searches without locks.
+ * <p>
+ * Each entry is one long: the upper 32 bits of the position hash, and the score. The slot is picked by the lower
+ * bits of the hash, so an entry whose upper bits match is the position with near certainty. Entries are read and
+ * written as single atomic longs, so a probe costs one memory access and never sees half of another entry.
+ * <p>
+ * A cache belongs to one {@link Evaluation}: positions evaluated with other weights bypass it. Counting probes and
+ * hits writes to shared counters on every evaluation, so it is only done by caches created with statistics, e.g.
+ * for a benchmark.
+ */
+public class EvaluationCache {
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Evaluation evaluation;
+    private final long[] entries;
+    private final int mask;
+
+    private final boolean statistics;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param megabytes  memory of the cache, rounded down to a power of two entries
+     * @param evaluation the evaluation whose scores are cached
+     */
+    public EvaluationCache(int megabytes, Evaluation evaluation) {
+        this(megabytes, evaluation, false);
+    }
+
+    /**
+     * @param megabytes  memory of the cache, rounded down to a power of two entries
+     * @param evaluation the evaluation whose scores are cached
+     * @param statistics whether to count probes and hits, see {@link EvaluationCache#getHitRate()}
+     */
+    public EvaluationCache(int megabytes, Evaluation evaluation, boolean statistics) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("evaluation cache must be at least 1 megabyte");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / Long.BYTES);
+        entries = Math.min(entries, 1L << 30);
+        this.evaluation = evaluation;
+        this.entries = new long[(int) entries];
+        this.mask = (int) entries - 1;
+        this.statistics = statistics;
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    public boolean hasStatistics() {
+        return statistics;
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Evaluate a position, looking the score up first.
+     *
+     * @param position the position
+     * @return the score of the side to move, see {@link Evaluation#evaluate(Position)}
+     */
+    public int evaluate(Position position) {
+        if (position.evaluation != this.evaluation) {
+            return Evaluation.evaluate(position);
+        }
+        long hash = position.hash();
+        int index = (int) hash & this.mask;
+        long check = hash & 0xFFFFFFFF_00000000L;
+        long entry = (long) ENTRIES.getOpaque(this.entries, index);
+        if (entry != 0 && (entry & 0xFFFFFFFF_00000000L) == check) {
+            if (this.statistics) {
+                this.probes.increment();
+                this.hits.increment();
+            }
+            return (int) entry;
+        }
+        if (this.statistics) {
+            this.probes.increment();
+        }
+        int score = this.evaluation.score(position);
+        ENTRIES.setOpaque(this.entries, index, check | (score & 0xFFFFFFFFL));
+        return score;
+    }
+
+    /**
+     * Remove all entries and statistics.
+     */
+    public void clear() {
+        Arrays.fill(this.entries, 0);
+        this.probes.reset();
+        this.hits.reset();
+    }
+
+    /**
+     * @return number of probes, always 0 without statistics
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return number of probes that found their position, always 0 without statistics
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return fraction of probes that found their position, 0 if there was no probe
+     */
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0 : (double) getHits() / probes;
+    }
+
+    /**
+     * @return memory of the entries in bytes
+     */
+    public long getSizeBytes() {
+        return (long) this.entries.length * Long.BYTES;
+    }
+}
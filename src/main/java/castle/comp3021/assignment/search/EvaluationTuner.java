@@ -0,0 +1,237 @@
+package castle.comp3021.assignment.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Tunes the weights of an {@link Evaluation} to the outcomes of the games of a {@link SelfPlayCorpus}, by minimising
+ * the error of the win probability the evaluation predicts (Texel's method).
+ * <p>
+ * The predicted result of a position is {@code 1 / (1 + exp(-scale * score))}, compared with the result of its game
+ * for the side to move: 1 for a win, 1/2 for an undecided game, 0 for a loss. The scale is fitted to the initial
+ * weights once, so that the weights keep their units. Only quiet positions are used, without a pending central exit
+ * or winning capture, since the evaluation cannot judge those. The evaluation is linear in its weights, so each
+ * position is stored as its features (see {@link Evaluation#features(Position, int[])}), and the error is summed
+ * over the corpus in parallel. Each weight is then moved up or down by a shrinking step while that lowers the error.
+ * <p>
+ * Usage: {@code EvaluationTuner corpusFile weightsFile [initialWeightsFile]}; the weights file can be read by
+ * {@link castle.comp3021.assignment.protocol.Configuration#setEvaluationFile(Path)}.
+ */
+public class EvaluationTuner {
+    public static final int WEIGHTS = Evaluation.WEIGHT_NAMES.length;
+
+    /**
+     * Steps of the local search, largest first.
+     */
+    public static final int[] STEPS = {16, 4, 1};
+
+    /**
+     * Positions summed by one fork-join task without splitting.
+     */
+    private static final int THRESHOLD = 1 << 13;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Features of each position, {@link EvaluationTuner#WEIGHTS} per position.
+     */
+    private final short[] features;
+
+    /**
+     * Result of each position for the side to move in half points.
+     */
+    private final byte[] results;
+    private final int count;
+
+    /**
+     * Extract the quiet positions of a corpus.
+     *
+     * @param corpus the games
+     * @param pool   the pool summing the error
+     */
+    public EvaluationTuner(SelfPlayCorpus corpus, ForkJoinPool pool) {
+        this.pool = pool;
+        long total = corpus.getPositionCount();
+        if (total > Integer.MAX_VALUE / WEIGHTS) {
+            throw new IllegalArgumentException("corpus of " + total + " positions is too large");
+        }
+        var features = new short[(int) total * WEIGHTS];
+        var results = new byte[(int) total];
+        var buffer = new int[WEIGHTS];
+        int count = 0;
+        for (int game = 0; game < corpus.getGameCount(); game++) {
+            var position = corpus.initialPosition();
+            var moves = new int[position.maxMoves()];
+            int winner = corpus.getWinner(game);
+            for (int move : corpus.getMoves(game)) {
+                if (isQuiet(position, moves)) {
+                    Evaluation.features(position, buffer);
+                    for (int i = 0; i < WEIGHTS; i++) {
+                        features[count * WEIGHTS + i] = (short) buffer[i];
+                    }
+                    results[count] = (byte) (winner < 0 ? 1 : winner == position.sideToMove ? 2 : 0);
+                    count++;
+                }
+                position.make(move);
+            }
+        }
+        this.features = Arrays.copyOf(features, count * WEIGHTS);
+        this.results = Arrays.copyOf(results, count);
+        this.count = count;
+    }
+
+    private static boolean isQuiet(Position position, int[] moves) {
+        int side = position.sideToMove;
+        if (position.centralExit(side, position.numMoves) != Position.NO_MOVE
+                || position.centralExit(1 - side, position.numMoves + 1) != Position.NO_MOVE) {
+            return false;
+        }
+        int n = position.generateMoves(moves, 0);
+        for (int i = 0; i < n; i++) {
+            if (position.isCapture(moves[i]) && position.staticExchange(moves[i]) > 0) {
+                return false;
+            }
+        }
+        return n > 0;
+    }
+
+    /**
+     * @return number of quiet positions kept
+     */
+    public int getPositionCount() {
+        return count;
+    }
+
+    /**
+     * @param weights the weights in the order of {@link Evaluation#WEIGHT_NAMES}
+     * @param scale   the scale of scores in the predicted win probability
+     * @return mean squared error of the predicted results, 0 if there is no position
+     */
+    public double error(int[] weights, double scale) {
+        if (this.count == 0) {
+            return 0;
+        }
+        return this.pool.invoke(new ErrorTask(weights, scale, 0, this.count)) / this.count;
+    }
+
+    /**
+     * Find the scale of scores that predicts the results best with some weights, by ternary search over its
+     * logarithm.
+     *
+     * @param weights the weights
+     * @return the scale
+     */
+    public double fitScale(int[] weights) {
+        double low = Math.log(1e-5);
+        double high = Math.log(1e-1);
+        for (int i = 0; i < 60; i++) {
+            double third = (high - low) / 3;
+            if (error(weights, Math.exp(low + third)) < error(weights, Math.exp(high - third))) {
+                high -= third;
+            } else {
+                low += third;
+            }
+        }
+        return Math.exp((low + high) / 2);
+    }
+
+    /**
+     * Tune weights by local search.
+     *
+     * @param initial   the weights to start from
+     * @param maxPasses most passes over all weights per step
+     * @return the tuned evaluation
+     */
+    public Evaluation tune(Evaluation initial, int maxPasses) {
+        var weights = initial.getWeights();
+        double scale = fitScale(weights);
+        double best = error(weights, scale);
+        for (int step : STEPS) {
+            boolean improved = true;
+            for (int pass = 0; pass < maxPasses && improved; pass++) {
+                improved = false;
+                for (int i = 0; i < WEIGHTS; i++) {
+                    for (int delta : new int[]{step, -step}) {
+                        weights[i] += delta;
+                        double error = error(weights, scale);
+                        if (error < best) {
+                            best = error;
+                            improved = true;
+                            break;
+                        }
+                        weights[i] -= delta;
+                    }
+                }
+            }
+        }
+        return Evaluation.fromWeights(weights);
+    }
+
+    /**
+     * Sums the squared errors of a range of positions, splitting it in halves while it is large.
+     */
+    private final class ErrorTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] weights;
+        private final double scale;
+        private final int from;
+        private final int to;
+
+        ErrorTask(int[] weights, double scale, int from, int to) {
+            this.weights = weights;
+            this.scale = scale;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.to - this.from > THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                var left = new ErrorTask(this.weights, this.scale, this.from, middle);
+                left.fork();
+                double right = new ErrorTask(this.weights, this.scale, middle, this.to).compute();
+                return right + left.join();
+            }
+            var features = EvaluationTuner.this.features;
+            var results = EvaluationTuner.this.results;
+            var weights = this.weights;
+            double sum = 0;
+            for (int p = this.from; p < this.to; p++) {
+                int base = p * WEIGHTS;
+                int score = 0;
+                for (int i = 0; i < WEIGHTS; i++) {
+                    score += weights[i] * features[base + i];
+                }
+                double predicted = 1 / (1 + Math.exp(-this.scale * score));
+                double error = results[p] * 0.5 - predicted;
+                sum += error * error;
+            }
+            return sum;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: EvaluationTuner corpusFile weightsFile [initialWeightsFile]");
+            return;
+        }
+        long start = System.nanoTime();
+        var corpus = SelfPlayCorpus.read(Path.of(args[0]));
+        var initial = args.length > 2 ? Evaluation.load(Path.of(args[2])) : Evaluation.DEFAULT;
+        var pool = ForkJoinPool.commonPool();
+        var tuner = new EvaluationTuner(corpus, pool);
+        System.out.printf("%d games, %d quiet positions, %.1f s%n", corpus.getGameCount(),
+                tuner.getPositionCount(), (System.nanoTime() - start) / 1e9);
+        double scale = tuner.fitScale(initial.getWeights());
+        System.out.printf("scale %.6f, initial error %.6f%n", scale, tuner.error(initial.getWeights(), scale));
+        var tuned = tuner.tune(initial, 100);
+        System.out.printf("tuned error %.6f, %s, %.1f s%n", tuner.error(tuned.getWeights(), scale),
+                Arrays.toString(tuned.getWeights()), (System.nanoTime() - start) / 1e9);
+        tuned.save(Path.of(args[1]));
+    }
+}
@@ -0,0 +1,619 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search with UCT selection and {@link RolloutPolicy} playouts, run by several threads on one
+ * shared tree (tree parallelism).
+ * <p>
+ * Each playout goes down from the root to the child with the best UCT value until it reaches a node not expanded
+ * yet, expands it with one child per valid move, and plays the game on by the rollout policy until a player wins;
+ * a node decided in a {@link Tablebase} needs no playout. The result is added to every node of the path, from the
+ * perspective of the player moving into it. A node counts a visit as soon as a thread selects it, but its reward
+ * only after the playout, so other threads see an unfinished playout as a loss and spread out (virtual loss).
+ * <p>
+ * Nodes live in preallocated primitive arrays indexed by node number, node 0 being the root, so a search
+ * allocates no objects per node. When the arrays are full, the tree stops growing and playouts continue from
+ * its leaves.
+ * <p>
+ * The tree is kept between searches: when the next search is of a position the tree reached within two plies,
+ * e.g. after the move of the player and the reply of the opponent, the subtree of that position becomes the tree,
+ * with its playouts, see {@link MonteCarloTreeSearch#setTreeReuse(boolean)}.
+ * <p>
+ * Children are added in one block after their parent, so the nodes of the subtree keep their order when they are
+ * moved to the front of the arrays, in place. The tree is only kept if every move to choose from is a child of the
+ * new root, whose children are then narrowed to those moves.
+ * <p>
+ * Searches stop at the deadline of their {@link SearchLimits}, or after {@link SearchLimits#getMaxNodes()}
+ * playouts. The maximum depth of the limits is ignored.
+ */
+public class MonteCarloTreeSearch {
+    /**
+     * Exploration constant of UCT.
+     */
+    public static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * Playouts longer than this are scored by {@link Evaluation}.
+     */
+    private static final int MAX_PLAYOUT_PLIES = 256;
+    private static final int MAX_SELECTION_DEPTH = 512;
+    private static final int CHECK_INTERVAL = 16;
+
+    /**
+     * How many plies below the root of the tree the position of the next search is looked for.
+     */
+    private static final int MAX_REUSE_DEPTH = 2;
+
+    /**
+     * Rewards are stored in fixed point, so that they can be added atomically.
+     */
+    private static final long REWARD_ONE = 1 << 16;
+
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private static final long IDLE_SECONDS = 30;
+
+    private final GameClock clock;
+    private final int threads;
+    private final int capacity;
+    private final RolloutPolicy policy;
+
+    /* Tree start */
+    private final int[] moves;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final AtomicIntegerArray states;
+    private final AtomicIntegerArray visits;
+
+    /**
+     * Sum of rewards, from the perspective of the side that made the move of the node.
+     */
+    private final AtomicLongArray rewards;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * The position of the root of the tree, or null if there is no tree to reuse.
+     */
+    private Position treePosition;
+
+    /**
+     * New indices of the nodes kept when the tree is reused, allocated on first reuse.
+     */
+    private int[] remap;
+    /* Tree end */
+
+    private final ThreadPoolExecutor executor;
+    private SplittableRandom seeds;
+
+    private SearchLimits limits;
+    private volatile Tablebase tablebase;
+    private volatile EvaluationCache evaluationCache;
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private volatile boolean stopped;
+    private boolean treeReuse = true;
+    private int reusedPlayouts;
+
+    /**
+     * @param clock    the clock of the limits
+     * @param threads  number of search threads, including the calling thread
+     * @param capacity maximum number of nodes of the tree
+     * @param policy   the policy of playouts
+     * @param seed     seed of the randomness of playouts
+     */
+    public MonteCarloTreeSearch(GameClock clock, int threads, int capacity, RolloutPolicy policy, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of search threads must be at least 1");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("tree must have room for at least 1 node");
+        }
+        this.clock = clock;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.seeds = new SplittableRandom(seed);
+        this.moves = new int[capacity];
+        this.firstChild = new int[capacity];
+        this.childCount = new int[capacity];
+        this.states = new AtomicIntegerArray(capacity);
+        this.visits = new AtomicIntegerArray(capacity);
+        this.rewards = new AtomicLongArray(capacity);
+        if (threads == 1) {
+            this.executor = null;
+        } else {
+            var pool = POOL_COUNT.incrementAndGet();
+            var workerCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads - 1, threads - 1, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                var thread = new Thread(runnable, "mcts-" + pool + "-" + workerCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public RolloutPolicy getPolicy() {
+        return policy;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @param tablebase the tablebase probed by the next searches, or null
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * @param evaluationCache the cache of the evaluations ending unfinished rollouts, or null
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    public boolean isTreeReuse() {
+        return treeReuse;
+    }
+
+    /**
+     * @param treeReuse whether the next searches start from the subtree of their position in the tree of the last
+     *                  search, or from a new tree
+     */
+    public synchronized void setTreeReuse(boolean treeReuse) {
+        this.treeReuse = treeReuse;
+    }
+
+    /**
+     * @return number of playouts through the root that the last search started with, kept from earlier searches
+     */
+    public int getReusedPlayouts() {
+        return reusedPlayouts;
+    }
+
+    /**
+     * @return number of nodes of the last tree
+     */
+    public int getTreeSize() {
+        return Math.min(size.get(), capacity);
+    }
+
+    /**
+     * Search a position with all threads.
+     *
+     * @param position  the position, which is left unchanged when the search returns
+     * @param rootMoves the packed moves to choose from, or null for all valid moves; invalid moves are ignored
+     * @param limits    when to stop
+     * @return the most visited move, its expected result in permille from -1000 (certain loss) to 1000 (certain
+     * win) as score, the deepest selection as depth, and the number of playouts as nodes
+     */
+    public synchronized SearchResult search(Position position, int[] rootMoves, SearchLimits limits) {
+        long start = this.clock.nanoTime();
+        this.limits = limits;
+        this.playouts.set(0);
+        this.maxDepth.set(0);
+        this.stopped = false;
+
+        var legal = new int[position.maxMoves()];
+        int count = position.generateMoves(legal, 0);
+        int rootCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (rootMoves == null || contains(rootMoves, legal[i])) {
+                legal[rootCount++] = legal[i];
+            }
+        }
+        if (rootCount == 0) {
+            clearTree();
+            int score = position.sideToMoveWinsWithoutMoves() ? 1000 : -1000;
+            return new SearchResult(Position.NO_MOVE, score, 0, 0, this.clock.nanoTime() - start, new int[0]);
+        }
+        if (reuseTree(position, Arrays.copyOf(legal, rootCount))) {
+            this.reusedPlayouts = this.visits.get(0);
+        } else {
+            clearTree();
+            this.reusedPlayouts = 0;
+            if (rootCount + 1 > this.capacity) {
+                throw new IllegalStateException("tree of " + this.capacity + " nodes cannot hold " + rootCount
+                        + " moves");
+            }
+            this.size.set(1);
+            this.moves[0] = Position.NO_MOVE;
+            expand(0, legal, rootCount);
+        }
+        this.treePosition = position.copy();
+
+        var futures = new ArrayList<Future<?>>();
+        if (this.executor != null && !this.executor.isShutdown()) {
+            for (int i = 1; i < this.threads; i++) {
+                var worker = new Worker(position.copy(), this.seeds.split());
+                futures.add(this.executor.submit(worker::run));
+            }
+        }
+        try {
+            new Worker(position, this.seeds.split()).run();
+        } finally {
+            this.stopped = true;
+        }
+        boolean interrupted = false;
+        for (var future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("search thread failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return result(this.clock.nanoTime() - start);
+    }
+
+    /**
+     * Drop the tree and seed the playouts again, e.g. before a new game, so that the next searches play as on a
+     * new search created with the seed. The threads are kept.
+     *
+     * @param seed seed of the randomness of the next playouts
+     */
+    public synchronized void clear(long seed) {
+        clearTree();
+        this.reusedPlayouts = 0;
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    /**
+     * Let the worker threads end once idle. Searches after a shutdown run on the calling thread only.
+     */
+    public void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    public boolean isShutdown() {
+        return this.executor == null || this.executor.isShutdown();
+    }
+
+    private void clearTree() {
+        clearNodes(0, getTreeSize());
+        this.size.set(0);
+        this.treePosition = null;
+    }
+
+    private void clearNodes(int from, int to) {
+        for (int i = from; i < to; i++) {
+            this.states.set(i, UNEXPANDED);
+            this.visits.set(i, 0);
+            this.rewards.set(i, 0);
+            this.childCount[i] = 0;
+        }
+    }
+
+    /**
+     * Make the subtree of a position the tree, if the tree reached the position.
+     *
+     * @param position  the position of the search
+     * @param rootMoves the valid moves to choose from
+     * @return false if the tree has to be built anew
+     */
+    private boolean reuseTree(Position position, int[] rootMoves) {
+        if (!this.treeReuse || this.treePosition == null || this.treePosition.getSize() != position.getSize()) {
+            return false;
+        }
+        int root = find(this.treePosition.copy(), 0, 0, position.hash(), position.getNumMoves());
+        if (root < 0 || this.states.get(root) != EXPANDED) {
+            return false;
+        }
+        // narrow the children of the new root to the moves to choose from, keeping their subtrees
+        int first = this.firstChild[root];
+        int kept = 0;
+        int rootVisits = 0;
+        for (int child = first; child < first + this.childCount[root]; child++) {
+            if (contains(rootMoves, this.moves[child])) {
+                moveNode(child, first + kept++, this.firstChild[child]);
+                rootVisits += this.visits.get(child);
+            }
+        }
+        if (kept != rootMoves.length) {
+            return false;
+        }
+        this.childCount[root] = kept;
+        this.visits.set(root, rootVisits);
+        compact(root);
+        return true;
+    }
+
+    /**
+     * @return the node of the tree within {@link MonteCarloTreeSearch#MAX_REUSE_DEPTH} plies of a node with the
+     * position of the hash and number of moves, or -1
+     */
+    private int find(Position position, int node, int depth, long hash, int numMoves) {
+        if (position.hash() == hash && position.getNumMoves() == numMoves) {
+            return node;
+        }
+        if (depth == MAX_REUSE_DEPTH || this.states.get(node) != EXPANDED) {
+            return -1;
+        }
+        int first = this.firstChild[node];
+        for (int child = first; child < first + this.childCount[node]; child++) {
+            // the game is over after a winning move
+            int found = position.make(this.moves[child]) ? -1 : find(position, child, depth + 1, hash, numMoves);
+            position.unmake();
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the subtree of a node to the front of the arrays, the node becoming node 0, and clear the rest.
+     * Children have higher indices than their parent, so one pass in index order finds the subtree.
+     */
+    private void compact(int root) {
+        int used = getTreeSize();
+        if (this.remap == null) {
+            this.remap = new int[this.capacity];
+        }
+        var remap = this.remap;
+        Arrays.fill(remap, root, used, -1);
+        remap[root] = 0;
+        for (int i = root; i < used; i++) {
+            if (remap[i] >= 0 && this.states.get(i) == EXPANDED) {
+                Arrays.fill(remap, this.firstChild[i], this.firstChild[i] + this.childCount[i], 0);
+            }
+        }
+        int kept = 0;
+        for (int i = root; i < used; i++) {
+            if (remap[i] >= 0) {
+                remap[i] = kept++;
+            }
+        }
+        for (int i = root; i < used; i++) {
+            if (remap[i] >= 0) {
+                moveNode(i, remap[i], this.childCount[i] > 0 ? remap[this.firstChild[i]] : 0);
+            }
+        }
+        clearNodes(kept, used);
+        this.size.set(kept);
+    }
+
+    private void moveNode(int from, int to, int firstChild) {
+        this.moves[to] = this.moves[from];
+        this.firstChild[to] = firstChild;
+        this.childCount[to] = this.childCount[from];
+        this.states.set(to, this.states.get(from));
+        this.visits.set(to, this.visits.get(from));
+        this.rewards.set(to, this.rewards.get(from));
+    }
+
+    /**
+     * Add the children of a node, unless another thread is expanding it or the tree is full.
+     */
+    private void expand(int node, int[] moves, int count) {
+        if (this.size.get() + count > this.capacity || !this.states.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return;
+        }
+        int base = this.size.getAndAdd(count);
+        if (base + count > this.capacity) {
+            // the tree is full, the node stays a leaf
+            this.states.set(node, UNEXPANDED);
+            return;
+        }
+        System.arraycopy(moves, 0, this.moves, base, count);
+        this.firstChild[node] = base;
+        this.childCount[node] = count;
+        // publishes the children to the threads that see the node expanded
+        this.states.set(node, EXPANDED);
+    }
+
+    /**
+     * Select the child with the best UCT value and count a (virtual) visit for it.
+     */
+    private int select(int node) {
+        int first = this.firstChild[node];
+        int count = this.childCount[node];
+        double logVisits = Math.log(Math.max(1, this.visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + count; child++) {
+            int n = this.visits.get(child);
+            if (n == 0) {
+                best = child;
+                break;
+            }
+            double value = (double) this.rewards.get(child) / REWARD_ONE / n + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        this.visits.incrementAndGet(best);
+        return best;
+    }
+
+    private SearchResult result(long elapsedNanos) {
+        var pv = new ArrayList<Integer>();
+        int node = 0;
+        int bestChild = -1;
+        while (this.states.get(node) == EXPANDED && this.childCount[node] > 0) {
+            int best = -1;
+            for (int child = this.firstChild[node]; child < this.firstChild[node] + this.childCount[node]; child++) {
+                if (best < 0 || this.visits.get(child) > this.visits.get(best)) {
+                    best = child;
+                }
+            }
+            if (this.visits.get(best) == 0) {
+                break;
+            }
+            if (node == 0) {
+                bestChild = best;
+            }
+            pv.add(this.moves[best]);
+            node = best;
+        }
+        if (bestChild < 0) {
+            bestChild = this.firstChild[0];
+        }
+        int n = this.visits.get(bestChild);
+        double expected = n == 0 ? 0.5 : (double) this.rewards.get(bestChild) / REWARD_ONE / n;
+        int score = (int) Math.round((2 * expected - 1) * 1000);
+        return new SearchResult(this.moves[bestChild], score, this.maxDepth.get(), this.playouts.get(), elapsedNanos,
+                pv.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The state of one search thread: its own copy of the position, move buffer and randomness.
+     */
+    private class Worker {
+        private final Position position;
+        private final SplittableRandom random;
+        private final int[] buffer;
+        private final int[] path = new int[MAX_SELECTION_DEPTH + 1];
+
+        private Worker(Position position, SplittableRandom random) {
+            this.position = position;
+            this.random = random;
+            this.buffer = new int[position.maxMoves()];
+        }
+
+        private void run() {
+            long done = 0;
+            while (!stopped) {
+                playout();
+                done++;
+                long total = playouts.incrementAndGet();
+                if (total >= limits.getMaxNodes() || done % CHECK_INTERVAL == 0 && limits.isExpired(clock)) {
+                    stopped = true;
+                }
+            }
+        }
+
+        private void playout() {
+            int node = 0;
+            int depth = 0;
+            boolean won = false;
+            path[0] = 0;
+            visits.incrementAndGet(0);
+            while (!won && depth < MAX_SELECTION_DEPTH && states.get(node) == EXPANDED
+                    && childCount[node] > 0) {
+                node = select(node);
+                won = position.make(moves[node]);
+                path[++depth] = node;
+            }
+            maxDepth.accumulateAndGet(depth, Math::max);
+
+            // reward of the side that moved into the node
+            double reward;
+            if (won) {
+                reward = 1;
+            } else {
+                if (states.get(node) == UNEXPANDED) {
+                    int count = position.generateMoves(buffer, 0);
+                    expand(node, buffer, count);
+                }
+                reward = 1 - rollout();
+            }
+
+            for (int i = depth; i >= 0; i--) {
+                rewards.addAndGet(path[i], Math.round(reward * REWARD_ONE));
+                reward = 1 - reward;
+            }
+            for (int i = 0; i < depth; i++) {
+                position.unmake();
+            }
+        }
+
+        /**
+         * Play the position out by the rollout policy and take the moves back.
+         *
+         * @return result of the side to move: 1 for a win, 0 for a loss
+         */
+        private double rollout() {
+            int side = position.sideToMove;
+            if (tablebase != null) {
+                int value = tablebase.probe(position);
+                if (value != Tablebase.UNKNOWN && value != Tablebase.DRAW) {
+                    return value > 0 ? 1 : 0;
+                }
+            }
+            double result = -1;
+            int plies = 0;
+            while (plies < MAX_PLAYOUT_PLIES) {
+                int count = position.generateMoves(buffer, 0);
+                if (count == 0) {
+                    boolean moverWins = position.sideToMoveWinsWithoutMoves();
+                    result = moverWins == (position.sideToMove == side) ? 1 : 0;
+                    break;
+                }
+                int mover = position.sideToMove;
+                plies++;
+                if (position.make(policy.select(position, buffer, count, random))) {
+                    result = mover == side ? 1 : 0;
+                    break;
+                }
+            }
+            if (result < 0) {
+                // no winner yet, estimate the chance of winning from the evaluation
+                var cache = evaluationCache;
+                int score = cache != null ? cache.evaluate(position) : Evaluation.evaluate(position);
+                double chance = 1 / (1 + Math.exp(-score / 200.0));
+                result = position.sideToMove == side ? chance : 1 - chance;
+            }
+            for (int i = 0; i < plies; i++) {
+                position.unmake();
+            }
+            return result;
+        }
+    }
+}
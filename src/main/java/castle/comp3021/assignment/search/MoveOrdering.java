@@ -0,0 +1,196 @@
+package castle.comp3021.assignment.search;
+
+import java.util.Arrays;
+
+/**
+ * Orders the moves of each node of an {@link AlphaBetaSearch}, so that the moves most likely to cause a cutoff
+ * are searched first.
+ * <p>
+ * The move of the {@link TranspositionTable} comes first, then winning moves (a knight leaving the central square,
+ * or the capture of the last enemy piece), then captures, of knights before archers. Quiet moves follow: the two
+ * killer moves of the ply, which caused a cutoff in a sibling node, then the others by how often and how deep they
+ * caused cutoffs before.
+ * <p>
+ * Scores are kept in per-ply buffers and moves are picked one at a time by selection, so ordering a node
+ * allocates nothing, and a node cut off early does not pay for sorting all its moves.
+ * An ordering belongs to one search thread.
+ */
+public class MoveOrdering {
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int WINNING_MOVE = 1 << 29;
+    private static final int CAPTURE = 1 << 28;
+    private static final int KILLER = 1 << 27;
+
+    /**
+     * History scores are halved when one reaches this, so that they stay below {@link MoveOrdering#KILLER}.
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final int[][] killers = new int[AlphaBetaSearch.MAX_PLY][2];
+    private final int[][] scores = new int[AlphaBetaSearch.MAX_PLY][];
+
+    /**
+     * History scores indexed by side and by {@code from * squares + to}.
+     */
+    private int[][] history = new int[2][0];
+    private int squares = 0;
+
+    private boolean enabled = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled false to search the moves in generation order with only the table move first, to measure
+     *                what the ordering saves
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Prepare for a search of a position: keep what was learned from the previous search of a board of the same
+     * size, with less weight.
+     */
+    public void prepare(Position position) {
+        int squares = position.geometry.squares;
+        if (this.squares != squares) {
+            this.squares = squares;
+            this.history = new int[2][squares * squares];
+        } else {
+            for (var sideHistory : this.history) {
+                for (int i = 0; i < sideHistory.length; i++) {
+                    sideHistory[i] >>= 2;
+                }
+            }
+        }
+        for (var plyKillers : this.killers) {
+            plyKillers[0] = Position.NO_MOVE;
+            plyKillers[1] = Position.NO_MOVE;
+        }
+    }
+
+    /**
+     * Forget the killer moves and the history scores of all previous searches, e.g. before a new game.
+     */
+    public void clear() {
+        for (var sideHistory : this.history) {
+            Arrays.fill(sideHistory, 0);
+        }
+        for (var plyKillers : this.killers) {
+            plyKillers[0] = Position.NO_MOVE;
+            plyKillers[1] = Position.NO_MOVE;
+        }
+    }
+
+    /**
+     * Score the moves of a node.
+     *
+     * @param position the position of the node
+     * @param moves    the moves of the node
+     * @param count    number of moves
+     * @param ply      ply of the node
+     * @param hashMove the best move of the table, or {@link Position#NO_MOVE}
+     */
+    public void score(Position position, int[] moves, int count, int ply, int hashMove) {
+        if (this.scores[ply] == null || this.scores[ply].length < count) {
+            this.scores[ply] = new int[Math.max(count, position.maxMoves())];
+        }
+        var scores = this.scores[ply];
+        if (!this.enabled) {
+            for (int i = 0; i < count; i++) {
+                scores[i] = moves[i] == hashMove ? HASH_MOVE : -i;
+            }
+            return;
+        }
+        var board = position.board;
+        var sideHistory = this.history[position.sideToMove];
+        var plyKillers = this.killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Position.from(move);
+            int to = Position.to(move);
+            int victim = board[to];
+            int score;
+            if (move == hashMove) {
+                score = HASH_MOVE;
+            } else if (position.isWinningMove(move)) {
+                score = WINNING_MOVE;
+            } else if (victim != Position.EMPTY) {
+                score = CAPTURE + (Position.type(victim) == Position.KNIGHT ? 4 : 2)
+                        + (Position.type(board[from]) == Position.ARCHER ? 1 : 0);
+            } else if (move == plyKillers[0]) {
+                score = KILLER + 1;
+            } else if (move == plyKillers[1]) {
+                score = KILLER;
+            } else {
+                score = sideHistory[from * this.squares + to];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Move the best remaining move of a node to an index.
+     *
+     * @param moves the moves scored by {@link MoveOrdering#score}
+     * @param count number of moves
+     * @param index the index to fill, all moves before it having been picked already
+     * @param ply   ply of the node
+     * @return the move picked
+     */
+    public int next(int[] moves, int count, int index, int ply) {
+        var scores = this.scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves[index];
+    }
+
+    /**
+     * Learn from a move that caused a beta cutoff. Captures are already searched early and are not recorded.
+     *
+     * @param position the position of the node, before the move
+     * @param move     the move
+     * @param ply      ply of the node
+     * @param depth    remaining depth of the node
+     */
+    public void onCutoff(Position position, int move, int ply, int depth) {
+        if (!this.enabled || position.isCapture(move)) {
+            return;
+        }
+        var plyKillers = this.killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        var sideHistory = this.history[position.sideToMove];
+        int index = Position.from(move) * this.squares + Position.to(move);
+        sideHistory[index] += depth * depth;
+        if (sideHistory[index] >= HISTORY_LIMIT) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+
+    public int getHistory(int side, int move) {
+        return this.history[side][Position.from(move) * this.squares + Position.to(move)];
+    }
+
+    public int[] getKillers(int ply) {
+        return this.killers[ply].clone();
+    }
+}
@@ -0,0 +1,196 @@
+package castle.comp3021.assignment.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of self-play games by position and move, built by {@link OpeningBookBuilder} and read from a
+ * memory-mapped file.
+ * <p>
+ * The file is a header followed by entries of position hash, packed move, games and points, sorted by hash and
+ * move, so the moves of a position are found by binary search. Points are half points of the side to move: 2 for a
+ * win, 1 for a game stopped undecided, 0 for a loss. The book only answers games with the board size, capture
+ * protection and critical region it was built with, since positions under other rules can have the same hash.
+ * <p>
+ * A book is read-only once opened, and can be probed from several threads.
+ */
+public class OpeningBook {
+    /**
+     * Fewest games of a move before {@link OpeningBook#choose(Position)} trusts it.
+     */
+    public static final int MIN_GAMES = 3;
+
+    static final int MAGIC = 0x4A4D4F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 7 * Integer.BYTES;
+    static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int numMovesProtection;
+    private final int criticalRegionSize;
+    private final int criticalRegionCapacity;
+    private final int entryCount;
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.numMovesProtection = buffer.getInt(12);
+        this.criticalRegionSize = buffer.getInt(16);
+        this.criticalRegionCapacity = buffer.getInt(20);
+        this.entryCount = buffer.getInt(24);
+    }
+
+    /**
+     * Map a book file into memory.
+     *
+     * @param file the file written by {@link OpeningBookBuilder}
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not an opening book file");
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an opening book file of version " + VERSION);
+            }
+            if (channel.size() != HEADER_BYTES + (long) ENTRY_BYTES * buffer.getInt(24)) {
+                throw new IOException(file + " is truncated");
+            }
+            return new OpeningBook(buffer);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getNumMovesProtection() {
+        return numMovesProtection;
+    }
+
+    public int getCriticalRegionSize() {
+        return criticalRegionSize;
+    }
+
+    public int getCriticalRegionCapacity() {
+        return criticalRegionCapacity;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return whether the book was built with the rules of a position
+     */
+    public boolean covers(Position position) {
+        return position.size == this.size && position.numMovesProtection == this.numMovesProtection
+                && position.criticalRegionSize == this.criticalRegionSize
+                && position.criticalRegionCapacity == this.criticalRegionCapacity;
+    }
+
+    /**
+     * @param position the position
+     * @return the moves played from the position in the book, ordered by packed move
+     */
+    public List<Entry> lookup(Position position) {
+        var entries = new ArrayList<Entry>();
+        if (!covers(position)) {
+            return entries;
+        }
+        long hash = position.hash();
+        for (int i = lowerBound(hash); i < this.entryCount && hashAt(i) == hash; i++) {
+            int offset = HEADER_BYTES + i * ENTRY_BYTES;
+            entries.add(new Entry(this.buffer.getInt(offset + 8), this.buffer.getInt(offset + 12),
+                    this.buffer.getInt(offset + 16)));
+        }
+        return entries;
+    }
+
+    /**
+     * Pick the move with the best score among the moves played at least {@link OpeningBook#MIN_GAMES} times.
+     *
+     * @param position the position
+     * @return the packed move, or {@link Position#NO_MOVE} if the book has no trusted move of the position
+     */
+    public int choose(Position position) {
+        int bestMove = Position.NO_MOVE;
+        double bestScore = -1;
+        for (var entry : lookup(position)) {
+            if (entry.getGames() >= MIN_GAMES && entry.getScore() > bestScore) {
+                bestScore = entry.getScore();
+                bestMove = entry.getMove();
+            }
+        }
+        return bestMove;
+    }
+
+    private long hashAt(int index) {
+        return this.buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    /**
+     * @return index of the first entry whose hash is not less than a hash
+     */
+    private int lowerBound(long hash) {
+        int low = 0;
+        int high = this.entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hashAt(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A move of a position in the book.
+     */
+    public static final class Entry {
+        private final int move;
+        private final int games;
+        private final int points;
+
+        /**
+         * @param move   the packed move
+         * @param games  number of games the move was played in
+         * @param points half points of the side making the move over these games
+         */
+        public Entry(int move, int games, int points) {
+            this.move = move;
+            this.games = games;
+            this.points = points;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        /**
+         * @return expected result of the move between 0 and 1, moved towards 1/2 for moves of few games
+         */
+        public double getScore() {
+            return (this.points + 1) / (2.0 * this.games + 2);
+        }
+    }
+}
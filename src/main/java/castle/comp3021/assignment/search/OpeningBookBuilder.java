@@ -0,0 +1,230 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.SystemClock;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds an {@link OpeningBook} from self-play games of {@link AlphaBetaSearch} from the initial position of
+ * {@link castle.comp3021.assignment.protocol.Configuration#setAllInitialPieces()}.
+ * <p>
+ * In the first plies of the book a random move is played with probability {@link OpeningBookBuilder#EXPLORATION},
+ * and the best move found otherwise, so that the games spread over the likely openings. The games are played on by
+ * the search until they end or reach {@link OpeningBookBuilder#MAX_GAME_PLIES} plies undecided. They run in
+ * parallel, each with its own random stream split from the seed, so a book only depends on its settings.
+ * <p>
+ * Usage: {@code OpeningBookBuilder file size numMovesProtection criticalRegionSize criticalRegionCapacity games
+ * [bookPlies] [searchDepth] [seed]}.
+ */
+public class OpeningBookBuilder {
+    public static final double EXPLORATION = 0.25;
+    public static final int MAX_GAME_PLIES = 200;
+
+    private final int size;
+    private final int numMovesProtection;
+    private final int criticalRegionSize;
+    private final int criticalRegionCapacity;
+
+    /**
+     * @param size                   size of gameboard
+     * @param numMovesProtection     number of moves with capture protection
+     * @param criticalRegionSize     number of rows of the critical region
+     * @param criticalRegionCapacity knights of each player allowed in the critical region
+     */
+    public OpeningBookBuilder(int size, int numMovesProtection, int criticalRegionSize, int criticalRegionCapacity) {
+        this.size = size;
+        this.numMovesProtection = numMovesProtection;
+        this.criticalRegionSize = criticalRegionSize;
+        this.criticalRegionCapacity = criticalRegionCapacity;
+    }
+
+    /**
+     * Play self-play games and write their results to a book file.
+     *
+     * @param file        the book file to write
+     * @param games       number of games
+     * @param bookPlies   number of plies of each game recorded in the book
+     * @param searchDepth depth of the search choosing the moves
+     * @param seed        seed of the random moves
+     * @param threads     number of games played at a time
+     * @return number of entries of the book
+     * @throws IOException if the book cannot be written
+     */
+    public int build(Path file, int games, int bookPlies, int searchDepth, long seed, int threads)
+            throws IOException {
+        if (games < 1 || bookPlies < 1 || searchDepth < 1 || threads < 1) {
+            throw new IllegalArgumentException("games, book plies, search depth and threads must be at least 1");
+        }
+        var random = new SplittableRandom(seed);
+        var tasks = new ArrayList<Callable<SelfPlayGame>>();
+        for (int i = 0; i < games; i++) {
+            var gameRandom = random.split();
+            tasks.add(() -> play(bookPlies, searchDepth, gameRandom));
+        }
+
+        // points and games of each move of each position
+        var results = new HashMap<Key, int[]>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                var game = future.get();
+                for (int ply = 0; ply < game.plies; ply++) {
+                    var key = new Key(game.hashes[ply], game.moves[ply]);
+                    var counts = results.computeIfAbsent(key, k -> new int[2]);
+                    counts[0]++;
+                    counts[1] += game.winner < 0 ? 1 : ply % 2 == game.winner ? 2 : 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("building interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("self-play failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        write(file, results);
+        return results.size();
+    }
+
+    /**
+     * Play one game.
+     */
+    private SelfPlayGame play(int bookPlies, int searchDepth, SplittableRandom random) {
+        var position = Position.initial(this.size, this.numMovesProtection, this.criticalRegionSize,
+                this.criticalRegionCapacity);
+        var search = new AlphaBetaSearch(SystemClock.INSTANCE);
+        var limits = SearchLimits.ofDepth(searchDepth);
+        var moves = new int[position.maxMoves()];
+        var game = new SelfPlayGame(bookPlies);
+        for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+            int count = position.generateMoves(moves, 0);
+            if (count == 0) {
+                game.winner = position.sideToMoveWinsWithoutMoves() ? position.sideToMove : 1 - position.sideToMove;
+                return game;
+            }
+            int move;
+            if (ply < bookPlies && random.nextDouble() < EXPLORATION) {
+                move = moves[random.nextInt(count)];
+            } else {
+                // the search keeps the first of equal moves
+                for (int i = count - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = moves[i];
+                    moves[i] = moves[j];
+                    moves[j] = swap;
+                }
+                move = search.search(position, Arrays.copyOf(moves, count), limits).getBestMove();
+            }
+            if (ply < bookPlies) {
+                game.hashes[ply] = position.hash();
+                game.moves[ply] = move;
+                game.plies++;
+            }
+            if (position.make(move)) {
+                game.winner = 1 - position.sideToMove;
+                return game;
+            }
+        }
+        return game;
+    }
+
+    private void write(Path file, Map<Key, int[]> results) throws IOException {
+        var keys = new ArrayList<>(results.keySet());
+        keys.sort(Comparator.<Key>comparingLong(key -> key.hash).thenComparingInt(key -> key.move));
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    OpeningBook.HEADER_BYTES + (long) OpeningBook.ENTRY_BYTES * keys.size());
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(this.size)
+                    .putInt(this.numMovesProtection).putInt(this.criticalRegionSize)
+                    .putInt(this.criticalRegionCapacity).putInt(keys.size());
+            for (var key : keys) {
+                var counts = results.get(key);
+                buffer.putLong(key.hash).putInt(key.move).putInt(counts[0]).putInt(counts[1]);
+            }
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.out.println("Usage: OpeningBookBuilder file size numMovesProtection criticalRegionSize "
+                    + "criticalRegionCapacity games [bookPlies] [searchDepth] [seed]");
+            return;
+        }
+        var builder = new OpeningBookBuilder(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        int games = Integer.parseInt(args[5]);
+        int bookPlies = args.length > 6 ? Integer.parseInt(args[6]) : 8;
+        int searchDepth = args.length > 7 ? Integer.parseInt(args[7]) : 3;
+        long seed = args.length > 8 ? Long.parseLong(args[8]) : 3021;
+        long start = System.nanoTime();
+        int entries = builder.build(Path.of(args[0]), games, bookPlies, searchDepth, seed,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d games, %d entries, %.1f s%n", games, entries, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A move of a position.
+     */
+    private static final class Key {
+        final long hash;
+        final int move;
+
+        Key(long hash, int move) {
+            this.hash = hash;
+            this.move = move;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hash == key.hash && move == key.move;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, move);
+        }
+    }
+
+    /**
+     * The recorded plies of a game and its winner.
+     */
+    private static final class SelfPlayGame {
+        final long[] hashes;
+        final int[] moves;
+        int plies = 0;
+
+        /**
+         * Side that won, or -1 if the game was stopped undecided.
+         */
+        int winner = -1;
+
+        SelfPlayGame(int bookPlies) {
+            this.hashes = new long[bookPlies];
+            this.moves = new int[bookPlies];
+        }
+    }
+}
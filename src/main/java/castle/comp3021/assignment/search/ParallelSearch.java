@@ -0,0 +1,216 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazy SMP: several threads search the same position independently, sharing one {@link TranspositionTable}.
+ * <p>
+ * The calling thread runs the main search, whose result is returned. Helper threads search copies of the position
+ * at staggered depths and fill the table with results the main search then reuses. They are stopped as soon as the
+ * main search returns.
+ * <p>
+ * Helper threads are daemon threads kept for reuse between searches, and end after being idle for a while or
+ * on {@link ParallelSearch#shutdown()}. One search runs at a time.
+ */
+public class ParallelSearch {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private static final long IDLE_SECONDS = 30;
+
+    private final GameClock clock;
+    private final TranspositionTable table;
+    private final int threads;
+
+    private final AlphaBetaSearch main;
+    private final AlphaBetaSearch[] helpers;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Depth of the last search that was not stopped by {@link ParallelSearch#stop()}, or 0.
+     */
+    private volatile int lastDepth;
+
+    /**
+     * @param clock   the clock of the limits
+     * @param table   the table shared by all threads
+     * @param threads number of search threads, including the calling thread
+     */
+    public ParallelSearch(GameClock clock, TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of search threads must be at least 1");
+        }
+        this.clock = clock;
+        this.table = table;
+        this.threads = threads;
+        this.main = new AlphaBetaSearch(clock, table);
+        this.helpers = new AlphaBetaSearch[threads - 1];
+        for (int i = 0; i < this.helpers.length; i++) {
+            this.helpers[i] = new AlphaBetaSearch(clock, table);
+        }
+        if (this.helpers.length == 0) {
+            this.executor = null;
+        } else {
+            var pool = POOL_COUNT.incrementAndGet();
+            var helperCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(this.helpers.length, this.helpers.length,
+                    IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                var thread = new Thread(runnable, "search-" + pool + "-" + helperCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return the depth the last search completed within its limits, or 0 before the first search; searches stopped
+     * by {@link ParallelSearch#stop()} are not counted
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public Tablebase getTablebase() {
+        return this.main.getTablebase();
+    }
+
+    /**
+     * @param tablebase the tablebase probed by all threads, or null
+     */
+    public synchronized void setTablebase(Tablebase tablebase) {
+        this.main.setTablebase(tablebase);
+        for (var helper : this.helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return this.main.getEvaluationCache();
+    }
+
+    /**
+     * @param evaluationCache the cache of evaluations shared by all threads, or null
+     */
+    public synchronized void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.main.setEvaluationCache(evaluationCache);
+        for (var helper : this.helpers) {
+            helper.setEvaluationCache(evaluationCache);
+        }
+    }
+
+    /**
+     * Search a position with all threads.
+     *
+     * @param position  the position, which is left unchanged when the search returns
+     * @param rootMoves the packed moves to choose from, or null for all valid moves
+     * @param limits    when to stop
+     * @return result of the main search, with the nodes of all threads
+     */
+    public synchronized SearchResult search(Position position, int[] rootMoves, SearchLimits limits) {
+        var futures = new ArrayList<Future<SearchResult>>();
+        int helperCount = isShutdown() ? 0 : this.helpers.length;
+        for (int i = 0; i < helperCount; i++) {
+            var helper = this.helpers[i];
+            var copy = position.copy();
+            int id = i + 1;
+            helper.restart();
+            futures.add(this.executor.submit(() -> helper.search(copy, rootMoves, limits, id)));
+        }
+
+        SearchResult result;
+        try {
+            result = this.main.search(position, rootMoves, limits);
+        } finally {
+            for (var helper : this.helpers) {
+                helper.stop();
+            }
+        }
+
+        long nodes = result.getNodes();
+        boolean interrupted = false;
+        // helpers must be done before they are reused, so wait for them even if interrupted
+        for (var future : futures) {
+            while (true) {
+                try {
+                    nodes += future.get().getNodes();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("helper search failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (!this.main.isStopRequested()) {
+            this.lastDepth = result.getDepth();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getElapsedNanos(), result.getPrincipalVariation());
+    }
+
+    /**
+     * Stop the current search as soon as possible, e.g. from another thread. Its result is that of the deepest
+     * iteration completed so far. The stop is kept until {@link ParallelSearch#restart()}, so a search started
+     * after the stop returns at once.
+     */
+    public void stop() {
+        this.main.stop();
+        for (var helper : this.helpers) {
+            helper.stop();
+        }
+    }
+
+    /**
+     * Clear a {@link ParallelSearch#stop()}, before a turn hands the search to another thread that may stop it.
+     */
+    public void restart() {
+        this.main.restart();
+    }
+
+    /**
+     * Forget the move ordering of the main and helper searches and clear a {@link ParallelSearch#stop()}, e.g.
+     * before a new game. The threads are kept, and the transposition table is cleared by its owner.
+     */
+    public void clear() {
+        this.main.clear();
+        for (var helper : this.helpers) {
+            helper.clear();
+        }
+        this.lastDepth = 0;
+    }
+
+    /**
+     * Let the helper threads end once idle. Searches after a shutdown run on the calling thread only.
+     */
+    public void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    public boolean isShutdown() {
+        return this.executor == null || this.executor.isShutdown();
+    }
+}
@@ -0,0 +1,235 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches on the opponent's time: while the opponent (e.g. a human at the console) thinks about a move, the
+ * replies to each of the opponent's likely moves are searched in the background.
+ * <p>
+ * The opponent's moves are ranked by a shallow search, most likely first, and the positions after them are searched
+ * one depth at a time in that order, so that every likely move gets a result early and the likeliest get deeper
+ * ones. Results are kept by the hash of the position after the opponent's move. The searches also fill the shared
+ * {@link TranspositionTable}, which helps the turn even when the opponent plays a move that was not predicted.
+ */
+public class Ponderer {
+    private final GameClock clock;
+    private final TranspositionTable table;
+    private final int maxDepth;
+
+    /**
+     * Results of the deepest completed search of each predicted position, by hash.
+     */
+    private final Map<Long, SearchResult> results = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile Tablebase tablebase;
+    private volatile EvaluationCache evaluationCache;
+
+    private Thread thread;
+    private volatile AlphaBetaSearch search;
+    private volatile boolean stopped = true;
+
+    /**
+     * @param clock    the clock of the game
+     * @param table    the table shared with the searches of the turns
+     * @param maxDepth the deepest search of a predicted position
+     */
+    public Ponderer(GameClock clock, TranspositionTable table, int maxDepth) {
+        this.clock = clock;
+        this.table = table;
+        this.maxDepth = maxDepth;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @param tablebase the tablebase probed by the next pondering, or null
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * @param evaluationCache the cache of evaluations of the next pondering, or null
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * Start pondering, replacing the results of the previous pondering.
+     *
+     * @param position the position with the opponent to move; it is copied, and can be changed afterwards
+     */
+    public synchronized void start(Position position) {
+        stop();
+        this.results.clear();
+        this.stopped = false;
+        var copy = position.copy();
+        this.thread = new Thread(() -> ponder(copy), "ponder");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop pondering and wait for the background search to end. The results are kept.
+     */
+    public synchronized void stop() {
+        this.stopped = true;
+        var search = this.search;
+        if (search != null) {
+            search.stop();
+        }
+        if (this.thread != null) {
+            boolean interrupted = false;
+            while (this.thread.isAlive()) {
+                try {
+                    this.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Stop pondering and drop its results and counts, e.g. before a new game.
+     */
+    public synchronized void clear() {
+        stop();
+        this.results.clear();
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    public boolean isPondering() {
+        return !this.stopped;
+    }
+
+    /**
+     * Get the pondered result of a position, counting a hit or a miss.
+     *
+     * @param hash the hash of the position after the opponent's move
+     * @return the result of the deepest completed search of the position, or null if it was not predicted
+     */
+    public SearchResult getResult(long hash) {
+        var result = this.results.get(hash);
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * @return number of positions with a pondered result
+     */
+    public int getResultCount() {
+        return this.results.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void ponder(Position position) {
+        var search = new AlphaBetaSearch(this.clock, this.table);
+        search.setTablebase(this.tablebase);
+        search.setEvaluationCache(this.evaluationCache);
+        this.search = search;
+        if (this.stopped) {
+            return;
+        }
+        var replies = rankReplies(search, position);
+        for (int depth = 1; depth <= this.maxDepth && !this.stopped; depth++) {
+            boolean searched = false;
+            for (int reply : replies) {
+                if (position.make(reply)) {
+                    // the opponent wins, there is nothing to reply
+                    position.unmake();
+                    continue;
+                }
+                long hash = position.hash();
+                var previous = this.results.get(hash);
+                if (previous == null || previous.getDepth() < depth && !previous.isWin() && !previous.isLoss()) {
+                    var result = search.search(position, null, SearchLimits.ofDepth(depth));
+                    if (this.stopped) {
+                        position.unmake();
+                        return;
+                    }
+                    this.results.put(hash, result);
+                    searched = true;
+                }
+                position.unmake();
+            }
+            if (!searched) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the opponent's moves, the best for the opponent first by a shallow search
+     */
+    private int[] rankReplies(AlphaBetaSearch search, Position position) {
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+        var scores = new int[count];
+        for (int i = 0; i < count && !this.stopped; i++) {
+            if (position.make(moves[i])) {
+                scores[i] = AlphaBetaSearch.MATE;
+            } else {
+                scores[i] = -search.search(position, null, SearchLimits.ofDepth(1)).getScore();
+            }
+            position.unmake();
+        }
+        // insertion sort by descending score, there are few moves
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+        return Arrays.copyOf(moves, count);
+    }
+}
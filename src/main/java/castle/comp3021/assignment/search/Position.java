@@ -0,0 +1,701 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.protocol.Game;
+import castle.comp3021.assignment.protocol.Move;
+
+import java.util.Arrays;
+
+/**
+ * A compact, mutable JesonMor position for searching, with make/unmake of packed moves.
+ * <p>
+ * The rules are the same as those of {@link Knight}, {@link Archer} and
+ * {@link castle.comp3021.assignment.textversion.JesonMor}: knight blocking, archer screens, capture protection in
+ * the first moves, critical region capacity, the central square exit win, the capture-all win and the score
+ * tie-breaker when the side to move has no moves.
+ * <p>
+ * Sides are player indices in {@link castle.comp3021.assignment.protocol.Configuration#getPlayers()}, side 0
+ * moves first. A packed move is {@code from << 10 | to}.
+ * A position is owned by one thread; use {@link Position#copy()} to search it from several threads.
+ */
+public class Position {
+    public static final int EMPTY = 0;
+    public static final int KNIGHT = 0;
+    public static final int ARCHER = 1;
+
+    /**
+     * Number of piece codes, including {@link Position#EMPTY}.
+     */
+    static final int NUM_CODES = 5;
+
+    public static final int NO_MOVE = 0;
+
+    private static final int INITIAL_STACK = 256;
+
+    final BoardGeometry geometry;
+    final int size;
+
+    /**
+     * Piece code of each square, see {@link Position#code(int, int)}.
+     */
+    final byte[] board;
+
+    final int numMovesProtection;
+    final int criticalRegionSize;
+    final int criticalRegionCapacity;
+    final boolean[] inCriticalRegion;
+
+    int sideToMove;
+    int numMoves;
+
+    final int[] pieceCount = new int[2];
+    final int[] knightCount = new int[2];
+    final int[] knightsInRegion = new int[2];
+    final int[] score = new int[2];
+
+    long pieceHash;
+
+    /**
+     * The evaluation of the position, its values of each piece code on each square, and their sum for each side.
+     */
+    Evaluation evaluation = Evaluation.DEFAULT;
+    int[][] pieceSquare;
+    final int[] pieceSquareScore = new int[2];
+
+    private int ply = 0;
+    private int[] moveStack = new int[INITIAL_STACK];
+    private byte[] capturedStack = new byte[INITIAL_STACK];
+
+    /**
+     * An empty position.
+     *
+     * @param size                   size of gameboard
+     * @param numMovesProtection     number of moves with capture protection
+     * @param criticalRegionSize     number of rows of the critical region
+     * @param criticalRegionCapacity knights of each player allowed in the critical region
+     */
+    public Position(int size, int numMovesProtection, int criticalRegionSize, int criticalRegionCapacity) {
+        this.geometry = BoardGeometry.of(size);
+        this.size = size;
+        this.board = new byte[size * size];
+        this.numMovesProtection = numMovesProtection;
+        this.criticalRegionSize = criticalRegionSize;
+        this.criticalRegionCapacity = criticalRegionCapacity;
+        this.inCriticalRegion = new boolean[size * size];
+        int offset = (criticalRegionSize - 1) / 2;
+        for (int sq = 0; sq < size * size; sq++) {
+            int y = geometry.y(sq);
+            this.inCriticalRegion[sq] = y >= size / 2 - offset && y <= size / 2 + offset;
+        }
+        this.pieceSquare = this.evaluation.pieceSquareTable(this.geometry);
+    }
+
+    private Position(Position other) {
+        this.geometry = other.geometry;
+        this.size = other.size;
+        this.board = other.board.clone();
+        this.numMovesProtection = other.numMovesProtection;
+        this.criticalRegionSize = other.criticalRegionSize;
+        this.criticalRegionCapacity = other.criticalRegionCapacity;
+        this.inCriticalRegion = other.inCriticalRegion;
+        this.sideToMove = other.sideToMove;
+        this.numMoves = other.numMoves;
+        System.arraycopy(other.pieceCount, 0, this.pieceCount, 0, 2);
+        System.arraycopy(other.knightCount, 0, this.knightCount, 0, 2);
+        System.arraycopy(other.knightsInRegion, 0, this.knightsInRegion, 0, 2);
+        System.arraycopy(other.score, 0, this.score, 0, 2);
+        this.pieceHash = other.pieceHash;
+        this.evaluation = other.evaluation;
+        this.pieceSquare = other.pieceSquare;
+        System.arraycopy(other.pieceSquareScore, 0, this.pieceSquareScore, 0, 2);
+    }
+
+    /**
+     * Build the position of a game.
+     *
+     * @param game the game, whose pieces must all be {@link Knight}s or {@link Archer}s
+     * @return the position, with the current player of the game to move
+     * @throws IllegalArgumentException if the game has other kinds of pieces, see {@link Position#isSupported}
+     */
+    public static Position fromGame(Game game) {
+        var configuration = game.getConfiguration();
+        var players = configuration.getPlayers();
+        var position = new Position(configuration.getSize(), configuration.getNumMovesProtection(),
+                configuration.getCriticalRegionSize(), configuration.getCriticalRegionCapacity());
+        for (int x = 0; x < configuration.getSize(); x++) {
+            for (int y = 0; y < configuration.getSize(); y++) {
+                var piece = game.getPiece(x, y);
+                if (piece == null) {
+                    continue;
+                }
+                int type;
+                if (piece instanceof Knight) {
+                    type = KNIGHT;
+                } else if (piece instanceof Archer) {
+                    type = ARCHER;
+                } else {
+                    throw new IllegalArgumentException("unsupported piece " + piece.getClass().getSimpleName());
+                }
+                position.put(piece.getPlayer().equals(players[0]) ? 0 : 1, type, position.geometry.square(x, y));
+            }
+        }
+        position.numMoves = game.getNumMoves();
+        position.sideToMove = game.getCurrentPlayerID();
+        position.score[0] = players[0].getScore();
+        position.score[1] = players[1].getScore();
+        position.setEvaluation(configuration.getEvaluation());
+        return position;
+    }
+
+    /**
+     * The initial position of {@link castle.comp3021.assignment.protocol.Configuration#setAllInitialPieces()}:
+     * knights and archers alternate along the first row of side 0 and the last row of side 1.
+     */
+    public static Position initial(int size, int numMovesProtection, int criticalRegionSize,
+                                   int criticalRegionCapacity) {
+        var position = new Position(size, numMovesProtection, criticalRegionSize, criticalRegionCapacity);
+        for (int x = 0; x < size; x++) {
+            int type = x % 2 == 0 ? KNIGHT : ARCHER;
+            position.put(0, type, position.geometry.square(x, 0));
+            position.put(1, type, position.geometry.square(x, size - 1));
+        }
+        return position;
+    }
+
+    /**
+     * @param game the game
+     * @return whether {@link Position#fromGame(Game)} supports the pieces of the game
+     */
+    public static boolean isSupported(Game game) {
+        for (var column : game.getBoard()) {
+            for (var piece : column) {
+                if (piece != null && !(piece instanceof Knight) && !(piece instanceof Archer)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public Position copy() {
+        return new Position(this);
+    }
+
+    /**
+     * Put a piece on an empty square. Only used to set positions up.
+     */
+    public void put(int side, int type, int square) {
+        if (this.board[square] != EMPTY) {
+            throw new IllegalArgumentException("square " + square + " is occupied");
+        }
+        int code = code(side, type);
+        this.board[square] = (byte) code;
+        this.pieceHash ^= geometry.zobrist[code][square];
+        this.pieceSquareScore[side] += this.pieceSquare[code][square];
+        this.pieceCount[side]++;
+        if (type == KNIGHT) {
+            this.knightCount[side]++;
+            if (this.inCriticalRegion[square]) {
+                this.knightsInRegion[side]++;
+            }
+        }
+    }
+
+    /**
+     * Remove all pieces, with side 0 to move and the capture protection over. Only used to set positions up.
+     */
+    void clear() {
+        Arrays.fill(this.board, (byte) EMPTY);
+        Arrays.fill(this.pieceCount, 0);
+        Arrays.fill(this.knightCount, 0);
+        Arrays.fill(this.knightsInRegion, 0);
+        Arrays.fill(this.score, 0);
+        Arrays.fill(this.pieceSquareScore, 0);
+        this.pieceHash = 0;
+        this.ply = 0;
+        this.sideToMove = 0;
+        this.numMoves = this.numMovesProtection;
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Evaluate the position, and the positions made from it, with other weights.
+     */
+    public void setEvaluation(Evaluation evaluation) {
+        this.evaluation = evaluation;
+        this.pieceSquare = evaluation.pieceSquareTable(this.geometry);
+        Arrays.fill(this.pieceSquareScore, 0);
+        for (int sq = 0; sq < this.board.length; sq++) {
+            int code = this.board[sq];
+            if (code != EMPTY) {
+                this.pieceSquareScore[side(code)] += this.pieceSquare[code][sq];
+            }
+        }
+    }
+
+    /* Piece codes start */
+    public static int code(int side, int type) {
+        return 1 + side * 2 + type;
+    }
+
+    public static int side(int code) {
+        return (code - 1) >> 1;
+    }
+
+    public static int type(int code) {
+        return (code - 1) & 1;
+    }
+
+    public static boolean isKnight(int code) {
+        return code != EMPTY && type(code) == KNIGHT;
+    }
+    /* Piece codes end */
+
+    /* Packed moves start */
+    public static int move(int from, int to) {
+        return from << 10 | to;
+    }
+
+    public static int from(int move) {
+        return move >>> 10;
+    }
+
+    public static int to(int move) {
+        return move & 0x3FF;
+    }
+
+    public Move toMove(int move) {
+        return new Move(geometry.x(from(move)), geometry.y(from(move)), geometry.x(to(move)), geometry.y(to(move)));
+    }
+
+    public int fromMove(Move move) {
+        return move(geometry.square(move.getSource().x(), move.getSource().y()),
+                geometry.square(move.getDestination().x(), move.getDestination().y()));
+    }
+    /* Packed moves end */
+
+    /* Getters start */
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getPiece(int square) {
+        return board[square];
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    public int getNumMovesProtection() {
+        return numMovesProtection;
+    }
+
+    public int getPieceCount(int side) {
+        return pieceCount[side];
+    }
+
+    public int getKnightCount(int side) {
+        return knightCount[side];
+    }
+
+    public int getKnightsInRegion(int side) {
+        return knightsInRegion[side];
+    }
+
+    public int getCriticalRegionSize() {
+        return criticalRegionSize;
+    }
+
+    public int getCriticalRegionCapacity() {
+        return criticalRegionCapacity;
+    }
+
+    public boolean isInCriticalRegion(int square) {
+        return inCriticalRegion[square];
+    }
+
+    public int getScore(int side) {
+        return score[side];
+    }
+
+    /**
+     * @return number of moves made on this position since it was built
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    public boolean isCaptureAllowed() {
+        return numMoves >= numMovesProtection;
+    }
+    /* Getters end */
+
+    /**
+     * @return Zobrist hash of the position, including the side to move and the capture protection phase
+     */
+    public long hash() {
+        long hash = this.pieceHash;
+        if (this.sideToMove == 1) {
+            hash ^= geometry.sideKey;
+        }
+        if (this.numMoves < this.numMovesProtection) {
+            hash ^= geometry.protectionKeys[this.numMoves & (geometry.protectionKeys.length - 1)];
+        }
+        return hash;
+    }
+
+    /**
+     * @return an upper bound of the number of moves the side to move can have, to size move buffers
+     */
+    public int maxMoves() {
+        int perPiece = Math.max(8, 2 * (size - 1));
+        return Math.max(pieceCount[0], pieceCount[1]) * perPiece + 1;
+    }
+
+    /**
+     * Generate all valid moves of the side to move.
+     *
+     * @param moves  buffer to write the packed moves to
+     * @param offset index of the buffer to start writing at
+     * @return number of moves written
+     */
+    public int generateMoves(int[] moves, int offset) {
+        int n = offset;
+        int side = this.sideToMove;
+        boolean captureAllowed = isCaptureAllowed();
+        boolean regionFull = this.knightsInRegion[side] + 1 > this.criticalRegionCapacity;
+        var board = this.board;
+        for (int from = 0; from < board.length; from++) {
+            int code = board[from];
+            if (code == EMPTY || side(code) != side) {
+                continue;
+            }
+            if (type(code) == KNIGHT) {
+                var targets = geometry.knightTargets[from];
+                var legs = geometry.knightLegs[from];
+                boolean enteringBlocked = regionFull && !this.inCriticalRegion[from];
+                for (int i = 0; i < targets.length; i++) {
+                    int to = targets[i];
+                    if (board[legs[i]] != EMPTY) {
+                        continue;
+                    }
+                    int target = board[to];
+                    if (target != EMPTY && (side(target) == side || !captureAllowed)) {
+                        continue;
+                    }
+                    if (enteringBlocked && this.inCriticalRegion[to]) {
+                        continue;
+                    }
+                    moves[n++] = move(from, to);
+                }
+            } else {
+                for (var ray : geometry.rays[from]) {
+                    int i = 0;
+                    while (i < ray.length && board[ray[i]] == EMPTY) {
+                        moves[n++] = move(from, ray[i]);
+                        i++;
+                    }
+                    if (!captureAllowed) {
+                        continue;
+                    }
+                    // skip the screen, then the first piece behind it can be captured
+                    i++;
+                    while (i < ray.length && board[ray[i]] == EMPTY) {
+                        i++;
+                    }
+                    if (i < ray.length && side(board[ray[i]]) != side) {
+                        moves[n++] = move(from, ray[i]);
+                    }
+                }
+            }
+        }
+        return n - offset;
+    }
+
+    /**
+     * @param move a packed move
+     * @return whether the move is valid for the side to move
+     */
+    public boolean isLegal(int move) {
+        var moves = new int[maxMoves()];
+        int count = generateMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param move a packed move of the side to move
+     * @return whether the move captures a piece
+     */
+    public boolean isCapture(int move) {
+        return board[to(move)] != EMPTY;
+    }
+
+    /**
+     * @param move a packed valid move of the side to move
+     * @return whether making the move wins the game at once
+     */
+    public boolean isWinningMove(int move) {
+        if (this.numMoves + 1 <= this.numMovesProtection) {
+            return false;
+        }
+        int from = from(move);
+        int to = to(move);
+        if (isKnight(board[from]) && from == geometry.central && to != geometry.central) {
+            return true;
+        }
+        return board[to] != EMPTY && this.pieceCount[1 - this.sideToMove] == 1;
+    }
+
+    /**
+     * Find a winning exit of a knight of a side from the central square.
+     *
+     * @param side     the side
+     * @param numMoves number of moves made when the side would move, e.g. {@code getNumMoves() + 1} for the side
+     *                 not to move
+     * @return a packed move of the knight of the side on the central square leaving it and winning, or
+     * {@link Position#NO_MOVE} if there is none
+     */
+    public int centralExit(int side, int numMoves) {
+        int central = geometry.central;
+        int code = this.board[central];
+        if (numMoves + 1 <= this.numMovesProtection || !isKnight(code) || side(code) != side) {
+            return NO_MOVE;
+        }
+        var targets = geometry.knightTargets[central];
+        var legs = geometry.knightLegs[central];
+        for (int i = 0; i < targets.length; i++) {
+            int target = this.board[targets[i]];
+            // captures are allowed once the protection is over, and the critical region holds the central square
+            if (this.board[legs[i]] == EMPTY && (target == EMPTY || side(target) != side)) {
+                return move(central, targets[i]);
+            }
+        }
+        return NO_MOVE;
+    }
+
+    /**
+     * Static exchange evaluation of a capture: the material won by the capture once both sides have recaptured on
+     * its square with their least valuable piece, each only as long as recapturing pays.
+     * Values are those of {@link Evaluation#pieceValue(int)}.
+     *
+     * @param move a packed valid capture of the side to move
+     * @return the material won, negative if the capture loses material
+     */
+    public int staticExchange(int move) {
+        int to = to(move);
+        int gain = this.evaluation.pieceValue(this.board[to]);
+        if (!make(move)) {
+            gain -= recapture(to);
+        }
+        unmake();
+        return gain;
+    }
+
+    /**
+     * @return the material the side to move wins by recapturing on a square, at least 0
+     */
+    private int recapture(int square) {
+        int move = leastValuableAttacker(square);
+        if (move == NO_MOVE) {
+            return 0;
+        }
+        int gain = this.evaluation.pieceValue(this.board[square]);
+        if (!make(move)) {
+            gain -= recapture(square);
+        }
+        unmake();
+        return Math.max(0, gain);
+    }
+
+    /**
+     * @param square a square holding a piece of the side not to move
+     * @return the packed capture of the piece by the least valuable piece of the side to move, or
+     * {@link Position#NO_MOVE} if it cannot be captured
+     */
+    int leastValuableAttacker(int square) {
+        if (!isCaptureAllowed()) {
+            return NO_MOVE;
+        }
+        int side = this.sideToMove;
+        var board = this.board;
+        int knight = code(side, KNIGHT);
+        int archer = code(side, ARCHER);
+
+        int archerMove = NO_MOVE;
+        for (var ray : geometry.rays[square]) {
+            int i = 0;
+            while (i < ray.length && board[ray[i]] == EMPTY) {
+                i++;
+            }
+            // skip the screen, then the first piece behind it can capture
+            i++;
+            while (i < ray.length && board[ray[i]] == EMPTY) {
+                i++;
+            }
+            if (i < ray.length && board[ray[i]] == archer) {
+                archerMove = move(ray[i], square);
+                break;
+            }
+        }
+        if (archerMove != NO_MOVE
+                && this.evaluation.pieceValue(archer) <= this.evaluation.pieceValue(knight)) {
+            return archerMove;
+        }
+
+        boolean regionFull = this.knightsInRegion[side] + 1 > this.criticalRegionCapacity;
+        var sources = geometry.knightTargets[square];
+        var legs = geometry.knightSourceLegs[square];
+        for (int i = 0; i < sources.length; i++) {
+            int from = sources[i];
+            if (board[from] == knight && board[legs[i]] == EMPTY
+                    && !(regionFull && !this.inCriticalRegion[from] && this.inCriticalRegion[square])) {
+                return move(from, square);
+            }
+        }
+        return archerMove;
+    }
+
+    /**
+     * Make a valid move of the side to move.
+     *
+     * @param move the packed move
+     * @return true if the move wins the game for the side that made it
+     */
+    public boolean make(int move) {
+        int from = from(move);
+        int to = to(move);
+        int side = this.sideToMove;
+        int opponent = 1 - side;
+        int code = this.board[from];
+        int captured = this.board[to];
+        var zobrist = geometry.zobrist;
+
+        if (this.ply == this.moveStack.length) {
+            this.moveStack = Arrays.copyOf(this.moveStack, this.ply * 2);
+            this.capturedStack = Arrays.copyOf(this.capturedStack, this.ply * 2);
+        }
+        this.moveStack[this.ply] = move;
+        this.capturedStack[this.ply] = (byte) captured;
+        this.ply++;
+
+        this.pieceHash ^= zobrist[code][from] ^ zobrist[code][to];
+        var pieceSquare = this.pieceSquare;
+        this.pieceSquareScore[side] += pieceSquare[code][to] - pieceSquare[code][from];
+        if (captured != EMPTY) {
+            this.pieceHash ^= zobrist[captured][to];
+            this.pieceSquareScore[opponent] -= pieceSquare[captured][to];
+            this.pieceCount[opponent]--;
+            if (type(captured) == KNIGHT) {
+                this.knightCount[opponent]--;
+                if (this.inCriticalRegion[to]) {
+                    this.knightsInRegion[opponent]--;
+                }
+            }
+        }
+        this.board[to] = (byte) code;
+        this.board[from] = EMPTY;
+        boolean knight = type(code) == KNIGHT;
+        if (knight) {
+            if (this.inCriticalRegion[from]) {
+                this.knightsInRegion[side]--;
+            }
+            if (this.inCriticalRegion[to]) {
+                this.knightsInRegion[side]++;
+            }
+        }
+        this.score[side] += geometry.distance(from, to);
+        this.numMoves++;
+        this.sideToMove = opponent;
+
+        if (this.numMoves <= this.numMovesProtection) {
+            return false;
+        }
+        return (knight && from == geometry.central && to != geometry.central) || this.pieceCount[opponent] == 0;
+    }
+
+    /**
+     * Take back the last move made by {@link Position#make(int)}.
+     */
+    public void unmake() {
+        this.ply--;
+        int move = this.moveStack[this.ply];
+        int captured = this.capturedStack[this.ply];
+        int from = from(move);
+        int to = to(move);
+        int opponent = this.sideToMove;
+        int side = 1 - opponent;
+        int code = this.board[to];
+        var zobrist = geometry.zobrist;
+
+        this.sideToMove = side;
+        this.numMoves--;
+        this.score[side] -= geometry.distance(from, to);
+        if (type(code) == KNIGHT) {
+            if (this.inCriticalRegion[to]) {
+                this.knightsInRegion[side]--;
+            }
+            if (this.inCriticalRegion[from]) {
+                this.knightsInRegion[side]++;
+            }
+        }
+        this.board[from] = (byte) code;
+        this.board[to] = (byte) captured;
+        this.pieceHash ^= zobrist[code][from] ^ zobrist[code][to];
+        var pieceSquare = this.pieceSquare;
+        this.pieceSquareScore[side] -= pieceSquare[code][to] - pieceSquare[code][from];
+        if (captured != EMPTY) {
+            this.pieceHash ^= zobrist[captured][to];
+            this.pieceSquareScore[opponent] += pieceSquare[captured][to];
+            this.pieceCount[opponent]++;
+            if (type(captured) == KNIGHT) {
+                this.knightCount[opponent]++;
+                if (this.inCriticalRegion[to]) {
+                    this.knightsInRegion[opponent]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * When the side to move has no valid move, the game ends and the player with the lower score wins, ties going
+     * to the side to move.
+     *
+     * @return whether the side to move wins when it has no valid move
+     */
+    public boolean sideToMoveWinsWithoutMoves() {
+        return this.score[this.sideToMove] <= this.score[1 - this.sideToMove];
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (int y = size - 1; y >= 0; y--) {
+            for (int x = 0; x < size; x++) {
+                int code = board[geometry.square(x, y)];
+                char c = code == EMPTY ? (geometry.square(x, y) == geometry.central ? 'x' : '.')
+                        : (type(code) == KNIGHT ? 'K' : 'A');
+                builder.append(code != EMPTY && side(code) == 1 ? Character.toLowerCase(c) : c);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,412 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+import castle.comp3021.assignment.protocol.SystemClock;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proof-number search: decides whether the side to move can force a win, by a knight leaving the central square
+ * or by capturing all pieces, within a number of plies.
+ * <p>
+ * The side to move at the root attacks: a node where it moves is won if any child is, and a node where the
+ * defender moves is won if all children are. Each node has a proof number, the fewest leaves left to prove it, and a
+ * disproof number, the fewest left to refute it. Every iteration walks from the root to the most proving leaf,
+ * expands it and updates the numbers along its path. A node is decided when its move wins, when a knight of the
+ * side to move can leave the central square at once (see {@link Position#centralExit(int, int)}), when the side to
+ * move has no valid move, or when the ply limit is reached without a win, which counts as refuted.
+ * <p>
+ * Nodes live in preallocated primitive arrays indexed by node number, node 0 being the root. The tree has no
+ * transpositions, which keeps the numbers exact at the price of solving repeated positions again.
+ * <p>
+ * Searches stop when the root is decided, at the deadline of their {@link SearchLimits}, or when the tree would
+ * exceed {@link SearchLimits#getMaxNodes()} nodes. The maximum depth of the limits is the ply limit.
+ * A search runs on the calling thread with {@link ProofNumberSearch#solve(Position, int[], SearchLimits)}, or on
+ * the worker thread of the search with {@link ProofNumberSearch#submit(Position, int[], SearchLimits, Runnable)}.
+ * One search runs at a time.
+ * <p>
+ * Usage: {@code ProofNumberSearch size numMovesProtection criticalRegionSize criticalRegionCapacity [plies]
+ * [nodes]}, which solves the initial position of a board for every ply limit up to plies, 9 by default, with at
+ * most nodes nodes, {@code 1 << 22} by default.
+ */
+public class ProofNumberSearch {
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final int CHECK_INTERVAL = 64;
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private static final long IDLE_SECONDS = 30;
+
+    private final GameClock clock;
+    private final int capacity;
+
+    /* Tree start */
+    private final int[] moves;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] proof;
+    private final int[] disproof;
+    private int size;
+    /* Tree end */
+
+    private final ThreadPoolExecutor executor;
+    private volatile boolean stopped;
+
+    /**
+     * The last proven line and the hashes of the positions before its moves, see
+     * {@link ProofNumberSearch#provenMove(Position)}.
+     */
+    private volatile ProvenLine provenLine;
+
+    private static class ProvenLine {
+        private final int[] moves;
+        private final long[] hashes;
+
+        private ProvenLine(int[] moves, long[] hashes) {
+            this.moves = moves;
+            this.hashes = hashes;
+        }
+    }
+
+    /**
+     * @param clock    the clock of the limits
+     * @param capacity maximum number of nodes of the tree
+     */
+    public ProofNumberSearch(GameClock clock, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("tree must have room for at least 1 node");
+        }
+        this.clock = clock;
+        this.capacity = capacity;
+        this.moves = new int[capacity];
+        this.firstChild = new int[capacity];
+        this.childCount = new int[capacity];
+        this.proof = new int[capacity];
+        this.disproof = new int[capacity];
+        var pool = POOL_COUNT.incrementAndGet();
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "proof-" + pool);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Solve a position on the calling thread.
+     *
+     * @param position  the position, which is left unchanged when the search returns
+     * @param rootMoves the packed moves to choose from, or null for all valid moves; invalid moves are ignored
+     * @param limits    when to stop; the maximum depth is the ply limit
+     * @return whether the side to move wins within the ply limit
+     */
+    public ProofResult solve(Position position, int[] rootMoves, SearchLimits limits) {
+        this.stopped = false;
+        return run(position, rootMoves, limits);
+    }
+
+    /**
+     * Solve a position on the worker thread of the search, e.g. while the calling thread searches the same position
+     * with {@link AlphaBetaSearch}. Runs on the calling thread after {@link ProofNumberSearch#shutdown()}.
+     *
+     * @param position  the position; it is copied, and can be changed afterwards
+     * @param rootMoves the packed moves to choose from, or null for all valid moves; invalid moves are ignored
+     * @param limits    when to stop; the maximum depth is the ply limit
+     * @param onProven  run on the worker thread as soon as a win is proven, e.g. to stop the other search, or null
+     * @return the result, once the search stops
+     */
+    public Future<ProofResult> submit(Position position, int[] rootMoves, SearchLimits limits, Runnable onProven) {
+        var copy = position.copy();
+        var moves = rootMoves == null ? null : rootMoves.clone();
+        this.stopped = false;
+        if (this.executor.isShutdown()) {
+            return CompletableFuture.completedFuture(notifyProven(run(copy, moves, limits), onProven));
+        }
+        return this.executor.submit(() -> notifyProven(run(copy, moves, limits), onProven));
+    }
+
+    private static ProofResult notifyProven(ProofResult result, Runnable onProven) {
+        if (result.isProven() && onProven != null) {
+            onProven.run();
+        }
+        return result;
+    }
+
+    /**
+     * Stop the current search as soon as possible, e.g. from another thread. Its result is then
+     * {@link ProofResult.Status#UNKNOWN} unless the root was decided.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Forget the last proven line, e.g. before a new game. The thread is kept.
+     */
+    public void clear() {
+        this.provenLine = null;
+    }
+
+    /**
+     * Let the worker thread end once idle. Searches submitted after a shutdown run on the calling thread.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Follow the last proven line: when the defender answered as in the line, the next move of the line still wins
+     * within the ply limit, and needs no search.
+     *
+     * @param position a position with the attacker to move
+     * @return the packed move of the last proven line at the position, or {@link Position#NO_MOVE} if the position
+     * is not on the line
+     */
+    public int provenMove(Position position) {
+        var line = this.provenLine;
+        if (line == null) {
+            return Position.NO_MOVE;
+        }
+        long hash = position.hash();
+        for (int i = 0; i < line.hashes.length; i++) {
+            if (line.hashes[i] == hash) {
+                return line.moves[i * 2];
+            }
+        }
+        return Position.NO_MOVE;
+    }
+
+    private synchronized ProofResult run(Position position, int[] rootMoves, SearchLimits limits) {
+        long start = this.clock.nanoTime();
+        int plies = limits.getMaxDepth();
+        long maxNodes = Math.min(limits.getMaxNodes(), this.capacity);
+        var buffer = new int[position.maxMoves()];
+        var path = new int[plies + 1];
+
+        this.size = 1;
+        this.moves[0] = Position.NO_MOVE;
+        this.childCount[0] = 0;
+        this.proof[0] = 1;
+        this.disproof[0] = 1;
+        for (long iteration = 1; this.proof[0] != 0 && this.disproof[0] != 0 && !this.stopped; iteration++) {
+            if (iteration % CHECK_INTERVAL == 0 && limits.isExpired(this.clock)) {
+                break;
+            }
+            // select the most proving leaf
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            while (this.childCount[node] > 0) {
+                node = select(node, depth % 2 == 0);
+                position.make(this.moves[node]);
+                path[++depth] = node;
+            }
+            boolean expanded = expand(node, depth, plies, position, depth == 0 ? rootMoves : null, buffer, maxNodes);
+            for (int d = depth; d >= 0; d--) {
+                update(path[d], d % 2 == 0);
+                if (d > 0) {
+                    position.unmake();
+                }
+            }
+            if (!expanded) {
+                break;
+            }
+        }
+
+        var status = this.proof[0] == 0 ? ProofResult.Status.PROVEN
+                : this.disproof[0] == 0 ? ProofResult.Status.DISPROVEN : ProofResult.Status.UNKNOWN;
+        var line = status == ProofResult.Status.PROVEN ? provenLine(position, plies) : new int[0];
+        return new ProofResult(status, plies, this.size, this.clock.nanoTime() - start, line);
+    }
+
+    /**
+     * @return the child with the smallest proof number of an OR node, or the smallest disproof number of an AND
+     * node, the first one on ties
+     */
+    private int select(int node, boolean or) {
+        var numbers = or ? this.proof : this.disproof;
+        int first = this.firstChild[node];
+        int best = first;
+        for (int child = first + 1; child < first + this.childCount[node]; child++) {
+            if (numbers[child] < numbers[best]) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Give a leaf one child per valid move, deciding the children that can be decided at once.
+     *
+     * @param rootMoves the moves of the root, or null for all valid moves
+     * @return false if the tree has no room for the children
+     */
+    private boolean expand(int node, int depth, int plies, Position position, int[] rootMoves, int[] buffer,
+                           long maxNodes) {
+        int count = 0;
+        if (rootMoves == null) {
+            count = position.generateMoves(buffer, 0);
+        } else {
+            for (int move : rootMoves) {
+                if (position.isLegal(move)) {
+                    buffer[count++] = move;
+                }
+            }
+        }
+        boolean attackerMoves = depth % 2 == 0;
+        if (count == 0) {
+            decide(node, position.sideToMoveWinsWithoutMoves() == attackerMoves);
+            return true;
+        }
+        if (this.size + count > maxNodes) {
+            return false;
+        }
+
+        int first = this.size;
+        for (int i = 0; i < count; i++) {
+            int child = this.size++;
+            this.moves[child] = buffer[i];
+            this.childCount[child] = 0;
+            if (position.make(buffer[i])) {
+                decide(child, attackerMoves);
+            } else if (depth + 1 >= plies) {
+                decide(child, false);
+            } else if (position.centralExit(position.getSideToMove(), position.getNumMoves()) != Position.NO_MOVE) {
+                // the side to move at the child wins with its next move
+                decide(child, !attackerMoves);
+            } else {
+                this.proof[child] = 1;
+                this.disproof[child] = 1;
+            }
+            position.unmake();
+        }
+        this.firstChild[node] = first;
+        this.childCount[node] = count;
+        return true;
+    }
+
+    private void decide(int node, boolean attackerWins) {
+        this.proof[node] = attackerWins ? 0 : INFINITY;
+        this.disproof[node] = attackerWins ? INFINITY : 0;
+    }
+
+    /**
+     * Compute the numbers of an expanded node from its children.
+     */
+    private void update(int node, boolean or) {
+        int count = this.childCount[node];
+        if (count == 0) {
+            return;
+        }
+        var minimized = or ? this.proof : this.disproof;
+        var summed = or ? this.disproof : this.proof;
+        int min = INFINITY;
+        long sum = 0;
+        int first = this.firstChild[node];
+        for (int child = first; child < first + count; child++) {
+            min = Math.min(min, minimized[child]);
+            sum = Math.min(sum + summed[child], INFINITY);
+        }
+        minimized[node] = min;
+        summed[node] = (int) sum;
+    }
+
+    /**
+     * Follow the proof from the root, taking a winning move of the attacker, an immediate win first, and the first
+     * reply of the defender, and keep it for {@link ProofNumberSearch#provenMove(Position)}.
+     *
+     * @param position the root position, which is left unchanged
+     * @return the moves of the line, at most plies of them
+     */
+    private int[] provenLine(Position position, int plies) {
+        var line = new int[plies];
+        var hashes = new long[(plies + 1) / 2];
+        int length = 0;
+        int made = 0;
+        int node = 0;
+        for (int depth = 0; ; depth++) {
+            boolean or = depth % 2 == 0;
+            if (this.childCount[node] == 0) {
+                // a leaf won by the attacker to move is won by a central exit, unless the defender has no valid move
+                int exit = or ? position.centralExit(position.getSideToMove(), position.getNumMoves())
+                        : Position.NO_MOVE;
+                if (exit != Position.NO_MOVE) {
+                    hashes[length / 2] = position.hash();
+                    line[length++] = exit;
+                }
+                break;
+            }
+            if (or) {
+                hashes[length / 2] = position.hash();
+            }
+            node = or ? provingChild(node) : this.firstChild[node];
+            line[length++] = this.moves[node];
+            position.make(this.moves[node]);
+            made++;
+        }
+        for (int i = 0; i < made; i++) {
+            position.unmake();
+        }
+        var moves = Arrays.copyOf(line, length);
+        this.provenLine = new ProvenLine(moves, Arrays.copyOf(hashes, (length + 1) / 2));
+        return moves;
+    }
+
+    private int provingChild(int node) {
+        int first = this.firstChild[node];
+        int proving = -1;
+        for (int child = first; child < first + this.childCount[node]; child++) {
+            if (this.proof[child] == 0) {
+                if (this.childCount[child] == 0) {
+                    return child;
+                }
+                if (proving < 0) {
+                    proving = child;
+                }
+            }
+        }
+        return proving;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: ProofNumberSearch size numMovesProtection criticalRegionSize "
+                    + "criticalRegionCapacity [plies] [nodes]");
+            return;
+        }
+        var position = Position.initial(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        int maxPlies = args.length > 4 ? Integer.parseInt(args[4]) : 9;
+        int nodes = args.length > 5 ? Integer.parseInt(args[5]) : 1 << 22;
+        var search = new ProofNumberSearch(SystemClock.INSTANCE, nodes);
+        System.out.print(position);
+        System.out.printf("%6s %10s %12s %10s  %s%n", "plies", "status", "nodes", "time(ms)", "line");
+        for (int plies = 1; plies <= maxPlies; plies++) {
+            var result = search.solve(position, null, SearchLimits.ofDepthAndNodes(plies, nodes));
+            var line = new StringBuilder();
+            for (int move : result.getLine()) {
+                line.append(line.length() > 0 ? " " : "").append(position.toMove(move));
+            }
+            System.out.printf("%6d %10s %12d %10.1f  %s%n", plies, result.getStatus(), result.getNodes(),
+                    result.getElapsedNanos() / 1e6, line);
+            if (result.isProven()) {
+                break;
+            }
+        }
+        search.shutdown();
+    }
+}
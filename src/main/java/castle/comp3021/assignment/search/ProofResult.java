@@ -0,0 +1,95 @@
+package castle.comp3021.assignment.search;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of a {@link ProofNumberSearch}: whether the side to move can force a win within the ply limit, and
+ * one line of the proof.
+ */
+public class ProofResult {
+    public enum Status {
+        /**
+         * The side to move wins within the ply limit against every defence.
+         */
+        PROVEN,
+        /**
+         * The side to move cannot force a win within the ply limit.
+         */
+        DISPROVEN,
+        /**
+         * The limits were reached before the position was solved.
+         */
+        UNKNOWN
+    }
+
+    private final Status status;
+
+    /**
+     * Packed first move of the proof, or {@link Position#NO_MOVE} unless {@link Status#PROVEN}.
+     */
+    private final int bestMove;
+    private final int plies;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * Moves of both sides from the position to the win, following one defence at each reply; empty unless
+     * {@link Status#PROVEN}.
+     */
+    private final int[] line;
+
+    public ProofResult(Status status, int plies, long nodes, long elapsedNanos, int[] line) {
+        this.status = status;
+        this.bestMove = line.length > 0 ? line[0] : Position.NO_MOVE;
+        this.plies = plies;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.line = line;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isProven() {
+        return status == Status.PROVEN;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the ply limit the position was solved with
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * @return number of nodes of the proof tree
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int[] getLine() {
+        return line.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ProofResult{" +
+                "status=" + status +
+                ", bestMove=" + bestMove +
+                ", plies=" + plies +
+                ", nodes=" + nodes +
+                ", elapsedNanos=" + elapsedNanos +
+                ", line=" + Arrays.toString(line) +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks the moves proposed by the pieces of a player with a shallow search of each, so that a move handing the
+ * opponent a capture or a central exit is found out before it is played.
+ * <p>
+ * Every proposed move is searched as the only root move, in its own fork-join task with its own
+ * {@link AlphaBetaSearch} and copy of the position, so its score does not depend on which thread searched it or
+ * when. A move whose search did not complete one iteration by the deadline is not verified.
+ * <p>
+ * Pool threads are daemon threads, and end after being idle for a while or on {@link ProposalVerifier#shutdown()}.
+ */
+public class ProposalVerifier {
+    private final GameClock clock;
+    private final ForkJoinPool pool;
+
+    private volatile Tablebase tablebase;
+    private volatile EvaluationCache evaluationCache;
+
+    /**
+     * @param clock       the clock of the limits
+     * @param parallelism number of threads searching moves at the same time
+     */
+    public ProposalVerifier(GameClock clock, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("number of verification threads must be at least 1");
+        }
+        this.clock = clock;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @param tablebase the tablebase probed by the next verifications, or null
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * @param evaluationCache the cache of evaluations of the next verifications, or null
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * Search every move on its own, in parallel.
+     *
+     * @param position the position, which is left unchanged
+     * @param moves    the packed valid moves of the side to move
+     * @param limits   when each search stops; the maximum depth is the depth of the verification
+     * @return the result of the search of each move, in the order of the moves; a depth of 0 means the move was not
+     * verified
+     */
+    public SearchResult[] verify(Position position, int[] moves, SearchLimits limits) {
+        var tasks = new ArrayList<Verification>();
+        for (int move : moves) {
+            tasks.add(new Verification(position.copy(), move, limits));
+        }
+        if (this.pool.isShutdown()) {
+            tasks.forEach(Verification::invoke);
+        } else {
+            this.pool.invoke(new VerifyAll(tasks));
+        }
+        var results = new SearchResult[moves.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = tasks.get(i).join();
+        }
+        return results;
+    }
+
+    /**
+     * Let the pool threads end. Verifications after a shutdown run on the calling thread.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    private static class VerifyAll extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Verification> tasks;
+
+        private VerifyAll(List<Verification> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(this.tasks);
+        }
+    }
+
+    private class Verification extends RecursiveTask<SearchResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position position;
+        private final int move;
+        private final SearchLimits limits;
+
+        private Verification(Position position, int move, SearchLimits limits) {
+            this.position = position;
+            this.move = move;
+            this.limits = limits;
+        }
+
+        @Override
+        protected SearchResult compute() {
+            var search = new AlphaBetaSearch(clock);
+            search.setTablebase(tablebase);
+            search.setEvaluationCache(evaluationCache);
+            return search.search(this.position, new int[]{this.move}, this.limits);
+        }
+    }
+}
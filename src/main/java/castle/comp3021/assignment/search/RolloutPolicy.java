@@ -0,0 +1,121 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.Behavior;
+import castle.comp3021.assignment.protocol.MakeMoveByBehavior;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the moves of {@link MonteCarloTreeSearch} playouts the way a game of computer pieces is played: a random
+ * piece proposes a move according to its {@link Behavior}, as in {@link MakeMoveByBehavior}, and that move is made.
+ * <p>
+ * Knights and archers have one behavior each. Ties between equally good moves are broken randomly so that
+ * playouts of the same position differ.
+ */
+public class RolloutPolicy {
+    private final Behavior knightBehavior;
+    private final Behavior archerBehavior;
+
+    public RolloutPolicy(Behavior knightBehavior, Behavior archerBehavior) {
+        this.knightBehavior = knightBehavior;
+        this.archerBehavior = archerBehavior;
+    }
+
+    public Behavior getKnightBehavior() {
+        return knightBehavior;
+    }
+
+    public Behavior getArcherBehavior() {
+        return archerBehavior;
+    }
+
+    /**
+     * Choose a move.
+     *
+     * @param position the position
+     * @param moves    valid moves of the position, as generated by {@link Position#generateMoves(int[], int)} so
+     *                 that the moves of a piece are next to each other
+     * @param count    number of moves, at least 1
+     * @param random   source of randomness of the calling thread
+     * @return the chosen move
+     */
+    public int select(Position position, int[] moves, int count, SplittableRandom random) {
+        // the piece of a random move proposes a move among its own moves
+        int pick = random.nextInt(count);
+        int from = Position.from(moves[pick]);
+        int low = pick;
+        while (low > 0 && Position.from(moves[low - 1]) == from) {
+            low--;
+        }
+        int high = pick + 1;
+        while (high < count && Position.from(moves[high]) == from) {
+            high++;
+        }
+        var behavior = Position.type(position.board[from]) == Position.KNIGHT ? knightBehavior : archerBehavior;
+        return switch (behavior) {
+            case GREEDY -> greedy(position, moves, low, high, random);
+            case CAPTURING -> capturing(position, moves, low, high, random);
+            case BLOCKING -> blocking(position, moves, low, high, random);
+            default -> moves[low + random.nextInt(high - low)];
+        };
+    }
+
+    private static int greedy(Position position, int[] moves, int low, int high, SplittableRandom random) {
+        var centralDistance = position.geometry.centralDistance;
+        int best = moves[low];
+        int minDistance = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int i = low; i < high; i++) {
+            int distance = centralDistance[Position.to(moves[i])];
+            if (distance < minDistance) {
+                minDistance = distance;
+                best = moves[i];
+                ties = 1;
+            } else if (distance == minDistance && random.nextInt(++ties) == 0) {
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    private static int capturing(Position position, int[] moves, int low, int high, SplittableRandom random) {
+        if (position.numMoves <= position.numMovesProtection) {
+            return moves[low + random.nextInt(high - low)];
+        }
+        int chosen = 0;
+        int matches = 0;
+        for (int i = low; i < high; i++) {
+            if (position.board[Position.to(moves[i])] != Position.EMPTY && random.nextInt(++matches) == 0) {
+                chosen = moves[i];
+            }
+        }
+        return matches > 0 ? chosen : moves[low + random.nextInt(high - low)];
+    }
+
+    private static int blocking(Position position, int[] moves, int low, int high, SplittableRandom random) {
+        int chosen = 0;
+        int matches = 0;
+        for (int i = low; i < high; i++) {
+            if (isNextToEnemyKnight(position, Position.to(moves[i])) && random.nextInt(++matches) == 0) {
+                chosen = moves[i];
+            }
+        }
+        return matches > 0 ? chosen : moves[low + random.nextInt(high - low)];
+    }
+
+    /**
+     * A piece next to a knight blocks its jumps in that direction.
+     */
+    private static boolean isNextToEnemyKnight(Position position, int square) {
+        int opponent = 1 - position.sideToMove;
+        for (var ray : position.geometry.rays[square]) {
+            if (ray.length > 0) {
+                int code = position.board[ray[0]];
+                if (Position.isKnight(code) && Position.side(code) == opponent) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Nodes saved by {@link MoveOrdering}, and time-to-depth of {@link ParallelSearch} from 1 thread up to N threads.
+ * <p>
+ * Usage: {@code SearchBenchmark [maxThreads] [depth] [tableMegabytes]}, which default to the number of processors,
+ * 6 and 64. Every thread count searches the same positions to the same depth with an empty table and an empty
+ * {@link EvaluationCache}, and the speedup is the time of 1 thread divided by the time of N threads.
+ */
+public class SearchBenchmark {
+    private static final int SIZE = 9;
+    private static final int NUM_POSITIONS = 8;
+    private static final long SEED = 3021;
+    private static final int CACHE_MEGABYTES = 4;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        var positions = suite();
+        var table = new TranspositionTable(megabytes, true);
+        var cache = new EvaluationCache(CACHE_MEGABYTES, Evaluation.DEFAULT, true);
+        // warm the JIT up so that the 1 thread baseline is not penalized
+        run(positions, table, cache, 1, Math.max(1, depth - 2));
+
+        System.out.printf("%d positions, %dx%d, depth %d, table %d MB%n", positions.size(), SIZE, SIZE, depth,
+                megabytes);
+        compareOrdering(positions, table, depth);
+        System.out.printf("%8s %10s %14s %12s %8s %10s %10s%n", "threads", "time(ms)", "nodes", "knodes/s",
+                "speedup", "table hits", "eval hits");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2,
+                maxThreads) : threads + 1) {
+            long start = System.nanoTime();
+            long nodes = run(positions, table, cache, threads, depth);
+            double millis = (System.nanoTime() - start) / 1e6;
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%8d %10.1f %14d %12.0f %8.2f %9.1f%% %9.1f%%%n", threads, millis, nodes,
+                    nodes / millis, baseline / millis, 100 * table.getHitRate(), 100 * cache.getHitRate());
+        }
+    }
+
+    /**
+     * Print the nodes searched to a depth with the table move first only, and with the full move ordering.
+     */
+    private static void compareOrdering(List<Position> positions, TranspositionTable table, int depth) {
+        System.out.printf("%8s %14s %14s %10s%n", "position", "unordered", "ordered", "reduction");
+        long totalUnordered = 0;
+        long totalOrdered = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            var search = new AlphaBetaSearch(SystemClock.INSTANCE, table);
+            search.getMoveOrdering().setEnabled(false);
+            table.clear();
+            long unordered = search.search(positions.get(i), null, SearchLimits.ofDepth(depth)).getNodes();
+            search.getMoveOrdering().setEnabled(true);
+            table.clear();
+            long ordered = search.search(positions.get(i), null, SearchLimits.ofDepth(depth)).getNodes();
+            totalUnordered += unordered;
+            totalOrdered += ordered;
+            System.out.printf("%8d %14d %14d %9.1f%%%n", i, unordered, ordered,
+                    100.0 * (unordered - ordered) / unordered);
+        }
+        System.out.printf("%8s %14d %14d %9.1f%%%n%n", "total", totalUnordered, totalOrdered,
+                100.0 * (totalUnordered - totalOrdered) / totalUnordered);
+    }
+
+    private static long run(List<Position> positions, TranspositionTable table, EvaluationCache cache, int threads,
+                            int depth) {
+        var search = new ParallelSearch(SystemClock.INSTANCE, table, threads);
+        search.setEvaluationCache(cache);
+        cache.clear();
+        long nodes = 0;
+        try {
+            for (var position : positions) {
+                table.clear();
+                nodes += search.search(position, null, SearchLimits.ofDepth(depth)).getNodes();
+            }
+        } finally {
+            search.shutdown();
+        }
+        return nodes;
+    }
+
+    /**
+     * The fixed positions of the benchmark, also used by tests to measure search improvements.
+     *
+     * @return the initial position and positions after random moves from it
+     */
+    public static List<Position> suite() {
+        var random = new SplittableRandom(SEED);
+        var positions = new ArrayList<Position>();
+        positions.add(Position.initial(SIZE, 1, 3, 3));
+        while (positions.size() < NUM_POSITIONS) {
+            var position = Position.initial(SIZE, 1, 3, 3);
+            var moves = new int[position.maxMoves()];
+            boolean over = false;
+            for (int ply = 0; ply < 4 + 2 * positions.size() && !over; ply++) {
+                int count = position.generateMoves(moves, 0);
+                over = count == 0 || position.make(moves[random.nextInt(count)]);
+            }
+            if (!over) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,136 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.GameClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When a search must stop: at a deadline of its {@link GameClock}, after an iteration of a maximum depth, or
+ * after a maximum number of nodes, whichever comes first.
+ * <p>
+ * A search may also have a soft deadline, see {@link SearchLimits#withSoftDeadline(long)}: no iteration starts
+ * after it, though {@link AlphaBetaSearch} extends it while its best move is unstable.
+ */
+public class SearchLimits {
+    public static final long UNLIMITED_NODES = Long.MAX_VALUE;
+
+    /**
+     * Deadline in {@link GameClock#nanoTime()} units, only if {@link SearchLimits#hasDeadline}.
+     */
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long softDeadline;
+    private final boolean hasSoftDeadline;
+    private final int maxDepth;
+    private final long maxNodes;
+
+    public SearchLimits(long deadline, int maxDepth, long maxNodes) {
+        this(deadline, true, maxDepth, maxNodes);
+    }
+
+    private SearchLimits(long deadline, boolean hasDeadline, int maxDepth, long maxNodes) {
+        this(deadline, hasDeadline, 0, false, maxDepth, maxNodes);
+    }
+
+    private SearchLimits(long deadline, boolean hasDeadline, long softDeadline, boolean hasSoftDeadline, int maxDepth,
+                         long maxNodes) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maximum depth must be at least 1");
+        }
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("maximum number of nodes must be at least 1");
+        }
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.softDeadline = softDeadline;
+        this.hasSoftDeadline = hasSoftDeadline;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @param clock        the clock to measure the budget with
+     * @param budgetMillis the time budget from now
+     * @param maxDepth     the deepest iteration
+     * @return limits with a deadline budgetMillis from now and no node limit
+     */
+    public static SearchLimits withBudget(GameClock clock, long budgetMillis, int maxDepth) {
+        return new SearchLimits(clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis), maxDepth,
+                UNLIMITED_NODES);
+    }
+
+    /**
+     * @param maxDepth the deepest iteration
+     * @return limits without a deadline or node limit, e.g. for analysis and tests
+     */
+    public static SearchLimits ofDepth(int maxDepth) {
+        return new SearchLimits(0, false, maxDepth, UNLIMITED_NODES);
+    }
+
+    /**
+     * @param maxNodes the most nodes (playouts of {@link MonteCarloTreeSearch}) to search
+     * @return limits without a deadline, and without a depth limit below {@link AlphaBetaSearch#MAX_PLY}
+     */
+    public static SearchLimits ofNodes(long maxNodes) {
+        return new SearchLimits(0, false, AlphaBetaSearch.MAX_PLY, maxNodes);
+    }
+
+    /**
+     * @param maxDepth the deepest iteration, or the ply limit of {@link ProofNumberSearch}
+     * @param maxNodes the most nodes to search
+     * @return limits without a deadline
+     */
+    public static SearchLimits ofDepthAndNodes(int maxDepth, long maxNodes) {
+        return new SearchLimits(0, false, maxDepth, maxNodes);
+    }
+
+    /**
+     * @param softDeadline the time after which no iteration should start, in {@link GameClock#nanoTime()} units
+     * @return these limits with a soft deadline
+     */
+    public SearchLimits withSoftDeadline(long softDeadline) {
+        return new SearchLimits(this.deadline, this.hasDeadline, softDeadline, true, this.maxDepth, this.maxNodes);
+    }
+
+    /**
+     * @param clock     the clock of the search
+     * @param start     when the search started
+     * @param extension how many times the time from the start to the soft deadline the search may take
+     * @return whether the extended soft deadline has passed
+     */
+    public boolean isSoftExpired(GameClock clock, long start, double extension) {
+        return this.hasSoftDeadline && clock.nanoTime() - start >= (long) ((this.softDeadline - start) * extension);
+    }
+
+    public boolean hasSoftDeadline() {
+        return hasSoftDeadline;
+    }
+
+    public long getSoftDeadline() {
+        return softDeadline;
+    }
+
+    /**
+     * @param clock the clock of the search
+     * @return whether the deadline has passed
+     */
+    public boolean isExpired(GameClock clock) {
+        return this.hasDeadline && clock.nanoTime() - this.deadline >= 0;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+}
@@ -0,0 +1,92 @@
+package castle.comp3021.assignment.search;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of a search: the best move of the deepest completed iteration and its statistics.
+ */
+public class SearchResult {
+    /**
+     * Packed best move, or {@link Position#NO_MOVE} if the side to move has no valid move.
+     */
+    private final int bestMove;
+
+    /**
+     * Score of the best move from the perspective of the side to move, see {@link AlphaBetaSearch#MATE}.
+     */
+    private final int score;
+
+    /**
+     * Depth of the deepest completed iteration, 0 if none completed.
+     */
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return nodes (playouts of {@link MonteCarloTreeSearch}) per second, 0 if no time has been measured
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos <= 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * @return whether the score is a forced win for the side to move
+     */
+    public boolean isWin() {
+        return AlphaBetaSearch.isMateScore(score) && score > 0;
+    }
+
+    /**
+     * @return whether the score is a forced loss for the side to move
+     */
+    public boolean isLoss() {
+        return AlphaBetaSearch.isMateScore(score) && score < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+                "bestMove=" + bestMove +
+                ", score=" + score +
+                ", depth=" + depth +
+                ", nodes=" + nodes +
+                ", elapsedNanos=" + elapsedNanos +
+                ", principalVariation=" + Arrays.toString(principalVariation) +
+                '}';
+    }
+}
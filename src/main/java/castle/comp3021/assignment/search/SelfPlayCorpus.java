@@ -0,0 +1,252 @@
+package castle.comp3021.assignment.search;
+
+import castle.comp3021.assignment.protocol.SystemClock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Self-play games of {@link AlphaBetaSearch} stored as their moves and winners, the training data of
+ * {@link EvaluationTuner}.
+ * <p>
+ * Every game starts from the initial position of
+ * {@link castle.comp3021.assignment.protocol.Configuration#setAllInitialPieces()} with a few random plies, so that
+ * the games spread over many positions, and is played on by the search until it ends or reaches
+ * {@link SelfPlayCorpus#MAX_GAME_PLIES} plies undecided. The file holds a header of the rules and the number of
+ * games, then for each game its winner (-1 if undecided), its number of plies and its packed moves.
+ * <p>
+ * Usage: {@code SelfPlayCorpus file size numMovesProtection criticalRegionSize criticalRegionCapacity games
+ * [randomPlies] [searchDepth] [seed]}.
+ */
+public class SelfPlayCorpus {
+    public static final int MAX_GAME_PLIES = 200;
+
+    static final int MAGIC = 0x4A4D5350;
+    static final int VERSION = 1;
+
+    private final int size;
+    private final int numMovesProtection;
+    private final int criticalRegionSize;
+    private final int criticalRegionCapacity;
+    private final List<int[]> games = new ArrayList<>();
+    private final List<Integer> winners = new ArrayList<>();
+
+    /**
+     * An empty corpus of games with some rules.
+     *
+     * @param size                   size of gameboard
+     * @param numMovesProtection     number of moves with capture protection
+     * @param criticalRegionSize     number of rows of the critical region
+     * @param criticalRegionCapacity knights of each player allowed in the critical region
+     */
+    public SelfPlayCorpus(int size, int numMovesProtection, int criticalRegionSize, int criticalRegionCapacity) {
+        this.size = size;
+        this.numMovesProtection = numMovesProtection;
+        this.criticalRegionSize = criticalRegionSize;
+        this.criticalRegionCapacity = criticalRegionCapacity;
+    }
+
+    /**
+     * @return the initial position of the games
+     */
+    public Position initialPosition() {
+        return Position.initial(this.size, this.numMovesProtection, this.criticalRegionSize,
+                this.criticalRegionCapacity);
+    }
+
+    /**
+     * @param moves  the packed moves of a game from {@link SelfPlayCorpus#initialPosition()}
+     * @param winner the side that won, or -1 if the game was stopped undecided
+     */
+    public void addGame(int[] moves, int winner) {
+        if (winner < -1 || winner > 1) {
+            throw new IllegalArgumentException("winner must be a side or -1");
+        }
+        this.games.add(moves.clone());
+        this.winners.add(winner);
+    }
+
+    public int getGameCount() {
+        return games.size();
+    }
+
+    public int[] getMoves(int game) {
+        return games.get(game).clone();
+    }
+
+    public int getWinner(int game) {
+        return winners.get(game);
+    }
+
+    /**
+     * @return number of positions of all games, counting the position before each move
+     */
+    public long getPositionCount() {
+        return this.games.stream().mapToLong(moves -> moves.length).sum();
+    }
+
+    /**
+     * Play self-play games and add them to the corpus.
+     *
+     * @param games       number of games
+     * @param randomPlies number of random plies at the start of each game
+     * @param searchDepth depth of the search choosing the other moves
+     * @param seed        seed of the random moves
+     * @param threads     number of games played at a time
+     */
+    public void play(int games, int randomPlies, int searchDepth, long seed, int threads) {
+        if (games < 1 || randomPlies < 0 || searchDepth < 1 || threads < 1) {
+            throw new IllegalArgumentException("games, search depth and threads must be at least 1, and random "
+                    + "plies cannot be negative");
+        }
+        var random = new SplittableRandom(seed);
+        var tasks = new ArrayList<Callable<int[]>>();
+        for (int i = 0; i < games; i++) {
+            var gameRandom = random.split();
+            tasks.add(() -> playGame(randomPlies, searchDepth, gameRandom));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                var game = future.get();
+                // the last element is the winner
+                addGame(Arrays.copyOf(game, game.length - 1), game[game.length - 1]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("self-play interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("self-play failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the moves of the game followed by its winner
+     */
+    private int[] playGame(int randomPlies, int searchDepth, SplittableRandom random) {
+        var position = initialPosition();
+        var search = new AlphaBetaSearch(SystemClock.INSTANCE);
+        var limits = SearchLimits.ofDepth(searchDepth);
+        var moves = new int[position.maxMoves()];
+        var game = new int[MAX_GAME_PLIES + 1];
+        int winner = -1;
+        int ply = 0;
+        for (; ply < MAX_GAME_PLIES; ply++) {
+            int count = position.generateMoves(moves, 0);
+            if (count == 0) {
+                winner = position.sideToMoveWinsWithoutMoves() ? position.sideToMove : 1 - position.sideToMove;
+                break;
+            }
+            int move;
+            if (ply < randomPlies) {
+                move = moves[random.nextInt(count)];
+            } else {
+                // the search keeps the first of equal moves
+                for (int i = count - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = moves[i];
+                    moves[i] = moves[j];
+                    moves[j] = swap;
+                }
+                move = search.search(position, Arrays.copyOf(moves, count), limits).getBestMove();
+            }
+            game[ply] = move;
+            if (position.make(move)) {
+                winner = 1 - position.sideToMove;
+                ply++;
+                break;
+            }
+        }
+        game[ply] = winner;
+        return Arrays.copyOf(game, ply + 1);
+    }
+
+    /**
+     * Write the corpus to a file, replacing it at once when complete.
+     *
+     * @param file the corpus file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this.size);
+            output.writeInt(this.numMovesProtection);
+            output.writeInt(this.criticalRegionSize);
+            output.writeInt(this.criticalRegionCapacity);
+            output.writeInt(this.games.size());
+            for (int i = 0; i < this.games.size(); i++) {
+                var moves = this.games.get(i);
+                output.writeInt(this.winners.get(i));
+                output.writeInt(moves.length);
+                for (int move : moves) {
+                    output.writeInt(move);
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a corpus written by {@link SelfPlayCorpus#write(Path)}.
+     *
+     * @param file the corpus file
+     * @return the corpus
+     * @throws IOException if the file cannot be read or is not a corpus
+     */
+    public static SelfPlayCorpus read(Path file) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(file + " is not a self-play corpus of version " + VERSION);
+            }
+            var corpus = new SelfPlayCorpus(input.readInt(), input.readInt(), input.readInt(), input.readInt());
+            int games = input.readInt();
+            for (int i = 0; i < games; i++) {
+                int winner = input.readInt();
+                var moves = new int[input.readInt()];
+                for (int j = 0; j < moves.length; j++) {
+                    moves[j] = input.readInt();
+                }
+                corpus.addGame(moves, winner);
+            }
+            return corpus;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.out.println("Usage: SelfPlayCorpus file size numMovesProtection criticalRegionSize "
+                    + "criticalRegionCapacity games [randomPlies] [searchDepth] [seed]");
+            return;
+        }
+        var corpus = new SelfPlayCorpus(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        int games = Integer.parseInt(args[5]);
+        int randomPlies = args.length > 6 ? Integer.parseInt(args[6]) : 8;
+        int searchDepth = args.length > 7 ? Integer.parseInt(args[7]) : 2;
+        long seed = args.length > 8 ? Long.parseLong(args[8]) : 3021;
+        long start = System.nanoTime();
+        corpus.play(games, randomPlies, searchDepth, seed, Runtime.getRuntime().availableProcessors());
+        corpus.write(Path.of(args[0]));
+        System.out.printf("%d games, %d positions, %.1f s%n", games, corpus.getPositionCount(),
+                (System.nanoTime() - start) / 1e9);
+    }
+}
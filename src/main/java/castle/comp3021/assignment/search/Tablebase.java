@@ -0,0 +1,445 @@
+package castle.comp3021.assignment.search;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Endgame tablebases: exact results of positions with few pieces, generated by {@link TablebaseGenerator} and read
+ * from memory-mapped files.
+ * <p>
+ * A table covers one material, the knights and archers of each side on one board size and critical region, with the
+ * capture protection over. Values are from the side to move: n &gt; 0 wins with the n-th ply from now, -n loses to
+ * the n-th ply from now, and {@link Tablebase#DRAW} means neither side can force a central exit or a capture-all
+ * win, which includes games that end because a side has no moves and are decided by the scores. Positions that are
+ * the same up to a flip of the board share one entry, so a table has about a quarter of the entries.
+ * <p>
+ * Tables are read-only once opened, and can be probed from several threads.
+ */
+public class Tablebase {
+    public static final int DRAW = 0;
+
+    /**
+     * Result of {@link Tablebase#probe(Position)} for positions without a table.
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    static final String EXTENSION = ".jmtb";
+    static final int MAGIC = 0x4A4D5442;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 11 * Integer.BYTES;
+
+    /**
+     * Value of entries that are not the index of a position, e.g. two pieces on one square. Never probed.
+     */
+    static final short INVALID = Short.MIN_VALUE;
+
+    /**
+     * Most pieces of one kind of one side, so that a material fits in 3 bits per count.
+     */
+    static final int MAX_COUNT = 7;
+
+    private static final int NUM_MATERIALS = 1 << 12;
+
+    /**
+     * Tables of each board size, critical region size and capacity, indexed by material.
+     */
+    private volatile Rules[] rules = new Rules[0];
+    private volatile int maxPieces = 0;
+    private volatile int tableCount = 0;
+    private volatile int longestWin = 0;
+
+    /**
+     * Open all tables of a directory.
+     *
+     * @param directory the directory of the table files
+     * @return the tablebase
+     * @throws IOException if a file cannot be read or is not a table
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        var tablebase = new Tablebase();
+        try (var files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (var file : files) {
+                tablebase.add(load(file));
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * Map a table file into memory.
+     */
+    static Table load(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a tablebase file");
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a tablebase file of version " + VERSION);
+            }
+            var counts = new int[4];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buffer.getInt(20 + 4 * i);
+            }
+            int entries = buffer.getInt(36);
+            int longestWin = buffer.getInt(40);
+            if (entries != Table.entries(buffer.getInt(8), counts)
+                    || channel.size() != HEADER_BYTES + 2L * entries) {
+                throw new IOException(file + " is truncated");
+            }
+            var values = buffer.slice(HEADER_BYTES, 2 * entries).asShortBuffer();
+            return new Table(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), counts, values, longestWin);
+        }
+    }
+
+    /**
+     * File name of the table of a material, e.g. {@code 7-3-1-KA-K.jmtb}.
+     */
+    static String fileName(int size, int regionSize, int capacity, int[] counts) {
+        return size + "-" + regionSize + "-" + capacity + "-" + "K".repeat(counts[0]) + "A".repeat(counts[1]) + "-"
+                + "K".repeat(counts[2]) + "A".repeat(counts[3]) + EXTENSION;
+    }
+
+    /**
+     * Add a table, replacing the table of the same material and rules.
+     */
+    synchronized void add(Table table) {
+        var current = find(table.size, table.regionSize, table.capacity);
+        if (current == null) {
+            current = new Rules(table.size, table.regionSize, table.capacity);
+            var extended = Arrays.copyOf(this.rules, this.rules.length + 1);
+            extended[extended.length - 1] = current;
+            this.rules = extended;
+        }
+        int material = table.material();
+        if (current.tables[material] == null) {
+            this.tableCount++;
+        }
+        current.tables[material] = table;
+        this.maxPieces = Math.max(this.maxPieces, table.pieces);
+        this.longestWin = Math.max(this.longestWin, table.longestWin);
+    }
+
+    /**
+     * @return the table of the material of a position, or null
+     */
+    Table find(Position position) {
+        int pieces = position.pieceCount[0] + position.pieceCount[1];
+        if (pieces > this.maxPieces) {
+            return null;
+        }
+        var current = find(position.size, position.criticalRegionSize, position.criticalRegionCapacity);
+        if (current == null) {
+            return null;
+        }
+        int mover = position.sideToMove;
+        int other = 1 - mover;
+        int material = material(position.knightCount[mover], position.pieceCount[mover] - position.knightCount[mover],
+                position.knightCount[other], position.pieceCount[other] - position.knightCount[other]);
+        return material < 0 ? null : current.tables[material];
+    }
+
+    private Rules find(int size, int regionSize, int capacity) {
+        for (var current : this.rules) {
+            if (current.size == size && current.regionSize == regionSize && current.capacity == capacity) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Look a position up.
+     *
+     * @param position the position
+     * @return the value of the position for the side to move, see {@link Tablebase}, or {@link Tablebase#UNKNOWN}
+     * if there is no table of its material or the capture protection is not over
+     */
+    public int probe(Position position) {
+        if (position.numMoves < position.numMovesProtection) {
+            return UNKNOWN;
+        }
+        var table = find(position);
+        if (table == null) {
+            return UNKNOWN;
+        }
+        int value = table.value(table.index(position));
+        return value == INVALID ? UNKNOWN : value;
+    }
+
+    /**
+     * Pick the move that wins the fastest, otherwise keeps the draw, otherwise loses the slowest.
+     *
+     * @param position the position
+     * @return the best packed move, or {@link Position#NO_MOVE} if the position is unknown or has no moves
+     */
+    public int bestMove(Position position) {
+        if (probe(position) == UNKNOWN) {
+            return Position.NO_MOVE;
+        }
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+        int bestMove = Position.NO_MOVE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int score;
+            if (position.make(moves[i])) {
+                score = AlphaBetaSearch.MATE - 1;
+            } else {
+                int value = probe(position);
+                if (value == UNKNOWN || value == DRAW) {
+                    score = 0;
+                } else if (value < 0) {
+                    score = AlphaBetaSearch.MATE - (1 - value);
+                } else {
+                    score = -(AlphaBetaSearch.MATE - (1 + value));
+                }
+            }
+            position.unmake();
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * @return most pieces of a position with a table
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    /**
+     * @return most plies of a win or loss in any table
+     */
+    public int getLongestWin() {
+        return longestWin;
+    }
+
+    /**
+     * @return material code of the counts of the side to move and of the other side, or -1 if a count is too large
+     */
+    static int material(int moverKnights, int moverArchers, int otherKnights, int otherArchers) {
+        if (moverKnights > MAX_COUNT || moverArchers > MAX_COUNT || otherKnights > MAX_COUNT
+                || otherArchers > MAX_COUNT) {
+            return -1;
+        }
+        return ((moverKnights * 8 + moverArchers) * 8 + otherKnights) * 8 + otherArchers;
+    }
+
+    private static final class Rules {
+        final int size;
+        final int regionSize;
+        final int capacity;
+        final Table[] tables = new Table[NUM_MATERIALS];
+
+        Rules(int size, int regionSize, int capacity) {
+            this.size = size;
+            this.regionSize = regionSize;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * The values of one material.
+     * <p>
+     * Pieces are listed by group: knights of the side to move, its archers, knights of the other side, its archers;
+     * ascending by square within a group. The index of a position is the quadrant index of the first piece followed
+     * by the squares of the other pieces, as digits of base {@code size * size}. Of the flips of the board that put
+     * the first piece in the quadrant, the one with the smallest index is taken.
+     */
+    static final class Table {
+        final int size;
+        final int regionSize;
+        final int capacity;
+
+        /**
+         * Number of pieces of each group.
+         */
+        final int[] counts;
+        final int pieces;
+        final int entries;
+        final ShortBuffer values;
+
+        /**
+         * Most plies of a win or loss in the table, 0 while it is generated.
+         */
+        final int longestWin;
+
+        private final int squares;
+
+        /**
+         * Index of each square in the quadrant {@code x, y <= size / 2}, or -1, and the squares of the quadrant.
+         */
+        private final int[] quadrantIndex;
+        private final int[] quadrantSquares;
+
+        Table(int size, int regionSize, int capacity, int[] counts, ShortBuffer values, int longestWin) {
+            this.size = size;
+            this.regionSize = regionSize;
+            this.capacity = capacity;
+            this.counts = counts.clone();
+            this.pieces = Arrays.stream(counts).sum();
+            this.entries = entries(size, counts);
+            this.values = values;
+            this.longestWin = longestWin;
+            this.squares = size * size;
+            this.quadrantIndex = new int[this.squares];
+            int half = size / 2 + 1;
+            this.quadrantSquares = new int[half * half];
+            int n = 0;
+            for (int sq = 0; sq < this.squares; sq++) {
+                if (sq / size < half && sq % size < half) {
+                    this.quadrantSquares[n] = sq;
+                    this.quadrantIndex[sq] = n++;
+                } else {
+                    this.quadrantIndex[sq] = -1;
+                }
+            }
+        }
+
+        /**
+         * @return number of entries of a table
+         * @throws IllegalArgumentException if the table would have too many entries
+         */
+        static int entries(int size, int[] counts) {
+            int pieces = Arrays.stream(counts).sum();
+            int half = size / 2 + 1;
+            long entries = (long) half * half;
+            for (int i = 1; i < pieces; i++) {
+                entries *= (long) size * size;
+                if (entries > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("too many pieces for a table of size " + size);
+                }
+            }
+            return (int) entries;
+        }
+
+        int material() {
+            return Tablebase.material(counts[0], counts[1], counts[2], counts[3]);
+        }
+
+        int value(int index) {
+            return this.values.get(index);
+        }
+
+        /**
+         * @param position a position of the material of the table
+         * @return index of the position
+         */
+        int index(Position position) {
+            var pieceSquares = new int[this.pieces];
+            var filled = new int[4];
+            var start = new int[4];
+            for (int g = 1; g < 4; g++) {
+                start[g] = start[g - 1] + this.counts[g - 1];
+            }
+            int mover = position.sideToMove;
+            var board = position.board;
+            for (int sq = 0; sq < board.length; sq++) {
+                int code = board[sq];
+                if (code != Position.EMPTY) {
+                    int g = (Position.side(code) == mover ? 0 : 2) + Position.type(code);
+                    pieceSquares[start[g] + filled[g]++] = sq;
+                }
+            }
+            var flipped = new int[this.pieces];
+            long best = Long.MAX_VALUE;
+            for (int flip = 0; flip < 4; flip++) {
+                for (int i = 0; i < this.pieces; i++) {
+                    flipped[i] = flip(pieceSquares[i], flip);
+                }
+                sortGroups(flipped);
+                int first = this.quadrantIndex[flipped[0]];
+                if (first < 0) {
+                    continue;
+                }
+                long index = first;
+                for (int i = 1; i < this.pieces; i++) {
+                    index = index * this.squares + flipped[i];
+                }
+                best = Math.min(best, index);
+            }
+            return (int) best;
+        }
+
+        /**
+         * Set a position up from an index, with side 0 to move.
+         *
+         * @param index    the index
+         * @param position a position with the rules of the table, which is cleared
+         * @param verify   whether to check that the index is the one of the position, not of a flip of it
+         * @return false if the index is not the index of a position
+         */
+        boolean decode(int index, Position position, boolean verify) {
+            var pieceSquares = new int[this.pieces];
+            int rest = index;
+            for (int i = this.pieces - 1; i > 0; i--) {
+                pieceSquares[i] = rest % this.squares;
+                rest /= this.squares;
+            }
+            pieceSquares[0] = this.quadrantSquares[rest];
+            int i = 0;
+            for (int g = 0; g < 4; g++) {
+                for (int k = 0; k < this.counts[g]; k++, i++) {
+                    if (k > 0 && pieceSquares[i] <= pieceSquares[i - 1]) {
+                        return false;
+                    }
+                }
+            }
+            position.clear();
+            i = 0;
+            for (int g = 0; g < 4; g++) {
+                for (int k = 0; k < this.counts[g]; k++, i++) {
+                    if (position.board[pieceSquares[i]] != Position.EMPTY) {
+                        return false;
+                    }
+                    position.put(g / 2, g % 2, pieceSquares[i]);
+                }
+            }
+            return !verify || index(position) == index;
+        }
+
+        private int flip(int square, int flip) {
+            int x = square / this.size;
+            int y = square % this.size;
+            if ((flip & 1) != 0) {
+                x = this.size - 1 - x;
+            }
+            if ((flip & 2) != 0) {
+                y = this.size - 1 - y;
+            }
+            return x * this.size + y;
+        }
+
+        /**
+         * Sort the squares of each group, by insertion as groups are small.
+         */
+        private void sortGroups(int[] pieceSquares) {
+            int start = 0;
+            for (int count : this.counts) {
+                for (int i = start + 1; i < start + count; i++) {
+                    int square = pieceSquares[i];
+                    int j = i - 1;
+                    while (j >= start && pieceSquares[j] > square) {
+                        pieceSquares[j + 1] = pieceSquares[j];
+                        j--;
+                    }
+                    pieceSquares[j + 1] = square;
+                }
+                start += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package castle.comp3021.assignment.search;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates the {@link Tablebase} files of materials by retrograde analysis, in parallel.
+ * <p>
+ * The tables reachable by captures are generated first, and the two tables of a material, one per side to move,
+ * are solved together. Pass n finds the positions won in n plies: those with a move to a position lost in n - 1
+ * plies, and for even n, those whose moves all lead to positions won in fewer plies. A pass only reads the values of
+ * earlier passes, so its entries are solved by several threads in any order. Tables already in the directory are
+ * kept, so a larger material reuses the tables of smaller ones.
+ * <p>
+ * Usage: {@code TablebaseGenerator directory size criticalRegionSize criticalRegionCapacity material...}, where a
+ * material lists the knights (K) and archers (A) of one side, then of the other, e.g. {@code KA-K}.
+ */
+public class TablebaseGenerator {
+    /**
+     * Entries solved by one task of a pass.
+     */
+    private static final int CHUNK = 1 << 14;
+
+    private final Path directory;
+    private final int size;
+    private final int regionSize;
+    private final int capacity;
+    private final ForkJoinPool pool;
+    private final Tablebase tablebase;
+
+    /**
+     * @param directory  the directory to write the tables to, whose tables are reused
+     * @param size       size of gameboard
+     * @param regionSize number of rows of the critical region
+     * @param capacity   knights of each player allowed in the critical region
+     * @param threads    number of threads solving a table
+     * @throws IOException if the tables of the directory cannot be read
+     */
+    public TablebaseGenerator(Path directory, int size, int regionSize, int capacity, int threads)
+            throws IOException {
+        if (size < 3 || size % 2 == 0) {
+            throw new IllegalArgumentException("size of gameboard must be an odd number of at least 3");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of threads must be at least 1");
+        }
+        this.directory = directory;
+        this.size = size;
+        this.regionSize = regionSize;
+        this.capacity = capacity;
+        this.pool = new ForkJoinPool(threads);
+        Files.createDirectories(directory);
+        this.tablebase = Tablebase.open(directory);
+    }
+
+    /**
+     * @return the tables of the directory, including the ones generated
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Generate the tables of a material, and of the materials it can reach by captures.
+     *
+     * @param material e.g. {@code KA-K}: one knight and one archer against one knight
+     * @throws IOException if a table cannot be written
+     */
+    public void generate(String material) throws IOException {
+        var sides = material.split("-", -1);
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("material must be of the form KA-K, was " + material);
+        }
+        var counts = new int[4];
+        for (int side = 0; side < 2; side++) {
+            for (char c : sides[side].toCharArray()) {
+                switch (c) {
+                    case 'K' -> counts[2 * side]++;
+                    case 'A' -> counts[2 * side + 1]++;
+                    default -> throw new IllegalArgumentException("unknown piece " + c + " in material " + material);
+                }
+            }
+            if (sides[side].isEmpty()) {
+                throw new IllegalArgumentException("both sides of material " + material + " need a piece");
+            }
+            if (counts[2 * side] > Tablebase.MAX_COUNT || counts[2 * side + 1] > Tablebase.MAX_COUNT) {
+                throw new IllegalArgumentException("too many pieces of a kind in material " + material);
+            }
+        }
+        Tablebase.Table.entries(this.size, counts);
+        generate(counts);
+    }
+
+    /**
+     * Stop the threads of the generator.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    private void generate(int[] counts) throws IOException {
+        if (has(counts)) {
+            return;
+        }
+        // captures leave one piece less on either side
+        for (int group = 0; group < 4; group++) {
+            int side = group / 2;
+            if (counts[group] > 0 && counts[2 * side] + counts[2 * side + 1] > 1) {
+                var captured = counts.clone();
+                captured[group]--;
+                generate(captured);
+            }
+        }
+        solve(counts);
+    }
+
+    private boolean has(int[] counts) {
+        var position = new Position(this.size, 0, this.regionSize, this.capacity);
+        int sq = 0;
+        for (int group = 0; group < 4; group++) {
+            for (int i = 0; i < counts[group]; i++) {
+                position.put(group / 2, group % 2, sq++);
+            }
+        }
+        return this.tablebase.find(position) != null;
+    }
+
+    private void solve(int[] counts) throws IOException {
+        var family = new ArrayList<Tablebase.Table>();
+        var values = new ArrayList<short[]>();
+        var swapped = new int[]{counts[2], counts[3], counts[0], counts[1]};
+        for (var material : Arrays.equals(counts, swapped) ? List.of(counts) : List.of(counts, swapped)) {
+            var array = new short[Tablebase.Table.entries(this.size, material)];
+            var table = new Tablebase.Table(this.size, this.regionSize, this.capacity, material,
+                    ShortBuffer.wrap(array), 0);
+            family.add(table);
+            values.add(array);
+            this.tablebase.add(table);
+        }
+
+        // a capture can lead to a win longer than any of this material found so far
+        int longestCapture = this.tablebase.getLongestWin();
+        run(family, values, 0);
+        for (int n = 1; run(family, values, n) > 0 || n <= longestCapture; n++) {
+            if (n == Short.MAX_VALUE) {
+                throw new IllegalStateException("distance to win does not fit a table entry");
+            }
+        }
+
+        for (int i = 0; i < family.size(); i++) {
+            this.tablebase.add(write(family.get(i), values.get(i)));
+        }
+    }
+
+    /**
+     * Run one pass over the tables of a material.
+     *
+     * @param pass 0 to mark the invalid entries, otherwise the distance to solve
+     * @return number of entries solved
+     */
+    private long run(List<Tablebase.Table> family, List<short[]> values, int pass) throws IOException {
+        var tasks = new ArrayList<Callable<Long>>();
+        for (int i = 0; i < family.size(); i++) {
+            var table = family.get(i);
+            var array = values.get(i);
+            for (int from = 0; from < table.entries; from += CHUNK) {
+                int start = from;
+                int end = Math.min(table.entries, from + CHUNK);
+                tasks.add(() -> solve(table, array, start, end, pass));
+            }
+        }
+        long solved = 0;
+        try {
+            for (var future : this.pool.invokeAll(tasks)) {
+                solved += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("generation failed", e.getCause());
+        }
+        return solved;
+    }
+
+    private long solve(Tablebase.Table table, short[] values, int start, int end, int pass) {
+        var position = new Position(this.size, 0, this.regionSize, this.capacity);
+        int[] moves = null;
+        long solved = 0;
+        for (int index = start; index < end; index++) {
+            if (pass == 0) {
+                if (!table.decode(index, position, true)) {
+                    values[index] = Tablebase.INVALID;
+                }
+                continue;
+            }
+            if (values[index] != Tablebase.DRAW) {
+                continue;
+            }
+            table.decode(index, position, false);
+            if (moves == null) {
+                moves = new int[position.maxMoves()];
+            }
+            int count = position.generateMoves(moves, 0);
+            if (count == 0) {
+                continue;
+            }
+            boolean won = false;
+            boolean lost = true;
+            for (int i = 0; i < count && !won; i++) {
+                if (position.make(moves[i])) {
+                    won = pass == 1;
+                    lost = false;
+                } else {
+                    var child = this.tablebase.find(position);
+                    if (child == null) {
+                        throw new IllegalStateException("no table of position\n" + position);
+                    }
+                    int value = child.value(child.index(position));
+                    // values of this pass are not final yet
+                    won = value < 0 && -value < pass;
+                    lost &= value > 0 && value < pass;
+                }
+                position.unmake();
+            }
+            if (won || lost) {
+                values[index] = (short) (won ? pass : -pass);
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * Write a table to its file, through a temporary file so that a table in the directory is always complete.
+     *
+     * @return the table mapped from the file
+     */
+    private Tablebase.Table write(Tablebase.Table table, short[] values) throws IOException {
+        var file = this.directory.resolve(Tablebase.fileName(this.size, this.regionSize, this.capacity,
+                table.counts));
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Tablebase.HEADER_BYTES + 2L * values.length);
+            buffer.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION)
+                    .putInt(this.size).putInt(this.regionSize).putInt(this.capacity);
+            for (int count : table.counts) {
+                buffer.putInt(count);
+            }
+            buffer.putInt(values.length);
+            int longestWin = 0;
+            for (short value : values) {
+                if (value != Tablebase.INVALID) {
+                    longestWin = Math.max(longestWin, Math.abs(value));
+                }
+            }
+            buffer.putInt(longestWin);
+            buffer.asShortBuffer().put(values);
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Tablebase.load(file);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.out.println("Usage: TablebaseGenerator directory size criticalRegionSize criticalRegionCapacity "
+                    + "material...");
+            return;
+        }
+        var generator = new TablebaseGenerator(Path.of(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]), Runtime.getRuntime().availableProcessors());
+        try {
+            for (int i = 4; i < args.length; i++) {
+                long start = System.nanoTime();
+                generator.generate(args[i]);
+                System.out.printf("%s: %.1f s, %d tables%n", args[i], (System.nanoTime() - start) / 1e9,
+                        generator.getTablebase().getTableCount());
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package castle.comp3021.assignment.search;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results, shared by all searches without locks.
+ * <p>
+ * Each entry is two longs: the packed data, and the position hash XOR the data. A reader accepts an entry only if
+ * the two words XOR back to the hash of its position, so an entry torn by concurrent writers is simply a miss
+ * instead of a wrong result.
+ * <p>
+ * From the lowest bit, the data word holds the score in 32 bits, with win scores relative to the stored position
+ * (see {@link TranspositionTable#store}), the best packed move in 20 bits, the depth in 8 bits and the bound in 2.
+ * <p>
+ * Counting probes and hits writes to shared counters on every probe of every search thread, so it is only done by
+ * tables created with statistics, e.g. for a benchmark.
+ */
+public class TranspositionTable {
+    public static final int NONE = 0;
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 52;
+    private static final int BOUND_SHIFT = 60;
+    private static final long MOVE_MASK = (1L << 20) - 1;
+    private static final int MAX_DEPTH = 0xFF;
+
+    /**
+     * Pairs of (hash ^ data, data), indexed by entry * 2.
+     */
+    private final long[] table;
+    private final int mask;
+
+    private final boolean statistics;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param megabytes memory of the table, rounded down to a power of two entries
+     */
+    public TranspositionTable(int megabytes) {
+        this(megabytes, false);
+    }
+
+    /**
+     * @param megabytes  memory of the table, rounded down to a power of two entries
+     * @param statistics whether to count probes and hits, see {@link TranspositionTable#getHitRate()}
+     */
+    public TranspositionTable(int megabytes, boolean statistics) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("transposition table must be at least 1 megabyte");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        // a Java array holds less than 2^31 longs
+        entries = Math.min(entries, 1L << 29);
+        this.table = new long[(int) entries * 2];
+        this.mask = (int) entries - 1;
+        this.statistics = statistics;
+    }
+
+    public boolean hasStatistics() {
+        return statistics;
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & this.mask) << 1;
+    }
+
+    /**
+     * Look a position up.
+     *
+     * @param hash the hash of the position, see {@link Position#hash()}
+     * @return the packed data of the entry, or 0 if there is none; decode it with the static getters
+     */
+    public long probe(long hash) {
+        int index = index(hash);
+        long check = this.table[index];
+        long data = this.table[index + 1];
+        if (data == 0 || (check ^ data) != hash) {
+            if (this.statistics) {
+                this.probes.increment();
+            }
+            return 0;
+        }
+        if (this.statistics) {
+            this.probes.increment();
+            this.hits.increment();
+        }
+        return data;
+    }
+
+    /**
+     * Store the result of searching a position, replacing the entry of its slot unless that is a deeper result of
+     * the same position.
+     *
+     * @param hash  the hash of the position
+     * @param depth the depth searched
+     * @param bound whether the score is exact, a lower bound (fail high) or an upper bound (fail low)
+     * @param score the score, with win scores already relative to the position, see {@link #toStored(int, int)}
+     * @param move  the best packed move, or {@link Position#NO_MOVE}
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = index(hash);
+        long oldData = this.table[index + 1];
+        if ((this.table[index] ^ oldData) == hash && oldData != 0 && bound != EXACT && getDepth(oldData) > depth) {
+            return;
+        }
+        long data = (score & 0xFFFFFFFFL)
+                | (move & MOVE_MASK) << MOVE_SHIFT
+                | (long) Math.min(Math.max(depth, 0), MAX_DEPTH) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT;
+        this.table[index] = hash ^ data;
+        this.table[index + 1] = data;
+    }
+
+    /* Entry decoding start */
+    public static int getScore(long data) {
+        return (int) data;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data >>> MOVE_SHIFT & MOVE_MASK);
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT & MAX_DEPTH);
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT & 3);
+    }
+    /* Entry decoding end */
+
+    /**
+     * Win scores count plies from the root, but an entry can be reached at another ply. Store them counting from
+     * the position instead.
+     *
+     * @param score a search score
+     * @param ply   ply of the position from the root
+     * @return the score to store
+     */
+    public static int toStored(int score, int ply) {
+        if (AlphaBetaSearch.isMateScore(score)) {
+            return score > 0 ? score + ply : score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * @param score a stored score
+     * @param ply   ply of the position from the root
+     * @return the search score
+     */
+    public static int fromStored(int score, int ply) {
+        if (AlphaBetaSearch.isMateScore(score)) {
+            return score > 0 ? score - ply : score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Remove all entries and statistics, e.g. before a new game.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0);
+        this.probes.reset();
+        this.hits.reset();
+    }
+
+    /**
+     * @return number of probes, always 0 without statistics
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return number of probes that found their position, always 0 without statistics
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return fraction of probes that found their position, 0 if there was no probe
+     */
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0 : (double) getHits() / probes;
+    }
+
+    /**
+     * @return fraction of entries in use, scanning the whole table
+     */
+    public double getOccupancy() {
+        long used = 0;
+        for (int i = 1; i < this.table.length; i += 2) {
+            if (this.table[i] != 0) {
+                used++;
+            }
+        }
+        return (double) used / capacity();
+    }
+
+    /**
+     * @return memory of the entries in bytes
+     */
+    public long getSizeBytes() {
+        return (long) this.table.length * Long.BYTES;
+    }
+}
@@ -6,6 +6,8 @@ import castle.comp3021.assignment.player.HumanPlayer;
 import castle.comp3021.assignment.protocol.*;
 import castle.comp3021.assignment.protocol.Color;
 import castle.comp3021.assignment.protocol.exception.UndoException;
+import castle.comp3021.assignment.search.Ponderer;
+import castle.comp3021.assignment.search.Position;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -60,15 +62,26 @@ public class JesonMor extends Game {
         // reset all things
         Player winner;
         this.numMoves = 0;
-        this.board = configuration.getInitialBoard();
+        this.board = copyInitialBoard();
         this.currentPlayer = null;
+        this.configuration.seedRandomStreams();
+        for (var player : this.configuration.getPlayers()) {
+            if (player instanceof ComputerPlayer && ((ComputerPlayer) player).getTimeManager() != null) {
+                ((ComputerPlayer) player).getTimeManager().reset();
+            }
+        }
         this.refreshOutput();
 
         while (true) {
             var player = this.configuration.getPlayers()[this.numMoves % this.configuration.getPlayers().length];
             this.currentPlayer = player;
-            // let player make next move
-            var availableMoves = this.getAvailableMoves(player);
+            var timeManager = player instanceof ComputerPlayer ? ((ComputerPlayer) player).getTimeManager() : null;
+            if (timeManager != null) {
+                timeManager.startTurn(this);
+            }
+            // let player make next move, from the opening book if it knows the position
+            var bookMove = this.getBookMove(player);
+            var availableMoves = bookMove != null ? new Move[]{bookMove} : this.getAvailableMoves(player);
             // there shouldn't be no available moves, if no available moves, the player with lower score wins
             if (availableMoves.length <= 0) {
                 System.out.println("No available moves for the player " + player.getName());
@@ -80,7 +93,19 @@ public class JesonMor extends Game {
                     winner = player;
                 }
             } else {
-                var move = player.nextMove(this, availableMoves);
+                Move move;
+                if (bookMove != null) {
+                    move = bookMove;
+                } else {
+                    var ponderer = startPondering(player);
+                    move = player.nextMove(this, availableMoves);
+                    if (ponderer != null) {
+                        ponderer.stop();
+                    }
+                }
+                if (timeManager != null) {
+                    timeManager.endTurn();
+                }
                 var movedPiece = this.getPiece(move.getSource());
 
                 // stored information for undo()
@@ -107,16 +132,103 @@ public class JesonMor extends Game {
                 System.out.println("Congratulations! ");
                 System.out.printf("Winner: %s%s%s\n", player.getColor(), player.getName(), Color.DEFAULT);
                 this.winner = winner;
-                // stop all threads
-                for (var entry : this.configuration.getPieceThreadMap().entrySet()) {
-                    entry.getKey().terminate();
-                    entry.getValue().interrupt();
+                // stop all threads, unless they are reused by the next game
+                if (!this.configuration.getPieceRuntime().isPersistent()) {
+                    this.configuration.getPieceRuntime().shutdown();
                 }
                 return winner;
             }
         }
     }
 
+    /**
+     * Look the current position up in {@link Configuration#getOpeningBook()}, so that a {@link ComputerPlayer}
+     * plays known openings at once instead of spending its turn budget on them.
+     *
+     * @param player the player to move
+     * @return the move of the book, or null if the player is not a computer player, there is no book, or the book
+     * has no trusted move of the position for a piece that is not paused or terminated
+     */
+    public Move getBookMove(Player player) {
+        var book = this.configuration.getOpeningBook();
+        if (book == null || !(player instanceof ComputerPlayer) || !Position.isSupported(this)) {
+            return null;
+        }
+        var position = Position.fromGame(this);
+        int bookMove = book.choose(position);
+        if (bookMove == Position.NO_MOVE || !position.isLegal(bookMove)) {
+            return null;
+        }
+        var move = position.toMove(bookMove);
+        var piece = this.getPiece(move.getSource());
+        if (piece.isPaused() || piece.isTerminated()) {
+            return null;
+        }
+        return move;
+    }
+
+    /**
+     * Let the opponent of a {@link HumanPlayer} with {@link Strategy#SEARCH} search on the human's time.
+     *
+     * @param player the player about to think of a move
+     * @return the started ponderer, or null if the opponent does not ponder
+     */
+    private Ponderer startPondering(Player player) {
+        var players = this.configuration.getPlayers();
+        var opponent = players[(this.numMoves + 1) % players.length];
+        if (!this.configuration.isPondering() || !(player instanceof HumanPlayer)
+                || !(opponent instanceof ComputerPlayer) || opponent.getStrategy() != Strategy.SEARCH
+                || !Position.isSupported(this)) {
+            return null;
+        }
+        var ponderer = this.configuration.getPonderer();
+        ponderer.start(Position.fromGame(this));
+        return ponderer;
+    }
+
+    /**
+     * Bring the game back to the initial board of the configuration, so that the same game object, pieces and
+     * piece threads can play again.
+     * Scores, move records, undo history and the state of the last turn are cleared, and paused/terminated pieces
+     * run again.
+     * Requires a persistent {@link castle.comp3021.assignment.protocol.PieceRuntime}.
+     */
+    public void reset() {
+        this.configuration.getPieceRuntime().reset();
+        for (var player : this.configuration.getPlayers()) {
+            player.setScore(0);
+        }
+        this.numMoves = 0;
+        this.board = copyInitialBoard();
+        this.currentPlayer = null;
+        this.winner = null;
+        this.moveRecords.clear();
+        this.numOfUndo = 0;
+        this.lastScores.clear();
+        this.lastPieces.clear();
+        this.lastMoves.clear();
+        this.lastPlayers.clear();
+        // nothing of the last turn of the previous game is carried over to the first turn of this one
+        this.turnDeadline = 0;
+        this.turnDeadlineMoves = -1;
+        this.candidateScores.clear();
+        this.behaviorContext = null;
+    }
+
+    /**
+     * Copy the initial board, so that moves of the game do not modify the configuration.
+     *
+     * @return a copy of {@link Configuration#getInitialBoard()}
+     */
+    private Piece[][] copyInitialBoard() {
+        var initialBoard = this.configuration.getInitialBoard();
+        var copy = new Piece[initialBoard.length][];
+        for (int i = 0; i < initialBoard.length; i++) {
+            copy[i] = initialBoard[i].clone();
+        }
+        return copy;
+    }
+
     /**
      * Get the winner of the game. If there is no winner yet, return null;
      *
@@ -207,6 +319,8 @@ public class JesonMor extends Game {
      * - for {@link ComputerPlayer}:
      *  before a candidate move is proposed, print "Computer is figuring out next move..."
      *  return an array containing candidate moves proposed by each piece thread of computer player.
+     *  All piece threads compute in parallel and their proposals are collected when the turn budget
+     *  ({@link Configuration#getTurnBudgetMillis(Player)}) runs out, each piece contributing its best move so far.
      *  Paused/terminated pieces will not propose candidate moves.
      *  The number of moves in the array should be the same as the number of non-paused/non-terminated pieces.
      *
@@ -217,8 +331,10 @@ public class JesonMor extends Game {
         //TODO
         var moves = new ArrayList<Move>();
 
-        if (player instanceof ComputerPlayer)
+        if (player instanceof ComputerPlayer) {
             System.out.println("Computer is figuring out next move...");
+            return getCandidateMoves(player);
+        }
 
         for (int i = 0; i < this.configuration.getSize(); i++) {
             for (int j = 0; j < this.configuration.getSize(); j++) {
@@ -234,17 +350,61 @@ public class JesonMor extends Game {
                 if (player instanceof HumanPlayer) {
                     var candidateMoves = piece.getAvailableMoves(this, new Place(i, j));
                     moves.addAll(Arrays.asList(candidateMoves));
-                } else if (player instanceof ComputerPlayer) {
-                    var candidateMove = piece.getCandidateMove(this, new Place(i, j));
-                    if (candidateMove != null) {
-                        moves.add(candidateMove);
-                    }
                 }
             }
         }
         return moves.toArray(new Move[0]);
     }
 
+    /**
+     * Request candidate moves from all pieces of a computer player at once, then collect them at the deadline
+     * of the turn.
+     * The computations are scoped to the turn: when the collection ends, every outstanding computation is
+     * cancelled and its partial work discarded.
+     * The pieces score their moves against one {@link BehaviorContext} built for the turn, and the scores of
+     * scored proposals are kept for the player, see {@link Game#getCandidateScore(Move)}.
+     *
+     * @param player the computer player
+     * @return an array of candidate moves
+     */
+    private Move[] getCandidateMoves(Player player) {
+        var places = new ArrayList<Place>();
+        for (int i = 0; i < this.configuration.getSize(); i++) {
+            for (int j = 0; j < this.configuration.getSize(); j++) {
+                var piece = this.getPiece(i, j);
+                if (piece != null && piece.getPlayer().equals(player)) {
+                    places.add(new Place(i, j));
+                }
+            }
+        }
+
+        // one deadline for the whole turn, so that choosing among the proposals does not get a budget of its own
+        var deadline = this.configuration.getTurnDeadline(player);
+        this.turnDeadline = deadline;
+        this.turnDeadlineMoves = this.numMoves;
+        var moves = new ArrayList<Move>();
+        this.behaviorContext = new BehaviorContext(this);
+        this.candidateScores.clear();
+        try {
+            for (var place : places) {
+                Objects.requireNonNull(this.getPiece(place)).requestCandidateMove(this, place, deadline);
+            }
+            for (var place : places) {
+                var piece = Objects.requireNonNull(this.getPiece(place));
+                var candidateMove = piece.collectCandidateMove(this, place, deadline);
+                if (candidateMove != null) {
+                    moves.add(candidateMove);
+                }
+            }
+        } finally {
+            for (var place : places) {
+                Objects.requireNonNull(this.getPiece(place)).cancelCandidateMove();
+            }
+            this.behaviorContext = null;
+        }
+        return moves.toArray(new Move[0]);
+    }
+
 
     /**
      * Undo a move of {@link HumanPlayer}
@@ -6,6 +6,8 @@ import castle.comp3021.assignment.player.ComputerPlayer;
 import castle.comp3021.assignment.protocol.*;
 import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
 
+import java.nio.file.Path;
+
 public class Main {
     protected static Player whitePlayer;
     protected static Player blackPlayer;
@@ -14,6 +16,12 @@ public class Main {
     protected static int criticalRegionSize;
     protected static int criticalRegionCapacity;
 
+    /**
+     * Weights of the evaluation of the computer players tuned by
+     * {@link castle.comp3021.assignment.search.EvaluationTuner}, or null for the default weights.
+     */
+    protected static Path evaluationFile;
+
     static {
 //        whitePlayer = new ConsolePlayer("White");
 //        blackPlayer = new ComputerPlayer("Black");
@@ -42,6 +50,9 @@ public class Main {
         } catch (InvalidConfigurationError e) {
             throw e;
         }
+        if (evaluationFile != null) {
+            configuration.setEvaluationFile(evaluationFile);
+        }
 
         for (int i = 0; i < size; i++) {
             if (i % 2 == 0) {
@@ -96,6 +107,9 @@ public class Main {
                 throw new IllegalArgumentException("the fourth argument is not a number");
             }
         }
+        if (args.length >= 5) {
+            evaluationFile = Path.of(args[4]);
+        }
         createGame(size, numMovesProtection, criticalRegionSize, criticalRegionCapacity).start();
     }
 }
@@ -0,0 +1,103 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BehaviorContextTests {
+    private Configuration config;
+    private JesonMor game;
+
+    @BeforeEach
+    public void setUpGame() {
+        var blue = new MockPlayer(Color.BLUE);
+        var green = new MockPlayer(Color.GREEN);
+        this.config = new Configuration(5, new Player[]{blue, green}, 1);
+        this.config.addInitialPiece(new Knight(blue), 0, 0);
+        this.config.addInitialPiece(new Archer(blue), 4, 4);
+        this.config.addInitialPiece(new Knight(green), 3, 1);
+        this.config.addInitialPiece(new Archer(green), 1, 3);
+        this.game = new JesonMor(this.config);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.config.getPieceRuntime().shutdown();
+    }
+
+    @Test
+    public void testMasks() {
+        var context = new BehaviorContext(game);
+        assertTrue(context.isCaptureProtected());
+        assertEquals(5 * 3 + 1, context.square(new Place(3, 1)));
+        assertTrue(context.isEnemy(context.square(new Place(3, 1))));
+        assertTrue(context.isEnemy(context.square(new Place(1, 3))));
+        assertFalse(context.isEnemy(context.square(new Place(0, 0))));
+        assertFalse(context.isEnemy(context.square(new Place(2, 2))));
+
+        int blocking = 0;
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                int square = context.square(new Place(x, y));
+                if (context.blocksEnemyKnight(square)) {
+                    blocking++;
+                    assertEquals(1, Math.abs(x - 3) + Math.abs(y - 1));
+                }
+                assertEquals(Math.abs(x - 2) + Math.abs(y - 2), context.centralDistance(square));
+            }
+        }
+        assertEquals(4, blocking);
+
+        // the other player sees the blue pieces as enemies
+        game.numMoves = 3;
+        var green = game.getBehaviorContext();
+        assertFalse(green.isCaptureProtected());
+        assertTrue(green.isEnemy(green.square(new Place(0, 0))));
+        assertFalse(green.isEnemy(green.square(new Place(3, 1))));
+        assertTrue(green.blocksEnemyKnight(green.square(new Place(1, 0))));
+        assertFalse(green.blocksEnemyKnight(green.square(new Place(3, 4))));
+    }
+
+    @Test
+    public void testContextIsSharedWithinTurn() {
+        var context = new BehaviorContext(game);
+        game.behaviorContext = context;
+        assertSame(context, game.getBehaviorContext());
+        game.numMoves = 2;
+        assertNotSame(context, game.getBehaviorContext());
+        assertFalse(context.isFor(game));
+        game.numMoves = 0;
+        assertTrue(context.isFor(game));
+        game.behaviorContext = null;
+        assertNotSame(context, game.getBehaviorContext());
+    }
+
+    @Test
+    public void testBehaviorsScoreAgainstContext() {
+        game.numMoves = 2;
+        var source = new Place(2, 0);
+        var toCenter = new Move(source, 2, 2);
+        var blocking = new Move(source, 3, 0);
+        var capture = new Move(source, 3, 1);
+        var far = new Move(source, 0, 1);
+        var moves = new Move[]{far, blocking, toCenter, capture};
+        var context = game.getBehaviorContext();
+        var random = new SplittableRandom(3021);
+        for (int i = 0; i < 50; i++) {
+            assertSame(toCenter, new MakeMoveByBehavior(context, moves, Behavior.GREEDY, random).getNextMove());
+            assertSame(capture, new MakeMoveByBehavior(context, moves, Behavior.CAPTURING, random).getNextMove());
+            assertSame(blocking, new MakeMoveByBehavior(game, moves, Behavior.BLOCKING).getNextMove());
+        }
+        var none = new Move[]{far};
+        assertSame(far, new MakeMoveByBehavior(context, none, Behavior.BLOCKING, random).getNextMove());
+        assertSame(far, new MakeMoveByBehavior(context, none, Behavior.RANDOM, random).getNextMove());
+    }
+}
@@ -4,12 +4,17 @@ import castle.comp3021.assignment.player.ComputerPlayer;
 import castle.comp3021.assignment.textversion.JesonMor;
 import castle.comp3021.assignment.mock.MockPiece;
 import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.CandidateProposal;
+import castle.comp3021.assignment.piece.Knight;
 import castle.comp3021.assignment.util.PA1Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ComputerPlayerTests {
@@ -36,4 +41,57 @@ public class ComputerPlayerTests {
         var move = player2.nextMove(game, moves);
         assertTrue(Arrays.asList(moves).contains(move));
     }
+
+    @Test
+    public void testTurnBudgetSharedByPieces() {
+        var config = new Configuration(9, new Player[]{player2, player1});
+        config.setTurnBudgetMillis(10);
+        for (int i = 0; i < 9; i += 2) {
+            config.addInitialPiece(new Knight(player2), i, 0);
+        }
+        config.addInitialPiece(new MockPiece(player1), 0, 8);
+        var clock = new VirtualClock();
+        config.setClock(clock);
+        var game = new JesonMor(config);
+
+        var start = clock.nanoTime();
+        var moves = game.getAvailableMoves(player2);
+        assertEquals(5, moves.length);
+        // pieces compute in parallel within one budget, instead of one budget each
+        var budget = TimeUnit.MILLISECONDS.toNanos(10);
+        assertEquals(start + budget, game.getTurnDeadline().getAsLong());
+        assertTrue(clock.nanoTime() - start <= budget);
+        for (var entry : config.getPieceThreadMap().keySet()) {
+            entry.terminate();
+        }
+    }
+
+    @Test
+    public void testTurnCancelsOutstandingProposals() {
+        var config = new Configuration(9, new Player[]{player2, player1});
+        var knight = new Knight(player2);
+        config.addInitialPiece(knight, 0, 0);
+        config.addInitialPiece(new MockPiece(player1), 0, 8);
+        var game = new JesonMor(config);
+        var source = new Place(0, 0);
+
+        assertEquals(1, game.getAvailableMoves(player2).length);
+        // nothing of the finished turn is left for the next one
+        assertNull(knight.collectCandidateMove(game, source, config.getClock().nanoTime()));
+
+        var deadline = config.getClock().nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        knight.requestCandidateMove(game, source, deadline);
+        knight.cancelCandidateMove();
+        assertNull(knight.collectCandidateMove(game, source, deadline));
+
+        var proposal = new CandidateProposal(game, source, deadline, () -> true);
+        proposal.publish(new Move(0, 0, 1, 2));
+        proposal.cancel();
+        assertTrue(proposal.isCancelled());
+        // partial work is discarded, and the collector is released at once
+        assertNull(proposal.await());
+        for (var piece : config.getPieceThreadMap().keySet()) {
+            piece.terminate();
+        }
+    }
 }
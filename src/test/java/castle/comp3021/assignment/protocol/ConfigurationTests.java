@@ -2,6 +2,7 @@ package castle.comp3021.assignment.protocol;
 
 import castle.comp3021.assignment.mock.MockPiece;
 import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.player.ComputerPlayer;
 import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
 import castle.comp3021.assignment.util.PA1Test;
 import org.junit.jupiter.api.Test;
@@ -41,4 +42,19 @@ public class ConfigurationTests {
         assertEquals(2, config.getPlayers().length);
         assertEquals(piece, config.getInitialBoard()[0][0]);
     }
+
+    @Test
+    public void testTurnBudget() {
+        var player1 = new MockPlayer();
+        var player2 = new ComputerPlayer("Computer", Color.BLUE, Strategy.RANDOM, 10);
+        var config = new Configuration(3, new Player[]{player1, player2});
+        assertEquals(1000, config.getTurnBudgetMillis());
+        assertEquals(1000, config.getTurnBudgetMillis(player1));
+        assertEquals(10, config.getTurnBudgetMillis(player2));
+        assertThrows(InvalidConfigurationError.class, () -> config.setTurnBudgetMillis(0));
+        config.setTurnBudgetMillis(50);
+        assertEquals(50, config.getTurnBudgetMillis(player1));
+        player2.setTurnBudgetMillis(0);
+        assertEquals(50, config.getTurnBudgetMillis(player2));
+    }
 }
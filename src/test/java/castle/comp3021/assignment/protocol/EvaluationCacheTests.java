@@ -0,0 +1,107 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Evaluation;
+import castle.comp3021.assignment.search.EvaluationCache;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluationCacheTests {
+    @Test
+    public void testCacheReturnsEvaluation() {
+        var cache = new EvaluationCache(1, Evaluation.DEFAULT, true);
+        assertEquals(1 << 17, cache.capacity());
+        var random = new Random(3021);
+        var position = Position.initial(7, 2, 3, 2);
+        var moves = new int[position.maxMoves()];
+        int plies = 0;
+        for (; plies < 60; plies++) {
+            assertEquals(Evaluation.evaluate(position), cache.evaluate(position));
+            int count = position.generateMoves(moves, 0);
+            if (count == 0 || position.make(moves[random.nextInt(count)])) {
+                break;
+            }
+        }
+        assertEquals(0, cache.getHits());
+        // going back visits the same positions again
+        while (plies-- > 0) {
+            position.unmake();
+            assertEquals(Evaluation.evaluate(position), cache.evaluate(position));
+        }
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getHitRate() > 0.4);
+
+        // positions with other weights are not cached
+        long probes = cache.getProbes();
+        position.setEvaluation(new Evaluation(1, 2, 3, 4, 5, 6, 7, 8));
+        assertEquals(Evaluation.evaluate(position), cache.evaluate(position));
+        assertEquals(probes, cache.getProbes());
+
+        cache.clear();
+        assertEquals(0, cache.getProbes());
+        assertThrows(IllegalArgumentException.class, () -> new EvaluationCache(0, Evaluation.DEFAULT));
+    }
+
+    @Test
+    public void testSearchWithCache() {
+        var position = Position.initial(7, 1, 3, 2);
+        var search = new AlphaBetaSearch(new VirtualClock());
+        var plain = search.search(position, null, SearchLimits.ofDepth(3));
+
+        var cache = new EvaluationCache(1, Evaluation.DEFAULT, true);
+        search = new AlphaBetaSearch(new VirtualClock());
+        search.setEvaluationCache(cache);
+        var cached = search.search(position, null, SearchLimits.ofDepth(3));
+        assertEquals(plain.getBestMove(), cached.getBestMove());
+        assertEquals(plain.getScore(), cached.getScore());
+        assertEquals(plain.getNodes(), cached.getNodes());
+        // the iterations evaluate the leaves of the previous ones again
+        assertTrue(cache.getHits() > 0);
+
+        // a cache without statistics gives the same results and counts nothing
+        var quiet = new EvaluationCache(1, Evaluation.DEFAULT);
+        assertFalse(quiet.hasStatistics());
+        search = new AlphaBetaSearch(new VirtualClock());
+        search.setEvaluationCache(quiet);
+        assertEquals(plain.getScore(), search.search(position, null, SearchLimits.ofDepth(3)).getScore());
+        assertEquals(0, quiet.getProbes());
+        assertEquals(0, quiet.getHitRate());
+    }
+
+    @Test
+    public void testConfigurationSharesCache() {
+        var config = new Configuration(5, new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)});
+        var cache = config.getEvaluationCache();
+        assertSame(cache, config.getEvaluationCache());
+        assertSame(Evaluation.DEFAULT, cache.getEvaluation());
+        assertSame(cache, config.getParallelSearch().getEvaluationCache());
+        assertSame(cache, config.getMonteCarloTreeSearch().getEvaluationCache());
+        assertSame(cache, config.getPonderer().getEvaluationCache());
+
+        var evaluation = new Evaluation(1, 2, 3, 4, 5, 6, 7, 8);
+        config.setEvaluation(evaluation);
+        assertSame(evaluation, config.getEvaluationCache().getEvaluation());
+        assertSame(config.getEvaluationCache(), config.getParallelSearch().getEvaluationCache());
+
+        assertFalse(config.getEvaluationCache().hasStatistics());
+        config.setSearchStatistics(true);
+        assertTrue(config.getEvaluationCache().hasStatistics());
+        assertSame(config.getEvaluationCache(), config.getParallelSearch().getEvaluationCache());
+
+        config.setEvaluationCacheMegabytes(2);
+        assertEquals(2L << 20, config.getEvaluationCache().getSizeBytes());
+        config.setEvaluationCacheMegabytes(0);
+        assertNull(config.getEvaluationCache());
+        assertNull(config.getParallelSearch().getEvaluationCache());
+        assertThrows(InvalidConfigurationError.class, () -> config.setEvaluationCacheMegabytes(-1));
+        config.getParallelSearch().shutdown();
+        config.getMonteCarloTreeSearch().shutdown();
+    }
+}
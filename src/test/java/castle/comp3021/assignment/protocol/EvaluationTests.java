@@ -0,0 +1,78 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.Evaluation;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluationTests {
+    private static final Evaluation CUSTOM = new Evaluation(300, 10, 20, 0, 40, 5, 15, 100);
+
+    @Test
+    public void testIncrementalScoreMatchesScratch() {
+        var random = new Random(3021);
+        int[][] setups = {{5, 0, 1, 1}, {7, 2, 3, 2}, {9, 4, 5, 1}};
+        for (var setup : setups) {
+            for (var evaluation : new Evaluation[]{Evaluation.DEFAULT, CUSTOM}) {
+                for (int round = 0; round < 10; round++) {
+                    var position = Position.initial(setup[0], setup[1], setup[2], setup[3]);
+                    position.setEvaluation(evaluation);
+                    var moves = new int[position.maxMoves()];
+                    int initialScore = evaluation.score(position);
+                    int plies = 0;
+                    for (; plies < 100; plies++) {
+                        assertEquals(evaluation.scoreFromScratch(position), evaluation.score(position));
+                        int count = position.generateMoves(moves, 0);
+                        if (count == 0) {
+                            break;
+                        }
+                        if (position.make(moves[random.nextInt(count)])) {
+                            plies++;
+                            break;
+                        }
+                        // a copy evaluates the same way
+                        assertEquals(evaluation.score(position), evaluation.score(position.copy()));
+                    }
+                    while (plies-- > 0) {
+                        position.unmake();
+                    }
+                    assertEquals(initialScore, evaluation.score(position));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWeightsAreConfigurable() {
+        var position = Position.initial(7, 2, 3, 2);
+        var moves = new int[position.maxMoves()];
+        position.generateMoves(moves, 0);
+        position.make(moves[0]);
+        int defaultScore = Evaluation.evaluate(position);
+        position.setEvaluation(CUSTOM);
+        assertSame(CUSTOM, position.getEvaluation());
+        assertEquals(CUSTOM.scoreFromScratch(position), Evaluation.evaluate(position));
+        assertNotEquals(defaultScore, Evaluation.evaluate(position));
+        position.setEvaluation(Evaluation.DEFAULT);
+        assertEquals(defaultScore, Evaluation.evaluate(position));
+
+        var config = new Configuration(7, new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)},
+                2, 3, 2);
+        config.setAllInitialPieces();
+        assertSame(Evaluation.DEFAULT, config.getEvaluation());
+        assertThrows(InvalidConfigurationError.class, () -> config.setEvaluation(null));
+        config.setEvaluation(CUSTOM);
+        var game = new JesonMor(config);
+        try {
+            assertSame(CUSTOM, Position.fromGame(game).getEvaluation());
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.Evaluation;
+import castle.comp3021.assignment.search.EvaluationTuner;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SelfPlayCorpus;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluationTunerTests {
+    private static final Evaluation CUSTOM = new Evaluation(300, 10, 20, 0, 40, 5, 15, 100);
+
+    @Test
+    public void testEvaluationIsLinearInFeatures() {
+        var random = new Random(3021);
+        var features = new int[EvaluationTuner.WEIGHTS];
+        for (var evaluation : new Evaluation[]{Evaluation.DEFAULT, CUSTOM}) {
+            var weights = evaluation.getWeights();
+            var position = Position.initial(7, 0, 3, 1);
+            position.setEvaluation(evaluation);
+            var moves = new int[position.maxMoves()];
+            for (int ply = 0; ply < 80; ply++) {
+                Evaluation.features(position, features);
+                int score = 0;
+                for (int i = 0; i < features.length; i++) {
+                    score += weights[i] * features[i];
+                }
+                assertEquals(Evaluation.evaluate(position), score);
+                int count = position.generateMoves(moves, 0);
+                if (count == 0 || position.make(moves[random.nextInt(count)])) {
+                    break;
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> Evaluation.fromWeights(new int[3]));
+    }
+
+    @Test
+    public void testWeightFile() throws IOException {
+        var file = Files.createTempFile("weights", ".properties");
+        try {
+            CUSTOM.save(file);
+            assertArrayEquals(CUSTOM.getWeights(), Evaluation.load(file).getWeights());
+
+            var config = new Configuration(5, new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)});
+            config.setEvaluationFile(file);
+            assertArrayEquals(CUSTOM.getWeights(), config.getEvaluation().getWeights());
+            assertThrows(InvalidConfigurationError.class,
+                    () -> config.setEvaluationFile(file.resolveSibling("missing.properties")));
+
+            // missing weights keep their default
+            Files.writeString(file, "archerValue=75\n");
+            assertEquals(75, Evaluation.load(file).getArcherValue());
+            assertEquals(Evaluation.KNIGHT_VALUE, Evaluation.load(file).getKnightValue());
+            Files.writeString(file, "archerValue=many\n");
+            assertThrows(IOException.class, () -> Evaluation.load(file));
+            assertThrows(InvalidConfigurationError.class, () -> config.setEvaluationFile(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTuningLowersError() throws IOException {
+        var corpus = new SelfPlayCorpus(5, 0, 1, 1);
+        corpus.play(16, 4, 1, 7, 2);
+        assertEquals(16, corpus.getGameCount());
+
+        var file = Files.createTempFile("corpus", ".jmsp");
+        try {
+            corpus.write(file);
+            var read = SelfPlayCorpus.read(file);
+            assertEquals(corpus.getGameCount(), read.getGameCount());
+            for (int i = 0; i < corpus.getGameCount(); i++) {
+                assertArrayEquals(corpus.getMoves(i), read.getMoves(i));
+                assertEquals(corpus.getWinner(i), read.getWinner(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        var pool = new ForkJoinPool(4);
+        try {
+            var tuner = new EvaluationTuner(corpus, pool);
+            assertTrue(tuner.getPositionCount() > 0);
+            assertTrue(tuner.getPositionCount() <= corpus.getPositionCount());
+            var initial = Evaluation.DEFAULT.getWeights();
+            double scale = tuner.fitScale(initial);
+            assertTrue(scale > 0);
+            // the parallel sum is the sequential one, up to rounding
+            var single = new ForkJoinPool(1);
+            try {
+                var sequential = new EvaluationTuner(corpus, single);
+                assertEquals(sequential.error(initial, scale), tuner.error(initial, scale), 1e-12);
+            } finally {
+                single.shutdown();
+            }
+
+            var tuned = tuner.tune(Evaluation.DEFAULT, 20);
+            assertTrue(tuner.error(tuned.getWeights(), scale) <= tuner.error(initial, scale));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.CandidateProposal;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameClockTests {
+    private Configuration config;
+    private VirtualClock clock;
+    private ComputerPlayer player1;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.player1 = new ComputerPlayer("Computer");
+        var player2 = new MockPlayer(Color.YELLOW);
+        this.config = new Configuration(5, new Player[]{player1, player2});
+        this.clock = new VirtualClock();
+        this.config.setClock(this.clock);
+        // a timeout of one minute must not really be waited for
+        this.config.setTurnBudgetMillis(TimeUnit.MINUTES.toMillis(1));
+        this.config.addInitialPiece(new MockPiece(player2), 4, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.config.getPieceRuntime().shutdown();
+    }
+
+    @Test
+    public void testAdvance() {
+        assertEquals(0, clock.nanoTime());
+        clock.advance(10);
+        clock.advanceTo(5);
+        assertEquals(10, clock.nanoTime());
+        clock.advanceTo(20);
+        assertEquals(20, clock.nanoTime());
+        assertThrows(IllegalArgumentException.class, () -> clock.advance(-1));
+    }
+
+    @Test
+    public void testComputationTakesNoVirtualTime() {
+        var knight = new Knight(player1);
+        this.config.addInitialPiece(knight, 0, 0);
+        var game = new JesonMor(this.config);
+
+        assertNotNull(knight.getCandidateMove(game, new Place(0, 0)));
+        assertEquals(0, clock.nanoTime());
+    }
+
+    @Test
+    public void testTimeoutIsInstant() {
+        var game = new JesonMor(this.config);
+        var source = new Place(0, 0);
+        var deadline = clock.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+
+        // a piece that cannot make progress times out at once, at exactly the deadline
+        var start = System.nanoTime();
+        var proposal = new CandidateProposal(game, source, deadline, () -> false);
+        assertNull(proposal.await());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(deadline, clock.nanoTime());
+        assertTrue(proposal.isExpired());
+
+        // the best move published before the timeout is still collected
+        deadline = clock.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        proposal = new CandidateProposal(game, source, deadline, () -> false);
+        var move = new Move(0, 0, 1, 2);
+        proposal.publish(move);
+        assertEquals(move, proposal.await());
+        assertEquals(deadline, clock.nanoTime());
+    }
+
+    @Test
+    public void testPausedPieceDoesNotDelayRound() {
+        var knight = new Knight(player1);
+        var archer = new Archer(player1);
+        this.config.addInitialPiece(knight, 0, 0);
+        this.config.addInitialPiece(archer, 1, 0);
+        var game = new JesonMor(this.config);
+        archer.pause();
+
+        var moves = game.getAvailableMoves(player1);
+        assertEquals(1, moves.length);
+        assertEquals(new Place(0, 0), moves[0].getSource());
+        assertEquals(0, clock.nanoTime());
+    }
+
+    @Test
+    public void testTurnDeadlineIsFixedOnce() {
+        this.config.addInitialPiece(new Knight(player1), 0, 0);
+        var game = new JesonMor(this.config);
+        assertTrue(game.getTurnDeadline().isEmpty());
+
+        // collecting the proposals fixes the end of the turn, and choosing among them later does not move it
+        var moves = game.getAvailableMoves(player1);
+        var deadline = TimeUnit.MINUTES.toNanos(1);
+        assertEquals(deadline, game.getTurnDeadline().orElseThrow());
+        clock.advance(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(deadline, game.getTurnDeadline().orElseThrow());
+        assertEquals(deadline, this.config.getTurnDeadline(player1) - TimeUnit.SECONDS.toNanos(10));
+
+        // the next turn does not inherit it
+        game.movePiece(moves[0]);
+        game.numMoves++;
+        assertTrue(game.getTurnDeadline().isEmpty());
+    }
+}
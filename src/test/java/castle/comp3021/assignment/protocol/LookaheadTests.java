@@ -0,0 +1,72 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.CandidateProposal;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LookaheadTests {
+    @Test
+    public void testPiecesProposeScoredMoves() {
+        var computer = new ComputerPlayer("Lookahead", Color.BLUE, Strategy.LOOKAHEAD);
+        var config = new Configuration(5, new Player[]{computer, new MockPlayer(Color.GREEN)}, 0);
+        config.setClock(new VirtualClock());
+        config.setPieceLookaheadDepth(2);
+        config.addInitialPiece(new Knight(computer), 0, 0);
+        config.addInitialPiece(new Archer(computer), 4, 0);
+        config.addInitialPiece(new Archer(config.getPlayers()[1]), 1, 2);
+        config.addInitialPiece(new Knight(config.getPlayers()[1]), 4, 4);
+        var game = new JesonMor(config);
+        try {
+            var moves = game.getAvailableMoves(computer);
+            assertEquals(2, moves.length);
+            var capture = new Move(0, 0, 1, 2);
+            for (var move : moves) {
+                assertTrue(game.getCandidateScore(move).isPresent());
+            }
+            // the knight finds the capture of the archer, and the archer none as good
+            assertTrue(game.getCandidateScore(capture).isPresent());
+            var archerMove = moves[0].equals(capture) ? moves[1] : moves[0];
+            assertTrue(game.getCandidateScore(capture).getAsInt() > game.getCandidateScore(archerMove).getAsInt());
+            assertEquals(capture, computer.nextMove(game, moves));
+
+            // a new turn forgets the scores of the previous one
+            var stale = new Move(4, 4, 3, 2);
+            game.recordCandidateScore(stale, 7);
+            config.setPieceLookaheadDepth(1);
+            game.getAvailableMoves(computer);
+            assertTrue(game.getCandidateScore(capture).isPresent());
+            assertFalse(game.getCandidateScore(stale).isPresent());
+            assertThrows(InvalidConfigurationError.class, () -> config.setPieceLookaheadDepth(0));
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+
+    @Test
+    public void testProposalKeepsCollectedScore() {
+        var config = new Configuration(5, new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)});
+        var clock = new VirtualClock();
+        config.setClock(clock);
+        var game = new JesonMor(config);
+        var proposal = new CandidateProposal(game, new Place(0, 0), clock.nanoTime(), () -> true);
+        var first = new Move(0, 0, 1, 2);
+        proposal.publish(first, AlphaBetaSearch.MATE - 1);
+        proposal.complete();
+        assertEquals(first, proposal.await());
+        assertEquals(AlphaBetaSearch.MATE - 1, proposal.getCollectedScore());
+        // a move published after the collection does not change the collected score
+        proposal.publish(new Move(0, 0, 2, 1));
+        assertEquals(AlphaBetaSearch.MATE - 1, proposal.getCollectedScore());
+        assertEquals(CandidateProposal.UNSCORED,
+                new CandidateProposal(game, new Place(0, 0), clock.nanoTime(), () -> false).getCollectedScore());
+        config.getPieceRuntime().shutdown();
+    }
+}
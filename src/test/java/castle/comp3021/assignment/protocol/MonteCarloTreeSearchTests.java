@@ -0,0 +1,174 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.search.MonteCarloTreeSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.RolloutPolicy;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloTreeSearchTests {
+    private static final RolloutPolicy POLICY = new RolloutPolicy(Behavior.GREEDY, Behavior.CAPTURING);
+
+    @Test
+    public void testFindsWinningMoves() {
+        var search = new MonteCarloTreeSearch(new VirtualClock(), 1, 1 << 14, POLICY, 1);
+
+        // an archer captures the last enemy piece
+        var capture = new Position(5, 0, 1, 1);
+        capture.put(0, Position.ARCHER, capture.getGeometry().square(0, 0));
+        capture.put(0, Position.ARCHER, capture.getGeometry().square(0, 1));
+        capture.put(1, Position.KNIGHT, capture.getGeometry().square(0, 4));
+        var result = search.search(capture, null, SearchLimits.ofNodes(2000));
+        assertEquals(Position.move(capture.getGeometry().square(0, 0), capture.getGeometry().square(0, 4)),
+                result.getBestMove());
+        assertEquals(1000, result.getScore());
+        assertTrue(result.getNodes() >= 2000);
+
+        // a knight leaves the central square
+        var central = new Position(5, 0, 1, 1);
+        central.put(0, Position.KNIGHT, central.getGeometry().getCentral());
+        central.put(1, Position.KNIGHT, central.getGeometry().square(4, 4));
+        central.put(1, Position.ARCHER, central.getGeometry().square(0, 4));
+        result = search.search(central, null, SearchLimits.ofNodes(2000));
+        assertEquals(central.getGeometry().getCentral(), Position.from(result.getBestMove()));
+        assertTrue(result.getScore() > 900);
+    }
+
+    @Test
+    public void testTreeParallelism() {
+        var position = Position.initial(9, 1, 3, 3);
+        var hash = position.hash();
+        var search = new MonteCarloTreeSearch(SystemClock.INSTANCE, 3, 1 << 16, POLICY, 2);
+        try {
+            var start = System.nanoTime();
+            var result = search.search(position, null, SearchLimits.withBudget(SystemClock.INSTANCE, 100, 1));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+            assertTrue(position.isLegal(result.getBestMove()));
+            assertTrue(result.getNodes() > 0);
+            assertTrue(result.getNodesPerSecond() > 0);
+            assertTrue(search.getTreeSize() > 1);
+            assertEquals(hash, position.hash());
+            assertEquals(result.getBestMove(), result.getPrincipalVariation()[0]);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testRootRestrictedAndTreeFull() {
+        var position = Position.initial(7, 1, 3, 2);
+        var buffer = new int[position.maxMoves()];
+        int count = position.generateMoves(buffer, 0);
+        var rootMoves = new int[]{buffer[count - 1], buffer[0]};
+
+        // room for the root moves only, so every playout starts from a root move
+        var search = new MonteCarloTreeSearch(new VirtualClock(), 1, 3, POLICY, 3);
+        var result = search.search(position, rootMoves, SearchLimits.ofNodes(500));
+        assertTrue(Arrays.stream(rootMoves).anyMatch(move -> move == result.getBestMove()));
+        assertEquals(3, search.getTreeSize());
+        assertThrows(IllegalStateException.class, () -> search.search(position, null, SearchLimits.ofNodes(1)));
+    }
+
+    @Test
+    public void testTreeReusedAfterReply() {
+        var position = Position.initial(7, 1, 3, 2);
+        var search = new MonteCarloTreeSearch(new VirtualClock(), 1, 1 << 16, POLICY, 4);
+        var first = search.search(position, null, SearchLimits.ofNodes(3000));
+        assertEquals(0, search.getReusedPlayouts());
+        var pv = first.getPrincipalVariation();
+        assertTrue(pv.length >= 2);
+
+        // the move and the most visited reply lead to a subtree with playouts
+        position.make(pv[0]);
+        position.make(pv[1]);
+        var second = search.search(position, null, SearchLimits.ofNodes(1000));
+        int reused = search.getReusedPlayouts();
+        assertTrue(reused > 0);
+        assertEquals(1000, second.getNodes());
+        var line = position.copy();
+        for (int move : second.getPrincipalVariation()) {
+            assertTrue(line.isLegal(move));
+            line.make(move);
+        }
+
+        // the same position again keeps the whole tree, narrowed to the moves to choose from
+        search.search(position, null, SearchLimits.ofNodes(1000));
+        assertEquals(reused + 1000, search.getReusedPlayouts());
+        int size = search.getTreeSize();
+        var narrowed = search.search(position, new int[]{second.getBestMove()}, SearchLimits.ofNodes(10));
+        assertEquals(second.getBestMove(), narrowed.getBestMove());
+        assertTrue(search.getReusedPlayouts() > 0);
+        assertTrue(search.getTreeSize() < size);
+
+        search.setTreeReuse(false);
+        search.search(position, null, SearchLimits.ofNodes(10));
+        assertEquals(0, search.getReusedPlayouts());
+        search.setTreeReuse(true);
+        search.search(Position.initial(7, 1, 3, 2), null, SearchLimits.ofNodes(10));
+        assertEquals(0, search.getReusedPlayouts());
+    }
+
+    @Test
+    public void testRolloutPolicyFollowsBehaviors() {
+        var position = new Position(5, 0, 1, 1);
+        var geometry = position.getGeometry();
+        position.put(0, Position.ARCHER, geometry.square(4, 0));
+        position.put(1, Position.ARCHER, geometry.square(4, 2));
+        position.put(1, Position.KNIGHT, geometry.square(3, 4));
+        position.make(Position.move(geometry.square(4, 0), geometry.square(3, 0)));
+        position.make(Position.move(geometry.square(4, 2), geometry.square(3, 2)));
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+        var random = new SplittableRandom(4);
+
+        // the archer captures the knight behind the screen
+        var capturing = new RolloutPolicy(Behavior.RANDOM, Behavior.CAPTURING);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Position.move(geometry.square(3, 0), geometry.square(3, 4)),
+                    capturing.select(position, moves, count, random));
+        }
+
+        // the archer moves as close to the central square as it can
+        var greedy = new RolloutPolicy(Behavior.RANDOM, Behavior.GREEDY);
+        for (int i = 0; i < 20; i++) {
+            int to = Position.to(greedy.select(position, moves, count, random));
+            assertEquals(2, geometry.distance(to, geometry.getCentral()));
+        }
+    }
+
+    @Test
+    public void testMctsStrategyPicksProposedMove() {
+        var computer = new ComputerPlayer("Searcher", Color.BLUE, Strategy.MCTS);
+        var opponent = new MockPlayer(Color.GREEN);
+        var config = new Configuration(5, new Player[]{computer, opponent}, 0, 1, 1);
+        config.setClock(new VirtualClock());
+        config.setMaxPlayouts(500);
+        config.addInitialPiece(new Knight(opponent), 4, 4);
+        config.addInitialPiece(new Archer(computer), 0, 0);
+        config.addInitialPiece(new Archer(computer), 0, 1);
+        var game = new JesonMor(config);
+        game.board[2][2] = new Knight(opponent);
+        try {
+            var moves = new Move[]{new Move(0, 0, 1, 0), new Move(0, 1, 0, 2), new Move(0, 0, 4, 0)};
+            var move = computer.nextMove(game, moves);
+            assertTrue(Arrays.asList(moves).contains(move));
+            assertSame(config.getMonteCarloTreeSearch(), config.getMonteCarloTreeSearch());
+            assertTrue(config.getMonteCarloTreeSearch().isTreeReuse());
+            config.setMctsTreeReuse(false);
+            assertFalse(config.getMonteCarloTreeSearch().isTreeReuse());
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+}
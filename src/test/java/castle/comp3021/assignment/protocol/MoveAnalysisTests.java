@@ -0,0 +1,86 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.action.HintAction;
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.ActionException;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveAnalysisTests {
+    @Test
+    public void testLinesMatchSeparateSearches() {
+        var position = Position.initial(5, 0, 1, 1);
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+        var clock = new VirtualClock();
+        var limits = SearchLimits.ofDepth(3);
+
+        var lines = new AlphaBetaSearch(clock).analyze(position, null, limits, count + 5);
+        assertEquals(count, lines.size());
+        var best = new AlphaBetaSearch(clock).search(position, null, limits);
+        assertEquals(best.getBestMove(), lines.get(0).getBestMove());
+        assertEquals(best.getScore(), lines.get(0).getScore());
+
+        var seen = new HashSet<Integer>();
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            assertTrue(seen.add(line.getBestMove()));
+            assertEquals(3, line.getDepth());
+            assertEquals(line.getBestMove(), line.getPrincipalVariation()[0]);
+            if (i > 0) {
+                assertTrue(line.getScore() <= lines.get(i - 1).getScore());
+            }
+            // the score of each line is the score of its move searched alone
+            var alone = new AlphaBetaSearch(clock).search(position, new int[]{line.getBestMove()}, limits);
+            assertEquals(alone.getScore(), line.getScore());
+        }
+        assertEquals(lines.get(0).getNodes(), lines.get(lines.size() - 1).getNodes());
+
+        var two = new AlphaBetaSearch(clock).analyze(position, null, limits, 2);
+        assertEquals(2, two.size());
+        assertEquals(lines.get(0).getScore(), two.get(0).getScore());
+        assertEquals(lines.get(1).getScore(), two.get(1).getScore());
+        assertThrows(IllegalArgumentException.class,
+                () -> new AlphaBetaSearch(clock).analyze(position, null, limits, 0));
+    }
+
+    @Test
+    public void testAnalyzeGame() throws ActionException {
+        var config = new Configuration(5, new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)});
+        config.setClock(new VirtualClock());
+        config.setMaxSearchDepth(2);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        try {
+            var analyses = MoveAnalysis.analyze(game, 3, 1000);
+            assertEquals(3, analyses.size());
+            for (var analysis : analyses) {
+                assertEquals(2, analysis.getDepth());
+                assertEquals(analysis.getMove(), analysis.getPrincipalVariation()[0]);
+                var piece = game.getPiece(analysis.getMove().getSource());
+                assertNotNull(piece);
+                assertEquals(game.getCurrentPlayer(), piece.getPlayer());
+                assertTrue(analysis.toString().startsWith(MoveAnalysis.notation(analysis.getMove()) + " ("));
+            }
+            assertEquals("a1->b3", MoveAnalysis.notation(new Move(0, 0, 1, 2)));
+
+            new HintAction(game, new String[]{"2"}).perform();
+            assertThrows(ActionException.class, () -> new HintAction(game, new String[]{"two"}).perform());
+            assertThrows(ActionException.class, () -> new HintAction(game, new String[]{"0"}).perform());
+            assertThrows(IllegalArgumentException.class, () -> MoveAnalysis.analyze(game, 1, 0));
+
+            game.board[2][2] = new MockPiece(game.getCurrentPlayer());
+            assertThrows(ActionException.class, () -> new HintAction(game, new String[0]).perform());
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+}
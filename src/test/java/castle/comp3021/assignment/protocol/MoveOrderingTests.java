@@ -0,0 +1,91 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.MoveOrdering;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchBenchmark;
+import castle.comp3021.assignment.search.SearchLimits;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveOrderingTests {
+    @Test
+    public void testOrder() {
+        var position = new Position(5, 0, 1, 1);
+        var geometry = position.getGeometry();
+        position.put(0, Position.KNIGHT, geometry.getCentral());
+        position.put(0, Position.ARCHER, geometry.square(0, 0));
+        position.put(0, Position.KNIGHT, geometry.square(4, 0));
+        position.put(1, Position.ARCHER, geometry.square(0, 2));
+        position.put(1, Position.KNIGHT, geometry.square(0, 4));
+        position.put(1, Position.ARCHER, geometry.square(3, 2));
+        // one move each, the knights can now win or capture
+        position.make(Position.move(geometry.square(4, 0), geometry.square(4, 1)));
+        position.make(Position.move(geometry.square(3, 2), geometry.square(3, 3)));
+
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+        var ordering = new MoveOrdering();
+        ordering.prepare(position);
+        int quiet = Position.move(geometry.square(0, 0), geometry.square(1, 0));
+        int killer = Position.move(geometry.square(4, 1), geometry.square(2, 0));
+        ordering.onCutoff(position, quiet, 1, 3);
+        ordering.onCutoff(position, killer, 2, 3);
+        int hashMove = Position.move(geometry.square(0, 0), geometry.square(0, 1));
+        ordering.score(position, moves, count, 2, hashMove);
+
+        assertEquals(hashMove, ordering.next(moves, count, 0, 2));
+        // every move of the central knight wins
+        int next = ordering.next(moves, count, 1, 2);
+        assertEquals(geometry.getCentral(), Position.from(next));
+        int index = 2;
+        while (Position.from(ordering.next(moves, count, index, 2)) == geometry.getCentral()) {
+            index++;
+        }
+        // the archer captures the knight over the screen, before the knight captures the archer
+        assertEquals(Position.move(geometry.square(0, 0), geometry.square(0, 4)), moves[index]);
+        assertEquals(Position.move(geometry.square(4, 1), geometry.square(3, 3)),
+                ordering.next(moves, count, index + 1, 2));
+        assertEquals(killer, ordering.next(moves, count, index + 2, 2));
+        // a cutoff at another ply is remembered by the history
+        assertEquals(quiet, ordering.next(moves, count, index + 3, 2));
+        assertEquals(9, ordering.getHistory(0, quiet));
+    }
+
+    @Test
+    public void testClear() {
+        var position = new Position(5, 0, 1, 1);
+        var geometry = position.getGeometry();
+        position.put(0, Position.ARCHER, geometry.square(0, 0));
+        position.put(1, Position.ARCHER, geometry.square(4, 4));
+        var ordering = new MoveOrdering();
+        ordering.prepare(position);
+        int quiet = Position.move(geometry.square(0, 0), geometry.square(1, 0));
+        ordering.onCutoff(position, quiet, 1, 3);
+        assertEquals(9, ordering.getHistory(0, quiet));
+        assertEquals(quiet, ordering.getKillers(1)[0]);
+
+        ordering.clear();
+        assertEquals(0, ordering.getHistory(0, quiet));
+        assertEquals(Position.NO_MOVE, ordering.getKillers(1)[0]);
+    }
+
+    @Test
+    public void testOrderingReducesNodes() {
+        long unordered = 0;
+        long ordered = 0;
+        for (var position : SearchBenchmark.suite()) {
+            var search = new AlphaBetaSearch(new VirtualClock());
+            search.getMoveOrdering().setEnabled(false);
+            var plain = search.search(position, null, SearchLimits.ofDepth(4));
+            unordered += plain.getNodes();
+            search.getMoveOrdering().setEnabled(true);
+            var result = search.search(position, null, SearchLimits.ofDepth(4));
+            ordered += result.getNodes();
+            // ordering changes how much is searched, not the result
+            assertEquals(plain.getScore(), result.getScore());
+        }
+        assertTrue(ordered * 2 < unordered, ordered + " nodes ordered, " + unordered + " unordered");
+    }
+}
@@ -0,0 +1,90 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.OpeningBook;
+import castle.comp3021.assignment.search.OpeningBookBuilder;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+    private static final int GAMES = 30;
+
+    private static Path build(long seed) throws IOException {
+        var file = Files.createTempFile("book", ".jmob");
+        new OpeningBookBuilder(5, 2, 1, 1).build(file, GAMES, 4, 2, seed, 2);
+        return file;
+    }
+
+    @Test
+    public void testBookAggregatesGames() throws IOException {
+        var file = build(7);
+        var again = build(7);
+        try {
+            // the same settings give the same book, however the games are scheduled
+            assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(again));
+
+            var book = OpeningBook.open(file);
+            var initial = Position.initial(5, 2, 1, 1);
+            var entries = book.lookup(initial);
+            assertEquals(GAMES, entries.stream().mapToInt(OpeningBook.Entry::getGames).sum());
+            for (int i = 1; i < entries.size(); i++) {
+                assertTrue(entries.get(i - 1).getMove() < entries.get(i).getMove());
+            }
+            for (var entry : entries) {
+                assertTrue(initial.isLegal(entry.getMove()));
+                assertTrue(entry.getPoints() <= 2 * entry.getGames());
+                // the replies were recorded too
+                initial.make(entry.getMove());
+                assertEquals(entry.getGames(), book.lookup(initial).stream()
+                        .mapToInt(OpeningBook.Entry::getGames).sum());
+                initial.unmake();
+            }
+
+            int move = book.choose(initial);
+            assertTrue(initial.isLegal(move));
+            assertTrue(entries.stream().anyMatch(entry -> entry.getMove() == move
+                    && entry.getGames() >= OpeningBook.MIN_GAMES));
+
+            // other rules have other positions
+            assertTrue(book.lookup(Position.initial(5, 3, 1, 1)).isEmpty());
+            assertEquals(Position.NO_MOVE, book.choose(Position.initial(7, 2, 1, 1)));
+        } finally {
+            Files.delete(file);
+            Files.delete(again);
+        }
+    }
+
+    @Test
+    public void testComputerPlayerConsultsBook() throws IOException {
+        var file = build(11);
+        try {
+            var computer = new ComputerPlayer("Booked", Color.BLUE, Strategy.SEARCH);
+            var human = new MockPlayer(Color.GREEN);
+            var config = new Configuration(5, new Player[]{computer, human}, 2, 1, 1);
+            config.setAllInitialPieces();
+            var missing = file.resolveSibling("missing.jmob");
+            assertThrows(InvalidConfigurationError.class, () -> config.setOpeningBookFile(missing));
+            config.setOpeningBookFile(file);
+            var game = new JesonMor(config);
+            try {
+                var book = config.getOpeningBook();
+                var position = Position.fromGame(game);
+                assertEquals(position.toMove(book.choose(position)), game.getBookMove(computer));
+                assertNull(game.getBookMove(human));
+            } finally {
+                config.getPieceRuntime().shutdown();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
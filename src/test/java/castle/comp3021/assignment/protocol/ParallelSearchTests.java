@@ -0,0 +1,73 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.ParallelSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.TranspositionTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelSearchTests {
+    @Test
+    public void testHelpersShareTable() {
+        var position = Position.initial(7, 1, 3, 2);
+        var table = new TranspositionTable(4);
+        var search = new ParallelSearch(SystemClock.INSTANCE, table, 4);
+        try {
+            var result = search.search(position, null, SearchLimits.ofDepth(4));
+            assertEquals(4, result.getDepth());
+            assertTrue(position.isLegal(result.getBestMove()));
+            // helpers searched too, and the position is left unchanged by all threads
+            assertTrue(result.getNodes() > 0);
+            assertEquals(Position.initial(7, 1, 3, 2).hash(), position.hash());
+            assertTrue(table.getOccupancy() > 0);
+
+            // searches can be repeated with the same helper threads
+            var again = search.search(position, null, SearchLimits.ofDepth(3));
+            assertEquals(3, again.getDepth());
+        } finally {
+            search.shutdown();
+        }
+        assertTrue(search.isShutdown());
+        // after a shutdown the calling thread searches alone
+        assertEquals(2, search.search(position, null, SearchLimits.ofDepth(2)).getDepth());
+    }
+
+    @Test
+    public void testHelpersStopWithMainSearch() {
+        var position = Position.initial(9, 1, 3, 3);
+        var search = new ParallelSearch(SystemClock.INSTANCE, new TranspositionTable(4), 3);
+        try {
+            var start = System.nanoTime();
+            var limits = SearchLimits.withBudget(SystemClock.INSTANCE, 50, AlphaBetaSearch.MAX_PLY);
+            var result = search.search(position, null, limits);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+            assertTrue(result.getDepth() >= 1);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testConfigurationSearchThreads() {
+        var config = new Configuration(5, new Player[]{new MockPlayer(), new MockPlayer()});
+        assertEquals(1, config.getSearchThreads());
+        var search = config.getParallelSearch();
+        assertSame(search, config.getParallelSearch());
+        assertSame(config.getTranspositionTable(), search.getTable());
+
+        config.setSearchThreads(2);
+        var parallel = config.getParallelSearch();
+        assertNotSame(search, parallel);
+        assertEquals(2, parallel.getThreads());
+        assertTrue(search.isShutdown());
+        parallel.shutdown();
+        assertThrows(InvalidConfigurationError.class, () -> config.setSearchThreads(0));
+    }
+}
@@ -0,0 +1,157 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPiece;
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.piece.PieceLifecycle;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceLifecycleTests {
+    private Configuration config;
+    private ComputerPlayer player1;
+    private MockPlayer player2;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.player1 = new ComputerPlayer("Computer");
+        this.player2 = new MockPlayer(Color.YELLOW);
+        this.config = new Configuration(5, new Player[]{player1, player2});
+    }
+
+    @Test
+    public void testStateTransitions() {
+        var lifecycle = new PieceLifecycle();
+        assertTrue(lifecycle.isRunning());
+        assertTrue(lifecycle.beginWork());
+        assertTrue(lifecycle.isBusy());
+        assertTrue(lifecycle.checkpoint());
+
+        // pause while busy takes effect at the next checkpoint
+        assertTrue(lifecycle.pause());
+        assertTrue(lifecycle.isBusy());
+        assertEquals(-1, lifecycle.getPauseLatencyNanos());
+        assertFalse(lifecycle.checkpoint());
+        assertTrue(lifecycle.getPauseLatencyNanos() >= 0);
+        lifecycle.endWork();
+        assertFalse(lifecycle.isBusy());
+        assertFalse(lifecycle.beginWork());
+
+        assertTrue(lifecycle.resume());
+        assertTrue(lifecycle.isRunning());
+
+        lifecycle.terminate();
+        assertTrue(lifecycle.isTerminated());
+        assertFalse(lifecycle.pause());
+        assertFalse(lifecycle.resume());
+        assertFalse(lifecycle.beginWork());
+    }
+
+    @Test
+    public void testTerminateWhileBusy() {
+        var lifecycle = new PieceLifecycle();
+        assertTrue(lifecycle.beginWork());
+        lifecycle.terminate();
+        assertTrue(lifecycle.isTerminated());
+        // the computation in progress is still seen as busy until it ends
+        assertTrue(lifecycle.isBusy());
+        assertFalse(lifecycle.checkpoint());
+        lifecycle.endWork();
+        assertFalse(lifecycle.isBusy());
+        assertTrue(lifecycle.isTerminated());
+    }
+
+    @Test
+    public void testResetWaitsForTerminatedThread() throws InterruptedException {
+        var lifecycle = new PieceLifecycle();
+        var release = new CountDownLatch(1);
+        var thread = new Thread(() -> {
+            lifecycle.bind();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        lifecycle.terminate();
+        assertThrows(IllegalStateException.class, lifecycle::reset);
+        assertTrue(lifecycle.isTerminated());
+
+        release.countDown();
+        thread.join();
+        lifecycle.reset();
+        assertTrue(lifecycle.isRunning());
+    }
+
+    @Test
+    public void testPauseResumeLatency() throws InterruptedException {
+        var computer = new ComputerPlayer("Lookahead", Color.BLUE, Strategy.LOOKAHEAD);
+        var config = new Configuration(9, new Player[]{computer, player2});
+        var clock = new VirtualClock();
+        config.setClock(clock);
+        // the virtual clock does not reach the deadline, so the search of the knight runs until it is paused
+        config.setPieceLookaheadDepth(64);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        var source = new Place(0, 0);
+        var knight = (Knight) game.getPiece(source);
+        var lifecycle = knight.getLifecycle();
+        var thread = config.getPieceThread(knight);
+        try {
+            knight.requestCandidateMove(game, source, clock.nanoTime() + TimeUnit.HOURS.toNanos(1));
+            var timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (!lifecycle.isBusy()) {
+                assertTrue(System.nanoTime() < timeout);
+                Thread.sleep(1);
+            }
+            // pause in the middle of the search
+            Thread.sleep(500);
+            assertTrue(lifecycle.isBusy());
+            knight.pause();
+            assertTrue(knight.isPaused());
+            timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (lifecycle.getPauseLatencyNanos() < 0 || lifecycle.isBusy()
+                    || thread.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < timeout, "the piece thread did not park after the pause");
+                Thread.sleep(1);
+            }
+            assertTrue(lifecycle.getPauseLatencyNanos() < TimeUnit.MILLISECONDS.toNanos(200));
+            assertNull(knight.collectCandidateMove(game, source, clock.nanoTime()));
+            knight.cancelCandidateMove();
+
+            knight.resume();
+            config.setPieceLookaheadDepth(1);
+            knight.requestCandidateMove(game, source, clock.nanoTime() + TimeUnit.HOURS.toNanos(1));
+            assertNotNull(knight.collectCandidateMove(game, source, clock.nanoTime() + TimeUnit.HOURS.toNanos(1)));
+            var resumeLatency = lifecycle.getResumeLatencyNanos();
+            assertTrue(resumeLatency >= 0);
+            assertTrue(resumeLatency < TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+
+    @Test
+    public void testTerminateReleasesThread() throws InterruptedException {
+        var knight = new Knight(player1);
+        this.config.addInitialPiece(knight, 0, 0);
+        this.config.addInitialPiece(new MockPiece(player2), 4, 4);
+        var thread = this.config.getPieceThread(knight);
+
+        knight.terminate();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertTrue(knight.isTerminated());
+        assertNull(knight.getCandidateMove(new JesonMor(this.config), new Place(0, 0)));
+    }
+}
@@ -0,0 +1,94 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceRuntimeTests {
+    private static final int SIZE = 5;
+
+    private Configuration config;
+
+    @BeforeEach
+    public void setUpGame() {
+        var player1 = new ComputerPlayer("White", Color.BLUE, Strategy.RANDOM);
+        var player2 = new ComputerPlayer("Black", Color.GREEN, Strategy.RANDOM);
+        this.config = new Configuration(SIZE, new Player[]{player1, player2}, 0, 1, SIZE);
+        this.config.setTurnBudgetMillis(5);
+        this.config.getPieceRuntime().setPersistent(true);
+        for (int i = 0; i < SIZE; i++) {
+            if (i % 2 == 0) {
+                this.config.addInitialPiece(new Knight(player2), i, SIZE - 1);
+                this.config.addInitialPiece(new Knight(player1), i, 0);
+            } else {
+                this.config.addInitialPiece(new Archer(player2), i, SIZE - 1);
+                this.config.addInitialPiece(new Archer(player1), i, 0);
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.config.getPieceRuntime().shutdown();
+    }
+
+    @Test
+    public void testThreadCountStableAcrossGames() {
+        var runtime = this.config.getPieceRuntime();
+        var game = new JesonMor(this.config);
+        var threads = runtime.getAllThreads();
+        assertEquals(2 * SIZE, runtime.getLiveThreadCount());
+
+        for (int round = 0; round < 10; round++) {
+            game.reset();
+            assertNotNull(game.start());
+            assertEquals(2 * SIZE, runtime.getLiveThreadCount());
+        }
+        // the very same threads played all games
+        assertEquals(threads, runtime.getAllThreads());
+    }
+
+    @Test
+    public void testResetRestartsTerminatedPiece() {
+        var runtime = this.config.getPieceRuntime();
+        var game = new JesonMor(this.config);
+        var knight = game.getPiece(0, 0);
+        assertNotNull(knight);
+
+        knight.terminate();
+        game.reset();
+        assertFalse(knight.isTerminated());
+        assertTrue(runtime.getThread(knight).isAlive());
+        assertEquals(2 * SIZE, runtime.getLiveThreadCount());
+    }
+
+    @Test
+    public void testResetClearsLastTurn() {
+        var game = new JesonMor(this.config);
+        assertNotNull(game.start());
+
+        game.reset();
+        assertTrue(game.getTurnDeadline().isEmpty());
+        assertEquals(-1, game.turnDeadlineMoves);
+        assertTrue(game.candidateScores.isEmpty());
+        assertNull(game.behaviorContext);
+    }
+
+    @Test
+    public void testShutdownAndAwait() {
+        var runtime = this.config.getPieceRuntime();
+        runtime.shutdown();
+        assertTrue(runtime.isShutdown());
+        assertTrue(runtime.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, runtime.getLiveThreadCount());
+        assertThrows(IllegalStateException.class, runtime::reset);
+    }
+}
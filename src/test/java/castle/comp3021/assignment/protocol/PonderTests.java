@@ -0,0 +1,117 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.search.Ponderer;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.TranspositionTable;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PonderTests {
+    /**
+     * Wait until the ponderer has a result for every reply, with a timeout.
+     */
+    private static void awaitResults(Ponderer ponderer, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ponderer.getResultCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, ponderer.getResultCount());
+    }
+
+    /**
+     * Wait until the ponderer has searched a position to a depth, with a timeout.
+     */
+    private static void awaitDepth(Ponderer ponderer, Position position, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            var result = ponderer.getResult(position.hash());
+            if (result != null && result.getDepth() >= depth) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("the position was not pondered to depth " + depth);
+    }
+
+    @Test
+    public void testPondersEveryReply() throws InterruptedException {
+        var ponderer = new Ponderer(new VirtualClock(), new TranspositionTable(1), 1);
+        var position = Position.initial(7, 1, 3, 2);
+        var hash = position.hash();
+        var moves = new int[position.maxMoves()];
+        int count = position.generateMoves(moves, 0);
+
+        ponderer.start(position);
+        awaitResults(ponderer, count);
+        ponderer.stop();
+        assertFalse(ponderer.isPondering());
+        assertEquals(hash, position.hash());
+
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            var result = ponderer.getResult(position.hash());
+            assertNotNull(result);
+            assertTrue(position.isLegal(result.getBestMove()));
+            assertEquals(1, result.getDepth());
+            position.unmake();
+        }
+        assertNull(ponderer.getResult(position.hash()));
+        assertEquals(count, ponderer.getHits());
+        assertEquals(1, ponderer.getMisses());
+    }
+
+    @Test
+    public void testSearchStrategyTakesPonderedResult() throws InterruptedException {
+        var human = new MockPlayer(Color.BLUE);
+        var computer = new ComputerPlayer("Searcher", Color.GREEN, Strategy.SEARCH);
+        var config = new Configuration(7, new Player[]{human, computer}, 1);
+        config.setClock(new VirtualClock());
+        config.setMaxSearchDepth(2);
+        config.setAllInitialPieces();
+        var game = new JesonMor(config);
+        try {
+            var position = Position.fromGame(game);
+            var before = position.copy();
+            var moves = new int[position.maxMoves()];
+            int count = position.generateMoves(moves, 0);
+            var ponderer = config.getPonderer();
+            ponderer.start(position);
+            awaitResults(ponderer, count);
+
+            // the human plays one of the predicted moves
+            int reply = moves[count / 2];
+            game.movePiece(position.toMove(reply));
+            game.numMoves++;
+            position.make(reply);
+            count = position.generateMoves(moves, 0);
+            var computerMoves = new Move[count];
+            for (int i = 0; i < count; i++) {
+                computerMoves[i] = position.toMove(moves[i]);
+            }
+
+            // no turn was searched yet, so the pondered move is only searched first
+            var parallelSearch = config.getParallelSearch();
+            assertEquals(0, parallelSearch.getLastDepth());
+            var move = computer.nextMove(game, computerMoves);
+            assertEquals(1, ponderer.getHits());
+            assertEquals(2, parallelSearch.getLastDepth());
+            assertTrue(Arrays.asList(computerMoves).contains(move));
+
+            // a pondered result as deep as the search of the last turn is played
+            ponderer.start(before);
+            awaitDepth(ponderer, position, 2);
+            var pondered = ponderer.getResult(position.hash());
+            move = computer.nextMove(game, computerMoves);
+            assertEquals(position.toMove(pondered.getBestMove()), move);
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+}
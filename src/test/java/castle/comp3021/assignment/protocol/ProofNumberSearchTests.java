@@ -0,0 +1,109 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.ProofNumberSearch;
+import castle.comp3021.assignment.search.ProofResult;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProofNumberSearchTests {
+    /**
+     * A knight one jump from the central square, which wins by entering it and leaving it again.
+     */
+    private static Position centralRace() {
+        var position = new Position(5, 0, 1, 1);
+        position.put(0, Position.KNIGHT, position.getGeometry().square(0, 1));
+        position.put(1, Position.KNIGHT, position.getGeometry().square(4, 4));
+        return position;
+    }
+
+    @Test
+    public void testSolveWithinPlies() throws Exception {
+        var position = centralRace();
+        var before = position.toString();
+        var search = new ProofNumberSearch(new VirtualClock(), 1 << 16);
+        try {
+            for (int plies = 1; plies <= 2; plies++) {
+                var result = search.solve(position, null, SearchLimits.ofDepthAndNodes(plies, 1 << 16));
+                assertEquals(ProofResult.Status.DISPROVEN, result.getStatus());
+                assertEquals(Position.NO_MOVE, result.getBestMove());
+            }
+            var result = search.solve(position, null, SearchLimits.ofDepthAndNodes(3, 1 << 16));
+            assertEquals(ProofResult.Status.PROVEN, result.getStatus());
+            assertEquals(before, position.toString());
+            var line = result.getLine();
+            assertEquals(3, line.length);
+            assertEquals(new Move(0, 1, 2, 2), position.toMove(line[0]));
+            assertTrue(new AlphaBetaSearch(new VirtualClock()).search(position, null, SearchLimits.ofDepth(3))
+                    .isWin());
+
+            // the line ends with the win, and is followed while the defender answers as in the line
+            assertEquals(line[0], search.provenMove(position));
+            assertFalse(position.make(line[0]));
+            assertEquals(Position.NO_MOVE, search.provenMove(position));
+            assertFalse(position.make(line[1]));
+            assertEquals(line[2], search.provenMove(position));
+            assertTrue(position.make(line[2]));
+            position.unmake();
+            position.unmake();
+            position.unmake();
+
+            // too few nodes to expand the root
+            var unknown = search.solve(position, null, SearchLimits.ofDepthAndNodes(3, 1));
+            assertEquals(ProofResult.Status.UNKNOWN, unknown.getStatus());
+
+            var proven = new AtomicInteger();
+            var future = search.submit(position, null, SearchLimits.ofDepthAndNodes(3, 1 << 16),
+                    proven::incrementAndGet);
+            assertTrue(future.get().isProven());
+            assertEquals(1, proven.get());
+            // only the root moves given are tried
+            var other = position.fromMove(new Move(0, 1, 2, 0));
+            var refuted = search.submit(position, new int[]{other}, SearchLimits.ofDepthAndNodes(3, 1 << 16),
+                    proven::incrementAndGet).get();
+            assertEquals(ProofResult.Status.DISPROVEN, refuted.getStatus());
+            assertEquals(1, proven.get());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchPlaysProvenWin() {
+        var computer = new ComputerPlayer("Search", Color.BLUE, Strategy.SEARCH);
+        var config = new Configuration(5, new Player[]{computer, new MockPlayer(Color.GREEN)}, 0);
+        config.setClock(new VirtualClock());
+        config.setMaxSearchDepth(1);
+        config.setPondering(false);
+        config.setProofNumberPlies(3);
+        config.addInitialPiece(new Knight(computer), 0, 1);
+        config.addInitialPiece(new Knight(config.getPlayers()[1]), 4, 4);
+        var game = new JesonMor(config);
+        try {
+            var moves = new Move[]{new Move(0, 1, 2, 0), new Move(0, 1, 1, 3), new Move(0, 1, 2, 2)};
+            assertEquals(new Move(0, 1, 2, 2), computer.nextMove(game, moves));
+            var solver = config.getProofNumberSearch();
+            assertNotNull(solver);
+            assertSame(solver, config.getProofNumberSearch());
+            assertEquals(Position.fromGame(game).fromMove(new Move(0, 1, 2, 2)),
+                    solver.provenMove(Position.fromGame(game)));
+
+            assertThrows(InvalidConfigurationError.class, () -> config.setProofNumberNodes(-1));
+            assertThrows(InvalidConfigurationError.class, () -> config.setProofNumberPlies(0));
+            config.setProofNumberNodes(0);
+            assertNull(config.getProofNumberSearch());
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+}
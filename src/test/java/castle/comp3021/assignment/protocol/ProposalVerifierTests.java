@@ -0,0 +1,75 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.ProposalVerifier;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProposalVerifierTests {
+    /**
+     * The capture of the enemy knight on the central square, and a knight move the heuristic prefers, after which
+     * the enemy knight leaves the central square and wins.
+     */
+    private static final Move CAPTURE = new Move(0, 1, 2, 2);
+    private static final Move BLUNDER = new Move(4, 3, 3, 1);
+
+    @Test
+    public void testSmartAvoidsBlunder() {
+        var computer = new ComputerPlayer("Smart", Color.BLUE, Strategy.SMART);
+        var opponent = new MockPlayer(Color.GREEN);
+        var config = new Configuration(5, new Player[]{computer, opponent}, 0);
+        config.setClock(new VirtualClock());
+        config.addInitialPiece(new Knight(computer), 0, 1);
+        config.addInitialPiece(new Knight(computer), 4, 3);
+        config.addInitialPiece(new Knight(opponent), 4, 0);
+        var game = new JesonMor(config);
+        game.board[2][2] = new Knight(opponent);
+        try {
+            var moves = new Move[]{CAPTURE, BLUNDER};
+            config.setSmartVerificationDepth(0);
+            assertEquals(BLUNDER, computer.nextMove(game, moves));
+            config.setSmartVerificationDepth(2);
+            assertEquals(CAPTURE, computer.nextMove(game, moves));
+            assertSame(config.getProposalVerifier(), config.getProposalVerifier());
+            assertThrows(InvalidConfigurationError.class, () -> config.setSmartVerificationDepth(-1));
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+
+    @Test
+    public void testResultsInOrderOfMoves() {
+        var position = Position.initial(7, 1, 3, 2);
+        var buffer = new int[position.maxMoves()];
+        int count = position.generateMoves(buffer, 0);
+        var moves = new int[]{buffer[0], buffer[count / 2], buffer[count - 1]};
+        var before = position.toString();
+        var clock = new VirtualClock();
+        var verifier = new ProposalVerifier(clock, 2);
+        try {
+            var limits = SearchLimits.ofDepth(2);
+            var results = verifier.verify(position, moves, limits);
+            assertEquals(moves.length, results.length);
+            assertEquals(before, position.toString());
+            for (int i = 0; i < moves.length; i++) {
+                assertEquals(moves[i], results[i].getBestMove());
+                assertEquals(2, results[i].getDepth());
+                // the same score as a search of the move alone on the calling thread
+                var alone = new AlphaBetaSearch(clock).search(position, new int[]{moves[i]}, limits);
+                assertEquals(alone.getScore(), results[i].getScore());
+            }
+            verifier.shutdown();
+            assertEquals(results[1].getScore(), verifier.verify(position, moves, limits)[1].getScore());
+        } finally {
+            verifier.shutdown();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Evaluation;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuiescenceTests {
+    private MockPlayer player1;
+    private MockPlayer player2;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.player1 = new MockPlayer(Color.BLUE);
+        this.player2 = new MockPlayer(Color.GREEN);
+    }
+
+    /**
+     * A knight of player 1 can take an archer of player 2 at (0, 3), which an archer of player 2 at (0, 6) guards
+     * over the screen at (0, 5).
+     */
+    private Configuration guardedArcher() {
+        var config = new Configuration(7, new Player[]{player1, player2}, 0, 1, 1);
+        config.addInitialPiece(new Knight(player1), 1, 1);
+        config.addInitialPiece(new Archer(player2), 0, 3);
+        config.addInitialPiece(new Knight(player2), 0, 5);
+        config.addInitialPiece(new Archer(player2), 0, 6);
+        return config;
+    }
+
+    @Test
+    public void testStaticExchange() {
+        var config = guardedArcher();
+        var position = Position.fromGame(new JesonMor(config));
+        int capture = position.fromMove(new Move(1, 1, 0, 3));
+        long hash = position.hash();
+        // the archer is taken, then the knight
+        int loss = Evaluation.DEFAULT.getArcherValue() - Evaluation.DEFAULT.getKnightValue();
+        assertEquals(loss, position.staticExchange(capture));
+        assertEquals(hash, position.hash());
+
+        // an archer of player 1 over the screen at (0, 1) takes back
+        config.addInitialPiece(new Archer(player1), 0, 0);
+        config.addInitialPiece(new Knight(player1), 0, 1);
+        position = Position.fromGame(new JesonMor(config));
+        // the archer takes back only the archer, as the knight is worth more
+        assertEquals(2 * Evaluation.DEFAULT.getArcherValue() - Evaluation.DEFAULT.getKnightValue(),
+                position.staticExchange(capture));
+
+        // by other weights, taking back the knight would cost player 2 a more valuable archer
+        position.setEvaluation(new Evaluation(50, 200, 0, 0, 0, 0, 0, 0));
+        assertEquals(200, position.staticExchange(capture));
+    }
+
+    @Test
+    public void testQuiescenceAvoidsLosingCapture() {
+        var position = Position.fromGame(new JesonMor(guardedArcher()));
+        int capture = position.fromMove(new Move(1, 1, 0, 3));
+
+        var search = new AlphaBetaSearch(new VirtualClock());
+        search.setQuiescence(false);
+        assertEquals(capture, search.search(position, null, SearchLimits.ofDepth(1)).getBestMove());
+
+        search.setQuiescence(true);
+        assertNotEquals(capture, search.search(position, null, SearchLimits.ofDepth(1)).getBestMove());
+    }
+
+    @Test
+    public void testQuiescenceSeesCentralSquareExit() {
+        var config = new Configuration(7, new Player[]{player1, player2}, 0, 1, 1);
+        config.addInitialPiece(new Knight(player1), 1, 2);
+        config.addInitialPiece(new Knight(player2), 6, 6);
+        var position = Position.fromGame(new JesonMor(config));
+
+        var search = new AlphaBetaSearch(new VirtualClock());
+        search.setQuiescence(false);
+        assertFalse(search.search(position, null, SearchLimits.ofDepth(1)).isWin());
+
+        // entering the central square at the leaf cannot be answered
+        search.setQuiescence(true);
+        var result = search.search(position, null, SearchLimits.ofDepth(1));
+        assertTrue(result.isWin());
+        assertEquals(AlphaBetaSearch.MATE - 3, result.getScore());
+        assertEquals(new Move(1, 2, 3, 3), position.toMove(result.getBestMove()));
+    }
+
+    @Test
+    public void testQuiescenceKeepsNodeCountsBounded() {
+        var config = new Configuration(7, new Player[]{player1, player2}, 0, 3, 2);
+        config.setAllInitialPieces();
+        var position = Position.fromGame(new JesonMor(config));
+        var search = new AlphaBetaSearch(new VirtualClock());
+        search.setQuiescence(false);
+        long plain = search.search(position, null, SearchLimits.ofDepth(3)).getNodes();
+        search.setQuiescence(true);
+        var result = search.search(position, null, SearchLimits.ofDepth(3));
+        assertEquals(3, result.getDepth());
+        assertTrue(result.getNodes() < 8 * plain, result.getNodes() + " nodes, " + plain + " without quiescence");
+    }
+}
@@ -0,0 +1,182 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RandomSeedTests {
+    /**
+     * A computer player remembering its moves.
+     */
+    private static class RecordingPlayer extends ComputerPlayer {
+        private final List<Move> moves;
+
+        RecordingPlayer(String name, Color color, Strategy strategy, List<Move> moves) {
+            super(name, color, strategy);
+            this.moves = moves;
+        }
+
+        @Override
+        public @NotNull Move nextMove(Game game, Move[] availableMoves) {
+            var move = super.nextMove(game, availableMoves);
+            this.moves.add(move);
+            return move;
+        }
+    }
+
+    private static List<Move> play(long seed) {
+        var moves = new ArrayList<Move>();
+        var random = new RecordingPlayer("Random", Color.BLUE, Strategy.RANDOM, moves);
+        var search = new RecordingPlayer("Search", Color.GREEN, Strategy.SEARCH, moves);
+        var config = new Configuration(5, new Player[]{random, search}, 1);
+        config.setClock(new VirtualClock());
+        config.setMaxSearchDepth(2);
+        config.setPondering(false);
+        config.setSeed(seed);
+        for (int x = 0; x < 5; x++) {
+            if (x % 2 == 0) {
+                config.addInitialPiece(new Knight(random, Behavior.RANDOM), x, 0);
+                config.addInitialPiece(new Knight(search, Behavior.CAPTURING), x, 4);
+            } else {
+                config.addInitialPiece(new Archer(random, Behavior.RANDOM), x, 0);
+                config.addInitialPiece(new Archer(search, Behavior.BLOCKING), x, 4);
+            }
+        }
+        try {
+            var winner = new JesonMor(config).start();
+            assertNotNull(winner);
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+        return moves;
+    }
+
+    @Test
+    public void testSeedReplaysGame() {
+        var first = play(3021);
+        assertFalse(first.isEmpty());
+        assertEquals(first, play(3021));
+        assertNotEquals(first, play(2021));
+    }
+
+    @Test
+    public void testStreamsAreSplitFromSeed() {
+        var blue = new ComputerPlayer("Blue", Color.BLUE);
+        var green = new ComputerPlayer("Green", Color.GREEN);
+        var config = new Configuration(5, new Player[]{blue, green});
+        var knight = new Knight(blue);
+        config.addInitialPiece(knight, 0, 0);
+        config.addInitialPiece(new Knight(green), 4, 4);
+        config.setSeed(7);
+        assertEquals(7, config.getSeed());
+
+        config.seedRandomStreams();
+        long player = blue.getRandom().nextLong();
+        long piece = knight.getRandom().nextLong();
+        assertNotEquals(player, piece);
+        config.seedRandomStreams();
+        assertEquals(player, blue.getRandom().nextLong());
+        assertEquals(piece, knight.getRandom().nextLong());
+        config.setSeed(8);
+        config.seedRandomStreams();
+        assertNotEquals(player, blue.getRandom().nextLong());
+        config.getPieceRuntime().shutdown();
+    }
+
+    @Test
+    public void testCloneHasOwnStreamAndSearches() throws CloneNotSupportedException {
+        var blue = new ComputerPlayer("Blue", Color.BLUE);
+        var green = new ComputerPlayer("Green", Color.GREEN);
+        var config = new Configuration(5, new Player[]{blue, green});
+        config.addInitialPiece(new Knight(blue), 0, 0);
+        config.addInitialPiece(new Knight(green), 4, 4);
+        config.setSeed(7);
+        config.seedRandomStreams();
+        try {
+            var search = config.getParallelSearch();
+            var cache = config.getEvaluationCache();
+            var cloned = config.clone();
+            assertNotSame(search, cloned.getParallelSearch());
+            assertNotSame(config.getTranspositionTable(), cloned.getTranspositionTable());
+            assertNotSame(cache, cloned.getEvaluationCache());
+            assertNotSame(config.getPieceRuntime(), cloned.getPieceRuntime());
+            assertSame(search, config.getParallelSearch());
+
+            // the players of the clone do not repeat the choices of the original players
+            var clonedBlue = blue.clone();
+            assertNotSame(blue.getRandom(), clonedBlue.getRandom());
+            assertNotEquals(blue.getRandom().nextLong(), clonedBlue.getRandom().nextLong());
+            cloned.getPieceRuntime().shutdown();
+            cloned.getParallelSearch().shutdown();
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+    }
+
+    @Test
+    public void testSeedingKeepsSearches() {
+        var blue = new ComputerPlayer("Blue", Color.BLUE);
+        var green = new ComputerPlayer("Green", Color.GREEN);
+        var config = new Configuration(5, new Player[]{blue, green});
+        config.setSearchThreads(2);
+        var search = config.getParallelSearch();
+        var mcts = config.getMonteCarloTreeSearch();
+        var table = config.getTranspositionTable();
+        try {
+            config.seedRandomStreams();
+            assertSame(search, config.getParallelSearch());
+            assertSame(mcts, config.getMonteCarloTreeSearch());
+            assertSame(table, config.getTranspositionTable());
+            assertFalse(search.isShutdown());
+            assertFalse(mcts.isShutdown());
+        } finally {
+            search.shutdown();
+            mcts.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloneLeavesOriginalPiecesAndPlayers() throws CloneNotSupportedException {
+        var blue = new ComputerPlayer("Blue", Color.BLUE);
+        var green = new ComputerPlayer("Green", Color.GREEN);
+        var config = new Configuration(5, new Player[]{blue, green});
+        var knight = new Knight(blue);
+        var archer = new Archer(green);
+        config.addInitialPiece(knight, 0, 0);
+        config.addInitialPiece(archer, 4, 4);
+        var cloned = config.clone();
+
+        // the original keeps its players, in order, and its pieces keep their owners
+        assertSame(blue, config.getPlayers()[0]);
+        assertSame(green, config.getPlayers()[1]);
+        assertSame(knight, config.getInitialBoard()[0][0]);
+        assertSame(archer, config.getInitialBoard()[4][4]);
+        assertSame(blue, knight.getPlayer());
+        assertSame(green, archer.getPlayer());
+
+        // the clone has its own players, in the same order, owning its own pieces
+        var clonedBlue = cloned.getPlayers()[0];
+        var clonedGreen = cloned.getPlayers()[1];
+        assertNotSame(blue, clonedBlue);
+        assertNotSame(green, clonedGreen);
+        assertEquals(Color.BLUE, clonedBlue.getColor());
+        assertEquals(Color.GREEN, clonedGreen.getColor());
+        var clonedKnight = cloned.getInitialBoard()[0][0];
+        var clonedArcher = cloned.getInitialBoard()[4][4];
+        assertTrue(clonedKnight instanceof Knight);
+        assertTrue(clonedArcher instanceof Archer);
+        assertNotSame(knight, clonedKnight);
+        assertNotSame(archer, clonedArcher);
+        assertSame(clonedBlue, clonedKnight.getPlayer());
+        assertSame(clonedGreen, clonedArcher.getPlayer());
+        assertNotSame(knight.getLifecycle(), ((Knight) clonedKnight).getLifecycle());
+    }
+}
@@ -0,0 +1,235 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTests {
+    private MockPlayer player1;
+    private MockPlayer player2;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.player1 = new MockPlayer(Color.BLUE);
+        this.player2 = new MockPlayer(Color.GREEN);
+    }
+
+    private Configuration fullBoard(int size, int numMovesProtection, int criticalRegionSize, int capacity) {
+        var config = new Configuration(size, new Player[]{player1, player2}, numMovesProtection,
+                criticalRegionSize, capacity);
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) {
+                config.addInitialPiece(new Knight(player1), i, 0);
+                config.addInitialPiece(new Knight(player2), i, size - 1);
+            } else {
+                config.addInitialPiece(new Archer(player1), i, 0);
+                config.addInitialPiece(new Archer(player2), i, size - 1);
+            }
+        }
+        return config;
+    }
+
+    private static HashSet<Move> availableMoves(Game game) {
+        var moves = new HashSet<Move>();
+        for (int x = 0; x < game.getConfiguration().getSize(); x++) {
+            for (int y = 0; y < game.getConfiguration().getSize(); y++) {
+                var piece = game.getPiece(x, y);
+                if (piece != null && piece.getPlayer().equals(game.getCurrentPlayer())) {
+                    moves.addAll(Arrays.asList(piece.getAvailableMoves(game, new Place(x, y))));
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static HashSet<Move> generatedMoves(Position position) {
+        var buffer = new int[position.maxMoves()];
+        int count = position.generateMoves(buffer, 0);
+        var moves = new HashSet<Move>();
+        for (int i = 0; i < count; i++) {
+            moves.add(position.toMove(buffer[i]));
+        }
+        assertEquals(count, moves.size());
+        return moves;
+    }
+
+    @Test
+    public void testRulesMatchGame() {
+        var random = new Random(3021);
+        int[][] setups = {{5, 0, 1, 1}, {5, 4, 3, 1}, {7, 2, 3, 2}, {9, 6, 5, 3}};
+        for (var setup : setups) {
+            for (int round = 0; round < 20; round++) {
+                var game = new JesonMor(fullBoard(setup[0], setup[1], setup[2], setup[3]));
+                var position = Position.fromGame(game);
+                for (int ply = 0; ply < 200; ply++) {
+                    assertEquals(Position.fromGame(game).hash(), position.hash());
+                    var expected = availableMoves(game);
+                    assertEquals(expected, generatedMoves(position));
+                    if (expected.isEmpty()) {
+                        break;
+                    }
+                    var player = game.getCurrentPlayer();
+                    var move = expected.toArray(new Move[0])[random.nextInt(expected.size())];
+                    var piece = game.getPiece(move.getSource());
+                    game.movePiece(move);
+                    game.numMoves++;
+                    game.updateScore(player, piece, move);
+                    boolean won = position.make(position.fromMove(move));
+                    assertEquals(game.getWinner(player, piece, move) != null, won);
+                    if (won) {
+                        break;
+                    }
+                }
+                for (var player : game.getConfiguration().getPlayers()) {
+                    player.setScore(0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnmakeRestoresPosition() {
+        var game = new JesonMor(fullBoard(7, 0, 3, 2));
+        var position = Position.fromGame(game);
+        var initial = position.toString();
+        var hash = position.hash();
+        var random = new Random(2020);
+        int made = 0;
+        for (int ply = 0; ply < 50; ply++) {
+            var buffer = new int[position.maxMoves()];
+            int count = position.generateMoves(buffer, 0);
+            if (count == 0 || position.make(buffer[random.nextInt(count)])) {
+                made += count == 0 ? 0 : 1;
+                break;
+            }
+            made++;
+        }
+        for (int i = 0; i < made; i++) {
+            position.unmake();
+        }
+        assertEquals(initial, position.toString());
+        assertEquals(hash, position.hash());
+        assertEquals(0, position.getNumMoves());
+        assertEquals(0, position.getScore(0));
+    }
+
+    @Test
+    public void testFindsCentralExitWin() {
+        var config = new Configuration(5, new Player[]{player1, player2}, 0, 1, 1);
+        config.addInitialPiece(new Knight(player1), 0, 0);
+        config.addInitialPiece(new Knight(player2), 4, 4);
+        config.addInitialPiece(new Archer(player2), 0, 4);
+        var game = new JesonMor(config);
+        // pieces cannot start at the central square
+        game.board[2][2] = new Knight(player1);
+
+        var position = Position.fromGame(game);
+        var result = new AlphaBetaSearch(new VirtualClock()).search(position, null, SearchLimits.ofDepth(4));
+        assertTrue(result.isWin());
+        assertEquals(AlphaBetaSearch.MATE - 1, result.getScore());
+        assertEquals(new Place(2, 2), position.toMove(result.getBestMove()).getSource());
+    }
+
+    @Test
+    public void testFindsCaptureAllWin() {
+        var config = new Configuration(5, new Player[]{player1, player2}, 0, 1, 1);
+        config.addInitialPiece(new Archer(player1), 0, 0);
+        config.addInitialPiece(new Archer(player1), 0, 1);
+        config.addInitialPiece(new Knight(player2), 0, 4);
+        var game = new JesonMor(config);
+
+        var position = Position.fromGame(game);
+        var result = new AlphaBetaSearch(new VirtualClock()).search(position, null, SearchLimits.ofDepth(4));
+        assertTrue(result.isWin());
+        assertEquals(new Move(0, 0, 0, 4), position.toMove(result.getBestMove()));
+        assertEquals(1, result.getDepth());
+    }
+
+    @Test
+    public void testSearchRespectsBudget() {
+        var game = new JesonMor(fullBoard(9, 1, 3, 3));
+        var position = Position.fromGame(game);
+        var hash = position.hash();
+
+        // a clock that ticks each time the search reads it, so that the budget runs out after a fixed amount of work
+        var clock = new VirtualClock() {
+            @Override
+            public long nanoTime() {
+                advance(TimeUnit.MICROSECONDS.toNanos(10));
+                return super.nanoTime();
+            }
+        };
+        var limits = SearchLimits.withBudget(clock, 50, AlphaBetaSearch.MAX_PLY);
+        var result = new AlphaBetaSearch(clock).search(position, null, limits);
+        // the search stops within a few reads of the clock after the deadline
+        assertTrue(clock.nanoTime() - limits.getDeadline() < TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(result.getDepth() >= 1);
+        assertTrue(result.getDepth() < AlphaBetaSearch.MAX_PLY);
+        assertTrue(position.isLegal(result.getBestMove()));
+        assertEquals(result.getBestMove(), result.getPrincipalVariation()[0]);
+        assertEquals(hash, position.hash());
+    }
+
+    @Test
+    public void testIterationListenerAndStop() {
+        var position = Position.fromGame(new JesonMor(fullBoard(7, 1, 3, 2)));
+        var search = new AlphaBetaSearch(new VirtualClock());
+        var depths = new ArrayList<Integer>();
+        search.setIterationListener(iteration -> {
+            depths.add(iteration.getDepth());
+            assertTrue(position.isLegal(iteration.getBestMove()));
+            if (iteration.getDepth() == 2) {
+                search.stop();
+            }
+        });
+        var result = search.search(position, null, SearchLimits.ofDepth(5));
+        assertEquals(List.of(1, 2), depths);
+        assertEquals(2, result.getDepth());
+
+        // the stop is kept until the search is restarted
+        depths.clear();
+        assertEquals(0, search.search(position, null, SearchLimits.ofDepth(5)).getDepth());
+        assertTrue(depths.isEmpty());
+        search.restart();
+        search.setIterationListener(null);
+        assertEquals(3, search.search(position, null, SearchLimits.ofDepth(3)).getDepth());
+    }
+
+    @Test
+    public void testSearchStrategyPicksProposedMove() {
+        var computer = new ComputerPlayer("Searcher", Color.BLUE, Strategy.SEARCH);
+        var config = new Configuration(5, new Player[]{computer, player2}, 0, 1, 1);
+        config.setClock(new VirtualClock());
+        config.setMaxSearchDepth(3);
+        config.addInitialPiece(new Knight(player2), 4, 4);
+        config.addInitialPiece(new Archer(computer), 0, 0);
+        config.addInitialPiece(new Archer(computer), 0, 1);
+        var game = new JesonMor(config);
+        game.board[2][2] = new Knight(player2);
+        try {
+            var moves = new Move[]{new Move(0, 0, 1, 0), new Move(0, 1, 0, 2), new Move(0, 0, 4, 0)};
+            var move = computer.nextMove(game, moves);
+            assertTrue(Arrays.asList(moves).contains(move));
+        } finally {
+            config.getPieceRuntime().shutdown();
+        }
+        assertThrows(InvalidConfigurationError.class, () -> config.setMaxSearchDepth(0));
+    }
+}
@@ -0,0 +1,192 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.Tablebase;
+import castle.comp3021.assignment.search.TablebaseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+    private static Path generate(String... materials) throws IOException {
+        var directory = Files.createTempDirectory("tablebase");
+        var generator = new TablebaseGenerator(directory, 5, 1, 1, 2);
+        try {
+            for (var material : materials) {
+                generator.generate(material);
+            }
+        } finally {
+            generator.shutdown();
+        }
+        return directory;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * A random position of side 0 to move with knights and archers of each side.
+     */
+    private static Position randomPosition(Random random, int[] counts) {
+        var position = new Position(5, 0, 1, 1);
+        for (int group = 0; group < 4; group++) {
+            for (int i = 0; i < counts[group]; i++) {
+                int square;
+                do {
+                    square = random.nextInt(25);
+                } while (position.getPiece(square) != Position.EMPTY);
+                position.put(group / 2, group % 2, square);
+            }
+        }
+        return position;
+    }
+
+    @Test
+    public void testValuesAgreeWithChildren() throws IOException {
+        var directory = generate("KA-K");
+        try {
+            var tablebase = Tablebase.open(directory);
+            // KA-K, K-KA, and the materials after a capture: K-K, A-K, K-A
+            assertEquals(5, tablebase.getTableCount());
+            assertEquals(3, tablebase.getMaxPieces());
+
+            var random = new Random(37);
+            var moves = new int[64];
+            int wins = 0;
+            int losses = 0;
+            for (int i = 0; i < 2000; i++) {
+                var position = randomPosition(random, i % 2 == 0 ? new int[]{1, 1, 1, 0} : new int[]{1, 0, 1, 1});
+                int value = tablebase.probe(position);
+                assertNotEquals(Tablebase.UNKNOWN, value);
+                int count = position.generateMoves(moves, 0);
+                // fastest win and slowest loss over the moves, in plies from the position
+                int fastestWin = Integer.MAX_VALUE;
+                int slowestLoss = 0;
+                boolean allLose = count > 0;
+                for (int j = 0; j < count; j++) {
+                    if (position.make(moves[j])) {
+                        fastestWin = 1;
+                        allLose = false;
+                    } else {
+                        int child = tablebase.probe(position);
+                        assertNotEquals(Tablebase.UNKNOWN, child);
+                        if (child < 0) {
+                            fastestWin = Math.min(fastestWin, 1 - child);
+                        }
+                        if (child > 0) {
+                            slowestLoss = Math.max(slowestLoss, 1 + child);
+                        } else {
+                            allLose = false;
+                        }
+                    }
+                    position.unmake();
+                }
+                if (fastestWin != Integer.MAX_VALUE) {
+                    assertEquals(fastestWin, value, position.toString());
+                    wins++;
+                } else if (allLose) {
+                    assertEquals(-slowestLoss, value, position.toString());
+                    losses++;
+                } else {
+                    assertEquals(Tablebase.DRAW, value, position.toString());
+                }
+            }
+            assertTrue(wins > 0 && losses > 0, wins + " wins, " + losses + " losses");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testFlippedPositionsShareValues() throws IOException {
+        var directory = generate("K-KA");
+        try {
+            var tablebase = Tablebase.open(directory);
+            var random = new Random(41);
+            var pieces = new int[3];
+            var types = new int[]{Position.KNIGHT, Position.KNIGHT, Position.ARCHER};
+            var sides = new int[]{0, 1, 1};
+            for (int i = 0; i < 500; i++) {
+                var position = new Position(5, 0, 1, 1);
+                for (int p = 0; p < pieces.length; p++) {
+                    do {
+                        pieces[p] = random.nextInt(25);
+                    } while (position.getPiece(pieces[p]) != Position.EMPTY);
+                    position.put(sides[p], types[p], pieces[p]);
+                }
+                var flipped = new Position(5, 0, 1, 1);
+                for (int p = 0; p < pieces.length; p++) {
+                    int x = pieces[p] / 5;
+                    int y = pieces[p] % 5;
+                    flipped.put(sides[p], types[p], (4 - x) * 5 + (i % 2 == 0 ? y : 4 - y));
+                }
+                assertEquals(tablebase.probe(position), tablebase.probe(flipped));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testSearchProbesTablebase() throws IOException {
+        var directory = generate("KA-K");
+        try {
+            var tablebase = Tablebase.open(directory);
+            var random = new Random(43);
+            // the slowest win of a sample
+            Position won = null;
+            int value = 0;
+            for (int i = 0; i < 2000; i++) {
+                var position = randomPosition(random, new int[]{1, 1, 1, 0});
+                if (tablebase.probe(position) > value) {
+                    won = position;
+                    value = tablebase.probe(position);
+                }
+            }
+            assertTrue(value >= 3);
+
+            // a search 1 ply deep sees the win the tables know
+            var search = new AlphaBetaSearch(new VirtualClock());
+            search.setTablebase(tablebase);
+            var result = search.search(won, null, SearchLimits.ofDepth(1));
+            assertEquals(AlphaBetaSearch.MATE - value, result.getScore());
+
+            int best = tablebase.bestMove(won);
+            assertTrue(won.isLegal(best));
+            won.make(best);
+            assertEquals(-(value - 1), tablebase.probe(won));
+            won.unmake();
+
+            // no table of the material, or the capture protection not over
+            assertEquals(Tablebase.UNKNOWN, tablebase.probe(Position.initial(5, 0, 1, 1)));
+            var protectedPosition = new Position(5, 2, 1, 1);
+            protectedPosition.put(0, Position.KNIGHT, 0);
+            protectedPosition.put(1, Position.KNIGHT, 24);
+            assertEquals(Tablebase.UNKNOWN, tablebase.probe(protectedPosition));
+
+            var players = new Player[]{new MockPlayer(Color.BLUE), new MockPlayer(Color.GREEN)};
+            var config = new Configuration(5, players, 0, 1, 1);
+            config.setTablebaseDirectory(directory);
+            assertSame(config.getTablebase(), config.getParallelSearch().getTablebase());
+            assertThrows(InvalidConfigurationError.class,
+                    () -> config.setTablebaseDirectory(directory.resolve("missing")));
+        } finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.player.ComputerPlayer;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeManagerTests {
+    private Configuration config;
+    private VirtualClock clock;
+    private ComputerPlayer computer;
+    private TimeManager timeManager;
+
+    @BeforeEach
+    public void setUpGame() {
+        this.computer = new ComputerPlayer("Timed", Color.BLUE, Strategy.SEARCH);
+        this.timeManager = new TimeManager(10_000, 100);
+        this.computer.setTimeManager(this.timeManager);
+        this.config = new Configuration(5, new Player[]{computer, new MockPlayer(Color.GREEN)}, 2, 1, 1);
+        this.clock = new VirtualClock();
+        this.config.setClock(this.clock);
+        this.config.setAllInitialPieces();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.config.getPieceRuntime().shutdown();
+    }
+
+    @Test
+    public void testBudgetsFollowGamePhase() {
+        var game = new JesonMor(this.config);
+        assertEquals(TimeManager.Phase.PROTECTION, TimeManager.getPhase(game));
+        timeManager.startTurn(game);
+        long protection = timeManager.getSoftBudgetMillis();
+        // (10000 - 20) / 30 + 3 / 4 * 100, halved
+        assertEquals(203, protection);
+        assertTrue(timeManager.getHardBudgetMillis() > protection);
+        assertEquals(protection, config.getTurnBudgetMillis(computer));
+        assertEquals(timeManager.getSoftDeadline(), config.getTurnDeadline(computer));
+        timeManager.endTurn();
+        assertEquals(config.getTurnBudgetMillis(), config.getTurnBudgetMillis(computer));
+
+        game.numMoves = 2;
+        assertEquals(TimeManager.Phase.MIDDLE_GAME, TimeManager.getPhase(game));
+        timeManager.startTurn(game);
+        long middleGame = timeManager.getSoftBudgetMillis();
+        timeManager.endTurn();
+
+        // the game shares the initial board until it starts
+        var initialBoard = config.getInitialBoard();
+        game.board = new Piece[5][5];
+        game.board[0][0] = initialBoard[0][0];
+        game.board[1][4] = initialBoard[1][4];
+        game.board[2][2] = initialBoard[2][4];
+        assertEquals(TimeManager.Phase.ENDING, TimeManager.getPhase(game));
+        timeManager.startTurn(game);
+        long ending = timeManager.getSoftBudgetMillis();
+        timeManager.endTurn();
+        assertTrue(protection < ending && ending < middleGame);
+    }
+
+    @Test
+    public void testTurnsSpendTheClock() {
+        var game = new JesonMor(this.config);
+        timeManager.startTurn(game);
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(150));
+        timeManager.endTurn();
+        assertEquals(10_000 - 150 + 100, timeManager.getRemainingMillis());
+        timeManager.endTurn();
+        assertEquals(10_000 - 150 + 100, timeManager.getRemainingMillis());
+
+        // an overrun leaves the smallest budget, not a negative one
+        timeManager.startTurn(game);
+        clock.advance(TimeUnit.SECONDS.toNanos(20));
+        timeManager.endTurn();
+        assertTrue(timeManager.getRemainingMillis() < 0);
+        timeManager.startTurn(game);
+        assertEquals(1, timeManager.getSoftBudgetMillis());
+        assertEquals(1, timeManager.getHardBudgetMillis());
+        timeManager.endTurn();
+
+        timeManager.reset();
+        assertEquals(10_000, timeManager.getRemainingMillis());
+        assertThrows(IllegalArgumentException.class, () -> new TimeManager(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimeManager(1000, -1));
+    }
+
+    @Test
+    public void testSoftDeadlineStopsDeepening() {
+        var position = Position.initial(5, 0, 1, 1);
+        var search = new AlphaBetaSearch(clock);
+        var limits = new SearchLimits(clock.nanoTime() + TimeUnit.SECONDS.toNanos(10), 4,
+                SearchLimits.UNLIMITED_NODES);
+        assertEquals(4, search.search(position, null, limits).getDepth());
+
+        // virtual time does not pass, so only a soft deadline already reached stops the deepening
+        var soft = limits.withSoftDeadline(clock.nanoTime());
+        assertEquals(1, search.search(position, null, soft).getDepth());
+        assertTrue(soft.isSoftExpired(clock, clock.nanoTime() - 10, 1.0));
+        assertFalse(limits.hasSoftDeadline());
+
+        // a forced move is not searched deeper
+        var moves = new int[position.maxMoves()];
+        position.generateMoves(moves, 0);
+        var later = limits.withSoftDeadline(clock.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        var result = search.search(position, new int[]{moves[0]}, later);
+        assertEquals(1, result.getDepth());
+        assertEquals(moves[0], result.getBestMove());
+    }
+}
@@ -0,0 +1,143 @@
+package castle.comp3021.assignment.protocol;
+
+import castle.comp3021.assignment.mock.MockPlayer;
+import castle.comp3021.assignment.piece.Archer;
+import castle.comp3021.assignment.piece.Knight;
+import castle.comp3021.assignment.protocol.exception.InvalidConfigurationError;
+import castle.comp3021.assignment.search.AlphaBetaSearch;
+import castle.comp3021.assignment.search.Position;
+import castle.comp3021.assignment.search.SearchLimits;
+import castle.comp3021.assignment.search.TranspositionTable;
+import castle.comp3021.assignment.textversion.JesonMor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+    @Test
+    public void testStoreAndProbe() {
+        var table = new TranspositionTable(1, true);
+        assertEquals(1 << 16, table.capacity());
+        assertEquals(0, table.probe(42));
+
+        table.store(42, 7, TranspositionTable.LOWER, -1234, Position.move(80, 63));
+        long entry = table.probe(42);
+        assertNotEquals(0, entry);
+        assertEquals(-1234, TranspositionTable.getScore(entry));
+        assertEquals(Position.move(80, 63), TranspositionTable.getMove(entry));
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+
+        // another position of the same slot is a miss
+        assertEquals(0, table.probe(42 + table.capacity()));
+        assertEquals(1.0 / 3, table.getHitRate());
+        assertEquals(1.0 / table.capacity(), table.getOccupancy());
+
+        // a shallower bound does not replace a deeper result of the same position
+        table.store(42, 3, TranspositionTable.UPPER, 0, Position.NO_MOVE);
+        assertEquals(7, TranspositionTable.getDepth(table.probe(42)));
+
+        table.clear();
+        assertEquals(0, table.probe(42));
+        assertEquals(0, table.getOccupancy());
+    }
+
+    @Test
+    public void testNoStatistics() {
+        var table = new TranspositionTable(1);
+        assertFalse(table.hasStatistics());
+        table.store(42, 7, TranspositionTable.EXACT, 10, Position.NO_MOVE);
+        assertNotEquals(0, table.probe(42));
+        assertEquals(0, table.probe(43));
+        assertEquals(0, table.getProbes());
+        assertEquals(0, table.getHits());
+        assertEquals(0, table.getHitRate());
+    }
+
+    @Test
+    public void testWinScoresRelativeToPosition() {
+        int win = AlphaBetaSearch.MATE - 5;
+        int stored = TranspositionTable.toStored(win, 3);
+        assertEquals(AlphaBetaSearch.MATE - 2, stored);
+        assertEquals(AlphaBetaSearch.MATE - 7, TranspositionTable.fromStored(stored, 5));
+        assertEquals(-stored, TranspositionTable.toStored(-win, 3));
+        assertEquals(100, TranspositionTable.toStored(100, 3));
+    }
+
+    @Test
+    public void testConcurrentAccessNeverReturnsTornEntries() throws InterruptedException {
+        // a small table so that writers keep overwriting each other's slots
+        var table = new TranspositionTable(1, true);
+        var errors = new AtomicInteger();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            var thread = new Thread(() -> {
+                var random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long hash = random.nextLong(1 << 20) * 0x9E3779B97F4A7C15L;
+                    // every position has exactly one valid entry, derived from its hash
+                    int score = (int) (hash >>> 40);
+                    if (random.nextBoolean()) {
+                        table.store(hash, (int) (hash & 0x3F), TranspositionTable.EXACT, score, (int) (hash & 0xFFFFF));
+                    } else {
+                        long entry = table.probe(hash);
+                        if (entry != 0 && (TranspositionTable.getScore(entry) != score
+                                || TranspositionTable.getMove(entry) != (int) (hash & 0xFFFFF))) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue(table.getHits() > 0);
+    }
+
+    @Test
+    public void testSearchReusesTable() {
+        var player1 = new MockPlayer(Color.BLUE);
+        var player2 = new MockPlayer(Color.GREEN);
+        var config = new Configuration(7, new Player[]{player1, player2}, 2, 3, 2);
+        for (int i = 0; i < 7; i++) {
+            config.addInitialPiece(i % 2 == 0 ? new Knight(player1) : new Archer(player1), i, 0);
+            config.addInitialPiece(i % 2 == 0 ? new Knight(player2) : new Archer(player2), i, 6);
+        }
+        var position = Position.fromGame(new JesonMor(config));
+        var table = config.getTranspositionTable();
+        assertSame(table, config.getTranspositionTable());
+        var limits = SearchLimits.ofDepth(4);
+
+        var plain = new AlphaBetaSearch(new VirtualClock()).search(position, null, limits);
+        var cold = new AlphaBetaSearch(new VirtualClock(), table).search(position, null, limits);
+        var warm = new AlphaBetaSearch(new VirtualClock(), table).search(position, null, limits);
+        assertEquals(4, warm.getDepth());
+        assertTrue(cold.getNodes() < plain.getNodes());
+        assertTrue(warm.getNodes() < cold.getNodes());
+        assertTrue(position.isLegal(warm.getBestMove()));
+        // the table of the configuration does not count its probes
+        assertEquals(0, table.getProbes());
+        assertTrue(table.getOccupancy() > 0);
+
+        config.setSearchStatistics(true);
+        var counted = config.getTranspositionTable();
+        assertNotSame(table, counted);
+        assertTrue(counted.hasStatistics());
+        new AlphaBetaSearch(new VirtualClock(), counted).search(position, null, limits);
+        assertTrue(counted.getHitRate() > 0);
+
+        config.setTranspositionTableMegabytes(2);
+        assertNotSame(counted, config.getTranspositionTable());
+        assertEquals(2 * 1024 * 1024, config.getTranspositionTable().getSizeBytes());
+        assertThrows(InvalidConfigurationError.class, () -> config.setTranspositionTableMegabytes(0));
+    }
+}